@@ -0,0 +1,180 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.jmh;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.PromotionConstants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionPact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.obj.PerformanceScore;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.dto.DateRange;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.domain.Promoter;
+
+/**
+ * BenchmarkData
+ *
+ * Seeded synthetic data of the benchmarks. Sizes are given at realistic scale
+ * (`scale = 1`), and multiplied by the benchmarks' `scale` parameter:
+ *
+ * 1. constituents of a portfolio: 30
+ *
+ * 2. benchmarks of a portfolio: 3
+ *
+ * 3. settled performances of a pact (a year of daily settlements): 250
+ *
+ * 4. promotion records of a promoter (the current pact's ones included): 40
+ *
+ * 5. date ranges/sort orders of a promotion record search: 3/5
+ */
+final class BenchmarkData {
+
+  static final int CONSTITUENTS = 30;
+  static final int BENCHMARKS = 3;
+  static final int PERFORMANCES = 250;
+  static final int PROMOTION_RECORDS = 40;
+  static final int SEARCH_RANGES = 3;
+  static final int SEARCH_ORDERS = 5;
+
+  // in-range records of a promotion pact, one below `MAX_PROMOTION_PER_PROMOTER`
+  // so that another one can be created
+  static final int CURRENT_PROMOTION_RECORDS = PromotionConstants.MAX_PROMOTION_PER_PROMOTER - 1;
+
+  private static final long SEED = 42;
+
+  private BenchmarkData() {
+  }
+
+  static Random random() {
+    return new Random(SEED);
+  }
+
+  static List<Constituent> constituents(Random rnd, AdjustmentRecord ar, int n) {
+    List<Constituent> cons = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      float staticWeight = 1f / n;
+      float earningsYield = (rnd.nextFloat() - 0.5f) / 5;
+      cons.add(new Constituent(
+          ar,
+          LocalDate.of(2026, 1, 1),
+          symbol(i),
+          symbol(i),
+          10f,
+          10f * (1 + earningsYield),
+          1f,
+          1f,
+          staticWeight,
+          staticWeight * (1 + earningsYield),
+          rnd.nextFloat() * 30,
+          rnd.nextFloat() * 1e9f,
+          earningsYield));
+    }
+    return cons;
+  }
+
+  /**
+   * An adjustment of `preCons`: a tenth of the constituents leave, a tenth join,
+   * and a fifth are reweighted.
+   *
+   * @param rnd
+   * @param ar
+   * @param preCons
+   * @return
+   */
+  static List<Constituent> adjusted(Random rnd, AdjustmentRecord ar, List<Constituent> preCons) {
+    int n = preCons.size();
+    List<Constituent> cons = new ArrayList<>(n);
+    for (int i = n / 10; i < n; i++) {
+      Constituent c = new Constituent(preCons.get(i));
+      c.setAdjustmentRecord(ar);
+      if (rnd.nextInt(5) == 0) {
+        c.setStaticWeight(c.getStaticWeight() * (0.5f + rnd.nextFloat()));
+      }
+      cons.add(c);
+    }
+    List<Constituent> joined = constituents(rnd, ar, n / 10);
+    for (int i = 0; i < joined.size(); i++) {
+      joined.get(i).setSymbol(symbol(n + i));
+    }
+    cons.addAll(joined);
+    return cons;
+  }
+
+  static List<Benchmark> benchmarks(Random rnd, AdjustmentRecord ar, int n) {
+    List<Benchmark> bms = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      float staticWeight = 1f / n;
+      float percentageChange = (rnd.nextFloat() - 0.5f) / 10;
+      bms.add(new Benchmark(
+          ar,
+          LocalDate.of(2026, 1, 1),
+          "B" + i,
+          "B" + i,
+          percentageChange,
+          staticWeight,
+          staticWeight * (1 + percentageChange)));
+    }
+    return bms;
+  }
+
+  // settled performances in adjust order, the last one is unsettled
+  static List<Performance> performances(Random rnd, int n) {
+    List<Performance> pfs = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      AdjustmentRecord ar = new AdjustmentRecord((long) i);
+      ar.setIsUnsettled(i == n - 1 ? true : null);
+      pfs.add(new Performance(ar, (rnd.nextFloat() - 0.5f) / 50, (rnd.nextFloat() - 0.5f) / 50));
+    }
+    return pfs;
+  }
+
+  static PromotionPact promotionPact() {
+    PromotionPact pact = new PromotionPact("pact");
+    pact.setDateRange(new DateRange(date(2026, 1, 1), date(2026, 12, 31)));
+    return pact;
+  }
+
+  /**
+   * Promotion records of a promoter, `CURRENT_PROMOTION_RECORDS` of them within
+   * the pact's date range, the others before it. Ids are `1..n`.
+   *
+   * @param rnd
+   * @param pact
+   * @param n
+   * @return
+   */
+  static List<PromotionRecord> promotionRecords(Random rnd, PromotionPact pact, int n) {
+    Promoter promoter = new Promoter("jacob@example.com");
+    List<PromotionRecord> records = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      boolean isCurrent = i >= n - CURRENT_PROMOTION_RECORDS;
+      Date openTime = isCurrent ? date(2026, 1 + i % 12, 15) : date(2025 - i / 12, 1 + i % 12, 15);
+      PerformanceScore score = PerformanceScore.fromEarningsYield((rnd.nextFloat() - 0.5f));
+
+      PromotionRecord pr = new PromotionRecord();
+      pr.setId(i + 1);
+      pr.setPromoter(promoter);
+      pr.setPromotionPact(pact);
+      pr.setSymbol(symbol(i));
+      pr.setOpenTime(openTime);
+      pr.setPerformanceScore(isCurrent && rnd.nextBoolean() ? null : score.score());
+      records.add(pr);
+    }
+    return records;
+  }
+
+  static String symbol(int i) {
+    return String.format("%06d.SZ", i);
+  }
+
+  @SuppressWarnings("deprecation")
+  static Date date(int year, int month, int day) {
+    return new Date(year - 1900, month - 1, day);
+  }
+}
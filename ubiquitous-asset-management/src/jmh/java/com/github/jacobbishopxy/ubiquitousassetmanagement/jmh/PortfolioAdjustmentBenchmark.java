@@ -0,0 +1,72 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.jmh;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioAdjustmentHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PortfolioAdjustmentBenchmark
+ *
+ * `PortfolioAdjustmentHelper.adjust` between two settlements, at realistic and
+ * 100x scale (see `BenchmarkData`): unchanged members (a normal settlement), and
+ * an adjustment where a tenth of the members leave, a tenth join and a fifth are
+ * reweighted.
+ *
+ * `mvn -Pjmh test-compile exec:exec -Djmh.args=PortfolioAdjustmentBenchmark`
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioAdjustmentBenchmark {
+
+  @Param({ "1", "100" })
+  private int scale;
+
+  private List<Constituent> preCons;
+
+  private List<Constituent> unchangedCons;
+
+  private List<Constituent> adjustedCons;
+
+  @Setup
+  public void setup() {
+    Random rnd = BenchmarkData.random();
+
+    preCons = BenchmarkData.constituents(rnd, new AdjustmentRecord(1L), BenchmarkData.CONSTITUENTS * scale);
+    unchangedCons = BenchmarkData.constituents(
+        BenchmarkData.random(),
+        new AdjustmentRecord(2L),
+        BenchmarkData.CONSTITUENTS * scale);
+    adjustedCons = BenchmarkData.adjusted(rnd, new AdjustmentRecord(2L), preCons);
+  }
+
+  @Benchmark
+  public List<AdjustmentInfo> settlement() {
+    return PortfolioAdjustmentHelper.adjust(preCons, unchangedCons);
+  }
+
+  @Benchmark
+  public List<AdjustmentInfo> adjustment() {
+    return PortfolioAdjustmentHelper.adjust(preCons, adjustedCons);
+  }
+}
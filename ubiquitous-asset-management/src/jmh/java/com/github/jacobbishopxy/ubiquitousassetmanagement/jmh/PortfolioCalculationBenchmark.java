@@ -0,0 +1,132 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationKernel;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationKernel.Columns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * PortfolioCalculationBenchmark
+ *
+ * Boxed stream calculation (as `PortfolioCalculationHelper` used to be) versus
+ * the primitive kernel, with and without column extraction.
+ *
+ * `mvn -Pjmh test-compile exec:exec -Djmh.args=PortfolioCalculationBenchmark`
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioCalculationBenchmark {
+
+  @Param({ "10", "100", "10000" })
+  private int size;
+
+  private List<Constituent> constituents;
+
+  private Columns columns;
+
+  @Setup
+  public void setup() {
+    Random rnd = new Random(42);
+    constituents = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Constituent c = new Constituent();
+      c.setStaticWeight(1f / size);
+      c.setEarningsYield((rnd.nextFloat() - 0.5f) / 5);
+      c.setDynamicWeight(c.getStaticWeight() * (1 + c.getEarningsYield()));
+      constituents.add(c);
+    }
+    columns = Columns.ofConstituents(constituents);
+  }
+
+  // the former boxed implementation, whose normalization was never consumed
+  @Benchmark
+  public Float boxedStream() {
+    Float totalExpansion = constituents
+        .stream()
+        .map(Constituent::getDynamicWeight)
+        .reduce(0f, (t, u) -> Float.sum(t, u));
+
+    Float earningsYield = constituents
+        .stream()
+        .map(c -> {
+          Float ey = c.getEarningsYield();
+          if (ey == null) {
+            ey = 0f;
+          }
+          return c.getStaticWeight() * ey;
+        })
+        .reduce(0f, (t, u) -> Float.sum(t, u));
+
+    constituents.stream().map(c -> {
+      c.setDynamicWeight(c.getDynamicWeight() / totalExpansion);
+      return c;
+    });
+
+    return earningsYield;
+  }
+
+  // the former boxed implementation, with its normalization consumed
+  @Benchmark
+  public void boxedStreamNormalized(Blackhole bh) {
+    Float totalExpansion = constituents
+        .stream()
+        .map(Constituent::getDynamicWeight)
+        .reduce(0f, (t, u) -> Float.sum(t, u));
+
+    Float earningsYield = constituents
+        .stream()
+        .map(c -> {
+          Float ey = c.getEarningsYield();
+          if (ey == null) {
+            ey = 0f;
+          }
+          return c.getStaticWeight() * ey;
+        })
+        .reduce(0f, (t, u) -> Float.sum(t, u));
+
+    List<Constituent> normalized = constituents.stream().map(c -> {
+      c.setDynamicWeight(c.getDynamicWeight() / totalExpansion);
+      return c;
+    }).collect(Collectors.toList());
+
+    bh.consume(earningsYield);
+    bh.consume(normalized);
+  }
+
+  // extraction + kernel + write back
+  @Benchmark
+  public Float helper() {
+    return PortfolioCalculationHelper
+        .modifyConstituentsAndCalculatePortfolioEarningsYield(constituents)
+        .earningsYield();
+  }
+
+  // kernel over columns extracted beforehand
+  @Benchmark
+  public float kernel() {
+    return PortfolioCalculationKernel.weightedYieldAndNormalize(columns);
+  }
+}
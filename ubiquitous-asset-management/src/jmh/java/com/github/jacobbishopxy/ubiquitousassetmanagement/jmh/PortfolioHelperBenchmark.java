@@ -0,0 +1,109 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.jmh;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.AccumulatedPerformanceResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.BenchmarksResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.ConstituentsResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.SettledProductResult;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PortfolioHelperBenchmark
+ *
+ * `PortfolioCalculationHelper` over a portfolio and a pact's performances, at
+ * realistic and 100x scale (see `BenchmarkData`).
+ *
+ * Weight normalizations are idempotent, so the same constituents/benchmarks are
+ * reused across invocations.
+ *
+ * `mvn -Pjmh test-compile exec:exec -Djmh.args=PortfolioHelperBenchmark`
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortfolioHelperBenchmark {
+
+  @Param({ "1", "100" })
+  private int scale;
+
+  private List<Constituent> constituents;
+
+  private List<Benchmark> benchmarks;
+
+  private List<Performance> performances;
+
+  private List<Performance> settledPerformances;
+
+  private List<Long> unsettledAdjustmentRecordIds;
+
+  private SettledProductResult settledProduct;
+
+  @Setup
+  public void setup() {
+    Random rnd = BenchmarkData.random();
+    AdjustmentRecord ar = new AdjustmentRecord(1L);
+
+    constituents = BenchmarkData.constituents(rnd, ar, BenchmarkData.CONSTITUENTS * scale);
+    benchmarks = BenchmarkData.benchmarks(rnd, ar, BenchmarkData.BENCHMARKS * scale);
+    performances = BenchmarkData.performances(rnd, BenchmarkData.PERFORMANCES * scale);
+    settledPerformances = performances.subList(0, performances.size() - 1);
+    unsettledAdjustmentRecordIds = List.of(performances.get(performances.size() - 1).getAdjustmentRecord().getId());
+    settledProduct = PortfolioCalculationHelper.calculateSettledProduct(settledPerformances);
+  }
+
+  @org.openjdk.jmh.annotations.Benchmark
+  public ConstituentsResult modifyConstituents() {
+    return PortfolioCalculationHelper.modifyConstituentsAndCalculatePortfolioEarningsYield(constituents);
+  }
+
+  @org.openjdk.jmh.annotations.Benchmark
+  public BenchmarksResult modifyBenchmarks() {
+    return PortfolioCalculationHelper.modifyBenchmarksAndCalculateBenchmarkEarningsYield(benchmarks);
+  }
+
+  // full recalculation over the whole chain
+  @org.openjdk.jmh.annotations.Benchmark
+  public AccumulatedPerformanceResult accumulatedPerformance() {
+    return PortfolioCalculationHelper.calculateAccumulatedPerformance(performances);
+  }
+
+  @org.openjdk.jmh.annotations.Benchmark
+  public SettledProductResult settledProduct() {
+    return PortfolioCalculationHelper.calculateSettledProduct(settledPerformances);
+  }
+
+  // incremental recalculation from the settled product, independent of the scale
+  @org.openjdk.jmh.annotations.Benchmark
+  public AccumulatedPerformanceResult incrementalAccumulatedPerformance() {
+    return PortfolioCalculationHelper.calculateAccumulatedPerformance(
+        settledProduct,
+        performances.get(performances.size() - 1));
+  }
+
+  @org.openjdk.jmh.annotations.Benchmark
+  public List<Performance> indexSettledPerformances() {
+    PortfolioCalculationHelper.indexSettledPerformances(performances, unsettledAdjustmentRecordIds);
+    return performances;
+  }
+}
@@ -0,0 +1,158 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.jmh;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionPact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionStatistic;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.obj.PerformanceScore;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.dto.DateRange;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.dto.PromotionRecordSearch;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.dto.SortDirection;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service.helper.PromotionCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service.helper.PromotionCalculationHelper.AffectPromotionStatisticType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Sort.Order;
+
+/**
+ * PromotionHelperBenchmark
+ *
+ * Promotion calculations at realistic and 100x scale (see `BenchmarkData`):
+ *
+ * 1. `PromotionCalculationHelper.affectPromotionStatistic` over a promoter's
+ * records, per mutation type (`Affect`). A created record is appended to the
+ * records, hence they are copied by `CREATE`.
+ *
+ * 2. `PerformanceScore.fromEarningsYield` over a promoter's records.
+ *
+ * 3. `DateRange.fromString` and `PromotionRecordSearch.getOrders` over the
+ * ranges/orders of one search per scale unit.
+ *
+ * `mvn -Pjmh test-compile exec:exec -Djmh.args=PromotionHelperBenchmark`
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionHelperBenchmark {
+
+  @Param({ "1", "100" })
+  private int scale;
+
+  private float[] earningsYields;
+
+  private String[] dateRanges;
+
+  private PromotionRecordSearch[] searches;
+
+  @Setup
+  public void setup() {
+    Random rnd = BenchmarkData.random();
+
+    earningsYields = new float[BenchmarkData.PROMOTION_RECORDS * scale];
+    for (int i = 0; i < earningsYields.length; i++) {
+      earningsYields[i] = rnd.nextFloat() - 0.5f;
+    }
+
+    dateRanges = new String[BenchmarkData.SEARCH_RANGES * scale];
+    for (int i = 0; i < dateRanges.length; i++) {
+      dateRanges[i] = String.format("20%02d-01-01:20%02d-06-30", i % 30, i % 30);
+    }
+
+    SortDirection[] directions = SortDirection.values();
+    searches = new PromotionRecordSearch[scale];
+    for (int i = 0; i < scale; i++) {
+      // `SEARCH_ORDERS` sort fields
+      searches[i] = new PromotionRecordSearch(
+          null, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+          directions[i % 2],
+          null,
+          directions[(i + 1) % 2],
+          null,
+          directions[i % 2],
+          null,
+          directions[(i + 1) % 2],
+          directions[i % 2],
+          null,
+          null);
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class Affect {
+
+    @Param({ "CREATE", "UPDATE", "DELETE" })
+    private AffectPromotionStatisticType type;
+
+    private List<PromotionRecord> records;
+
+    private PromotionRecord record;
+
+    @Setup
+    public void setup(PromotionHelperBenchmark bm) {
+      Random rnd = BenchmarkData.random();
+      PromotionPact pact = BenchmarkData.promotionPact();
+
+      records = BenchmarkData.promotionRecords(rnd, pact, BenchmarkData.PROMOTION_RECORDS * bm.scale);
+      if (type == AffectPromotionStatisticType.CREATE) {
+        record = BenchmarkData.promotionRecords(rnd, pact, 1).get(0);
+        record.setId(records.size() + 1);
+      } else {
+        record = records.get(records.size() - 1);
+      }
+    }
+  }
+
+  @Benchmark
+  public PromotionStatistic affectPromotionStatistic(Affect affect) {
+    List<PromotionRecord> relativeRecords = affect.type == AffectPromotionStatisticType.CREATE
+        ? new ArrayList<>(affect.records)
+        : affect.records;
+
+    return PromotionCalculationHelper.affectPromotionStatistic(
+        affect.type,
+        affect.record,
+        new PromotionStatistic(),
+        relativeRecords);
+  }
+
+  @Benchmark
+  public void performanceScore(Blackhole bh) {
+    for (float ey : earningsYields) {
+      bh.consume(PerformanceScore.fromEarningsYield(ey));
+    }
+  }
+
+  @Benchmark
+  public void dateRangeFromString(Blackhole bh) throws ParseException {
+    for (String s : dateRanges) {
+      bh.consume(DateRange.fromString(s));
+    }
+  }
+
+  @Benchmark
+  public void searchOrders(Blackhole bh) {
+    for (PromotionRecordSearch search : searches) {
+      List<Order> orders = search.getOrders();
+      bh.consume(orders);
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.UbiquitousAssetManagementApplication;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest.LoadTestScenarios.Scenario;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest.LoadTestScenarios.Targets;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest.LoadTestSeeder.Sizes;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+/**
+ * LoadTest
+ *
+ * End-to-end load test: seeds a database, starts the application on a random
+ * port, drives its REST controllers with concurrent virtual users (see
+ * `LoadTestScenarios`), and reports throughput and latency percentiles per
+ * endpoint.
+ *
+ * `mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--loadtest.scale=10"`
+ *
+ * Options (`--key=value`, every other option is passed to the application):
+ *
+ * 1. database: `url`/`username`/`password` of a local PostgreSQL. Without
+ * `url`, an embedded PostgreSQL is started and dropped afterwards. With
+ * `loadtest.seed=false`, an already seeded database is reused as is
+ *
+ * 2. data: `loadtest.scale` (1) multiplies promoters, pacts and promotion
+ * records of `loadtest.promoters` (50), `loadtest.industries` (30),
+ * `loadtest.pacts` (200), `loadtest.adjustment-records` per pact (100),
+ * `loadtest.constituents` (30) and `loadtest.benchmarks` (3) per record,
+ * `loadtest.promotion-pacts` (8), `loadtest.promotion-records` (20000)
+ *
+ * 3. load: `loadtest.users` (16) virtual users without think time, for
+ * `loadtest.warmup` (10) then `loadtest.duration` (60) seconds, scenarios
+ * weighted by `loadtest.weight.browse` (6), `loadtest.weight.settle` (1) and
+ * `loadtest.weight.search` (3)
+ *
+ * 4. report: printed, and written as CSV to `loadtest.report` if set
+ */
+public class LoadTest {
+
+  private static final String EMBEDDED_USER = "postgres";
+
+  public static void main(String[] args) throws Exception {
+    StandardEnvironment env = new StandardEnvironment();
+    env.getPropertySources().addFirst(new SimpleCommandLinePropertySource(args));
+
+    // the application listens on a random port, without its management port, and
+    // without logging every statement
+    List<String> appArgs = new ArrayList<>(Arrays.asList(args));
+    if (!env.containsProperty("server.port")) {
+      appArgs.add("--server.port=0");
+    }
+    if (!env.containsProperty("management.server.port")) {
+      appArgs.add("--management.server.port=-1");
+    }
+    if (!env.containsProperty("spring.jpa.show-sql")) {
+      appArgs.add("--spring.jpa.show-sql=false");
+    }
+
+    // 0. database
+    String url = env.getProperty("url");
+    String username = env.getProperty("username");
+    String password = env.getProperty("password");
+    EmbeddedPostgres embedded = null;
+    if (url == null) {
+      embedded = EmbeddedPostgres.builder().start();
+      url = embedded.getJdbcUrl(EMBEDDED_USER, EMBEDDED_USER);
+      username = EMBEDDED_USER;
+      password = "";
+      appArgs.add("--url=" + url);
+      appArgs.add("--username=" + username);
+      appArgs.add("--password=" + password);
+    }
+
+    try {
+      // 1. schema and data
+      if (env.getProperty("loadtest.seed", Boolean.class, true)) {
+        Flyway
+            .configure()
+            .dataSource(url, username, password)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+
+        int scale = env.getProperty("loadtest.scale", Integer.class, 1);
+        Sizes sizes = new Sizes(
+            scale * env.getProperty("loadtest.promoters", Integer.class, 50),
+            env.getProperty("loadtest.industries", Integer.class, 30),
+            scale * env.getProperty("loadtest.pacts", Integer.class, 200),
+            env.getProperty("loadtest.adjustment-records", Integer.class, 100),
+            env.getProperty("loadtest.constituents", Integer.class, 30),
+            env.getProperty("loadtest.benchmarks", Integer.class, 3),
+            env.getProperty("loadtest.promotion-pacts", Integer.class, 8),
+            scale * env.getProperty("loadtest.promotion-records", Integer.class, 20000));
+
+        try (Connection conn = DriverManager.getConnection(url, username, password)) {
+          if (count(conn, "SELECT count(*) FROM portfolio_pact") > 0) {
+            throw new IllegalStateException(
+                "Database is not empty, use `--loadtest.seed=false` to reuse its data");
+          }
+          log("Seeding %s", sizes);
+          long start = System.nanoTime();
+          new LoadTestSeeder(conn).seed(sizes);
+          log("Seeded in %d s", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        }
+      }
+
+      Targets targets;
+      try (Connection conn = DriverManager.getConnection(url, username, password)) {
+        targets = new Targets(
+            query(conn, "SELECT portfolio_pact_id FROM portfolio_adjustment_record WHERE is_unsettled = true"),
+            query(conn, "SELECT nickname FROM author"),
+            query(conn, "SELECT name FROM promotion_pact"));
+      }
+
+      // 2. application
+      ConfigurableApplicationContext ctx = new SpringApplicationBuilder(UbiquitousAssetManagementApplication.class)
+          .run(appArgs.toArray(String[]::new));
+
+      LoadTestReport report = new LoadTestReport();
+      try {
+        String baseUrl = "http://localhost:" + ctx.getEnvironment().getProperty("local.server.port");
+        List<Scenario> scenarios = new LoadTestScenarios(targets, LocalDate.now()).scenarios(
+            env.getProperty("loadtest.weight.browse", Integer.class, 6),
+            env.getProperty("loadtest.weight.settle", Integer.class, 1),
+            env.getProperty("loadtest.weight.search", Integer.class, 3));
+
+        run(
+            scenarios,
+            new LoadTestClient(HttpClient.newHttpClient(), baseUrl, report),
+            env.getProperty("loadtest.users", Integer.class, 16),
+            env.getProperty("loadtest.warmup", Integer.class, 10),
+            env.getProperty("loadtest.duration", Integer.class, 60),
+            report);
+      } finally {
+        ctx.close();
+      }
+
+      // 3. report
+      report.print(System.out);
+      String reportPath = env.getProperty("loadtest.report");
+      if (reportPath != null && !reportPath.isBlank()) {
+        report.writeCsv(Path.of(reportPath));
+        log("Report is written to %s", reportPath);
+      }
+    } finally {
+      if (embedded != null) {
+        embedded.close();
+      }
+    }
+  }
+
+  private static void run(
+      List<Scenario> scenarios,
+      LoadTestClient client,
+      int users,
+      int warmupSeconds,
+      int durationSeconds,
+      LoadTestReport report) throws InterruptedException {
+    int totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+    if (totalWeight <= 0) {
+      throw new IllegalArgumentException("At least one scenario weight must be positive");
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+
+    ExecutorService executor = Executors.newFixedThreadPool(users);
+    for (int u = 0; u < users; u++) {
+      Random rnd = new Random(u);
+      executor.execute(() -> {
+        try {
+          while (System.nanoTime() < deadline) {
+            int w = rnd.nextInt(totalWeight);
+            for (Scenario s : scenarios) {
+              w -= s.weight();
+              if (w < 0) {
+                s.script().run(client, rnd);
+                break;
+              }
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+    executor.shutdown();
+
+    log("Warming up %d users for %d s", users, warmupSeconds);
+    TimeUnit.SECONDS.sleep(warmupSeconds);
+    report.start();
+    log("Measuring for %d s", durationSeconds);
+    TimeUnit.SECONDS.sleep(durationSeconds);
+    report.stop();
+
+    // sessions in flight at the deadline complete unrecorded
+    if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+      executor.shutdownNow();
+    }
+  }
+
+  private static long count(Connection conn, String sql) throws SQLException {
+    try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> query(Connection conn, String sql) throws SQLException {
+    List<T> values = new ArrayList<>();
+    try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+      while (rs.next()) {
+        values.add((T) rs.getObject(1));
+      }
+    }
+    return values;
+  }
+
+  private static void log(String format, Object... args) {
+    System.out.println("[loadtest] " + String.format(format, args));
+  }
+}
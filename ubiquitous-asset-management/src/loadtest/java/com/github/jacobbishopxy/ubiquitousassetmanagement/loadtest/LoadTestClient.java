@@ -0,0 +1,68 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * LoadTestClient
+ *
+ * Blocking HTTP client of a virtual user, every request is recorded in the
+ * report under its endpoint (the path without its query).
+ */
+class LoadTestClient {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+  private final HttpClient client;
+  private final String baseUrl;
+  private final LoadTestReport report;
+
+  LoadTestClient(HttpClient client, String baseUrl, LoadTestReport report) {
+    this.client = client;
+    this.baseUrl = baseUrl;
+    this.report = report;
+  }
+
+  int get(String pathAndQuery) throws InterruptedException {
+    return send(HttpRequest
+        .newBuilder(URI.create(baseUrl + pathAndQuery))
+        .timeout(TIMEOUT)
+        .GET()
+        .build());
+  }
+
+  int post(String path, String json) throws InterruptedException {
+    return send(HttpRequest
+        .newBuilder(URI.create(baseUrl + path))
+        .timeout(TIMEOUT)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json))
+        .build());
+  }
+
+  /**
+   * Send a request, and return its status code (0 if no response is received).
+   *
+   * @param request
+   * @return
+   * @throws InterruptedException
+   */
+  private int send(HttpRequest request) throws InterruptedException {
+    String endpoint = request.method() + " " + request.uri().getPath();
+
+    long start = System.nanoTime();
+    int status;
+    try {
+      status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    } catch (IOException e) {
+      status = 0;
+    }
+    report.record(endpoint, System.nanoTime() - start, status < 200 || status >= 300);
+
+    return status;
+  }
+}
@@ -0,0 +1,124 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * LoadTestReport
+ *
+ * Latencies and errors per endpoint (`<method> <path>`), only recorded once the
+ * warmup is over. Latencies are kept in microseconds, up to a minute, with 3
+ * significant digits.
+ */
+class LoadTestReport {
+
+  private record Endpoint(Histogram latencies, LongAdder errors) {
+  }
+
+  private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  private final Map<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+
+  private volatile boolean recording = false;
+
+  private volatile long startedAt;
+
+  private volatile long stoppedAt;
+
+  void start() {
+    startedAt = System.nanoTime();
+    recording = true;
+  }
+
+  void stop() {
+    recording = false;
+    stoppedAt = System.nanoTime();
+  }
+
+  /**
+   * Record a request, failed requests (non-2xx status or no response) are counted
+   * as errors, and their latencies are recorded as well.
+   *
+   * @param endpoint
+   * @param nanos
+   * @param isError
+   */
+  void record(String endpoint, long nanos, boolean isError) {
+    if (!recording) {
+      return;
+    }
+
+    Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint(
+        new ConcurrentHistogram(MAX_LATENCY_MICROS, 3),
+        new LongAdder()));
+    e.latencies().recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+    if (isError) {
+      e.errors().increment();
+    }
+  }
+
+  // =======================================================================
+  // Output
+  // =======================================================================
+
+  private static final String[] HEADER = {
+      "endpoint", "requests", "errors", "throughput(req/s)", "p50(ms)", "p90(ms)", "p99(ms)", "max(ms)" };
+
+  private List<String[]> rows() {
+    double seconds = (stoppedAt - startedAt) / 1e9;
+
+    List<String[]> rows = new ArrayList<>();
+    endpoints.forEach((name, e) -> {
+      Histogram h = e.latencies();
+      rows.add(new String[] {
+          name,
+          String.valueOf(h.getTotalCount()),
+          String.valueOf(e.errors().sum()),
+          String.format("%.1f", h.getTotalCount() / seconds),
+          millis(h.getValueAtPercentile(50)),
+          millis(h.getValueAtPercentile(90)),
+          millis(h.getValueAtPercentile(99)),
+          millis(h.getMaxValue()) });
+    });
+    return rows;
+  }
+
+  void print(PrintStream out) {
+    List<String[]> rows = rows();
+
+    String endpointFormat = "%-" + rows
+        .stream()
+        .mapToInt(r -> r[0].length())
+        .reduce(HEADER[0].length(), Math::max) + "s";
+    String format = endpointFormat + "  %10s  %8s  %18s  %10s  %10s  %10s  %10s%n";
+
+    out.printf(format, (Object[]) HEADER);
+    rows.forEach(r -> out.printf(format, (Object[]) r));
+  }
+
+  void writeCsv(Path path) throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.join(",", HEADER));
+    rows().forEach(r -> lines.add(String.join(",", r)));
+
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Files.write(path, lines);
+  }
+
+  private static String millis(long micros) {
+    return String.format("%.2f", micros / 1e3);
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+/**
+ * LoadTestScenarios
+ *
+ * Scripts run by virtual users, each one a short session of requests:
+ *
+ * 1. browse: portfolio overviews, then a pact's unsettled detail and time
+ * series
+ *
+ * 2. settle: settle a pact on the settlement date (successive settlements of a
+ * day bump its adjust version), then read its latest settled detail
+ *
+ * 3. search: a promoter's promotion records of a promotion pact by score, then
+ * a page of all the records opened within a month
+ *
+ * A virtual user picks its next scenario at random, proportionally to the
+ * scenarios' weights.
+ */
+class LoadTestScenarios {
+
+  // ids/names requests are drawn from
+  record Targets(
+      List<Long> unsettledPactIds,
+      List<String> promoterNicknames,
+      List<String> promotionPactNames) {
+  }
+
+  @FunctionalInterface
+  interface Script {
+    void run(LoadTestClient client, Random rnd) throws InterruptedException;
+  }
+
+  record Scenario(String name, int weight, Script script) {
+  }
+
+  private static final String PORTFOLIO = "/" + Constants.API_VERSION + Constants.API_PORTFOLIO;
+  private static final String PROMOTION = "/" + Constants.API_VERSION + Constants.API_PROMOTION;
+
+  private static final int PAGE_SIZE = 20;
+
+  private final Targets targets;
+  private final LocalDate settlementDate;
+
+  LoadTestScenarios(Targets targets, LocalDate settlementDate) {
+    this.targets = targets;
+    this.settlementDate = settlementDate;
+  }
+
+  List<Scenario> scenarios(int browseWeight, int settleWeight, int searchWeight) {
+    return List.of(
+        new Scenario("browse", browseWeight, this::browse),
+        new Scenario("settle", settleWeight, this::settle),
+        new Scenario("search", searchWeight, this::search));
+  }
+
+  private void browse(LoadTestClient client, Random rnd) throws InterruptedException {
+    Long pactId = pick(rnd, targets.unsettledPactIds());
+
+    client.get(PORTFOLIO + "/portfolio_overviews?is_activate=true");
+    client.get(PORTFOLIO + "/portfolio_detail/unsettled?pact_id=" + pactId);
+    client.get(PORTFOLIO + "/portfolio_timeseries?pact_id=" + pactId);
+  }
+
+  private void settle(LoadTestClient client, Random rnd) throws InterruptedException {
+    Long pactId = pick(rnd, targets.unsettledPactIds());
+
+    client.post(
+        PORTFOLIO + "/portfolio_action/settle",
+        String.format("{\"pactId\":%d,\"settlementDate\":\"%s\"}", pactId, settlementDate));
+    client.get(PORTFOLIO + "/portfolio_detail/latest_settled?pact_id=" + pactId);
+  }
+
+  private void search(LoadTestClient client, Random rnd) throws InterruptedException {
+    String promoter = pick(rnd, targets.promoterNicknames());
+    String promotionPact = pick(rnd, targets.promotionPactNames());
+
+    client.get(String.format(
+        "%s/record?page=0&size=%d&promoters=%s&promotion_pact_names=%s&score_sort=desc",
+        PROMOTION, PAGE_SIZE, encode(promoter), encode(promotionPact)));
+
+    LocalDate from = LocalDate.of(2025, 1, 1).plusDays(rnd.nextInt(365));
+    client.get(String.format(
+        "%s/record?page=%d&size=%d&open_time_range=%s:%s&open_time_sort=desc",
+        PROMOTION, rnd.nextInt(5), PAGE_SIZE, from, from.plusMonths(1)));
+  }
+
+  private static <T> T pick(Random rnd, List<T> values) {
+    return values.get(rnd.nextInt(values.size()));
+  }
+
+  private static String encode(String s) {
+    return URLEncoder.encode(s, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,208 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * LoadTestSeeder
+ *
+ * Seeds a migrated (empty) database with synthetic data, server side
+ * (`generate_series`), so that millions of rows are inserted in minutes:
+ *
+ * 1. promoters and industries
+ *
+ * 2. portfolio pacts, each with `adjustmentRecords - 1` settled records and an
+ * unsettled one. Every record has its constituents, benchmarks and
+ * performance, every pact its accumulated performance
+ *
+ * 3. promotion pacts of consecutive quarters from 2025, and promotion records
+ * spread over them (four fifths of them closed)
+ *
+ * Sequences are moved past the explicit ids, so that the application allocates
+ * new ids above them.
+ */
+class LoadTestSeeder {
+
+  record Sizes(
+      int promoters,
+      int industries,
+      int pacts,
+      int adjustmentRecords,
+      int constituents,
+      int benchmarks,
+      int promotionPacts,
+      int promotionRecords) {
+  }
+
+  // constituents are drawn from a universe of symbols shared by all the pacts
+  static final int SYMBOLS = 5000;
+
+  private final Connection conn;
+
+  LoadTestSeeder(Connection conn) {
+    this.conn = conn;
+  }
+
+  void seed(Sizes sizes) throws SQLException {
+    // 1. utility
+    execute("""
+        INSERT INTO author (email, nickname, active)
+        SELECT 'promoter_' || i || '@example.com', 'promoter_' || i, true
+        FROM generate_series(1, ?) i
+        """, sizes.promoters());
+    execute("""
+        INSERT INTO industry_info (id, name)
+        SELECT i, 'industry_' || i
+        FROM generate_series(1, ?) i
+        """, sizes.industries());
+
+    // 2. portfolio, a promoter's pacts start on consecutive days
+    execute("""
+        INSERT INTO portfolio_pact (
+          id, alias, start_date, is_active, industry_info_id, promoter_email
+        )
+        SELECT
+          i, 'pact_' || i,
+          DATE '2020-01-01' + (i - 1) / ?,
+          i % 10 <> 0,
+          (i - 1) % ? + 1,
+          'promoter_' || ((i - 1) % ? + 1) || '@example.com'
+        FROM generate_series(1, ?) i
+        """, sizes.promoters(), sizes.industries(), sizes.promoters(), sizes.pacts());
+    execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        )
+        SELECT
+          (p - 1) * ? + v, p,
+          CASE WHEN v < ? THEN DATE '2020-01-01' + v END,
+          CASE WHEN v < ? THEN 1 END,
+          v % 5 = 1,
+          CASE WHEN v = ? THEN true END
+        FROM generate_series(1, ?) p, generate_series(1, ?) v
+        """,
+        sizes.adjustmentRecords(), sizes.adjustmentRecords(), sizes.adjustmentRecords(),
+        sizes.adjustmentRecords(), sizes.pacts(), sizes.adjustmentRecords());
+    execute("""
+        INSERT INTO portfolio_constituent (
+          portfolio_adjustment_record_id, adjust_date, symbol, abbreviation,
+          adjust_date_price, current_price, adjust_date_factor, current_factor,
+          static_weight, dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT
+          ar.id, COALESCE(ar.adjust_date, DATE '2020-01-01'),
+          lpad(((ar.id * 7 + s) % ?)::text, 6, '0') || '.SZ', 'S' || s,
+          10, 10 + random(), 1, 1,
+          1.0 / ?, 1.0 / ?, random() * 30, random() * 1e9, random() / 10 - 0.05
+        FROM portfolio_adjustment_record ar, generate_series(1, ?) s
+        """, SYMBOLS, sizes.constituents(), sizes.constituents(), sizes.constituents());
+    execute("""
+        INSERT INTO portfolio_benchmark (
+          portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+          percentage_change, static_weight, dynamic_weight
+        )
+        SELECT
+          ar.id, COALESCE(ar.adjust_date, DATE '2020-01-01'),
+          'benchmark_' || b, lpad(b::text, 6, '0') || '.SH',
+          random() / 10 - 0.05, 1.0 / ?, 1.0 / ?
+        FROM portfolio_adjustment_record ar, generate_series(1, ?) b
+        """, sizes.benchmarks(), sizes.benchmarks(), sizes.benchmarks());
+    execute("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        )
+        SELECT y.id, y.p, y.b, y.p - y.b
+        FROM (
+          SELECT id, random() / 50 - 0.01 AS p, random() / 50 - 0.01 AS b
+          FROM portfolio_adjustment_record
+        ) y
+        """);
+    execute("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        )
+        SELECT y.id, ? - 1, y.p, y.b, y.p - y.b
+        FROM (
+          SELECT id, random() - 0.5 AS p, random() - 0.5 AS b
+          FROM portfolio_pact
+        ) y
+        """, sizes.adjustmentRecords());
+
+    // 3. promotion
+    execute("""
+        INSERT INTO promotion_pact (name, start_date, end_date)
+        SELECT
+          'promotion_pact_' || i,
+          TIMESTAMP '2025-01-01' + (i - 1) * INTERVAL '90 days',
+          TIMESTAMP '2025-01-01' + i * INTERVAL '90 days' - INTERVAL '1 second'
+        FROM generate_series(1, ?) i
+        """, sizes.promotionPacts());
+    execute("""
+        INSERT INTO promotion_record (
+          id, symbol, abbreviation, industry, currency, direction,
+          open_time, open_price, open_time_adjust_factor,
+          close_time, close_price, close_time_adjust_factor,
+          earnings_yield, performance_score, is_archived,
+          created_at, updated_at, promoter_email, promotion_pact_name
+        )
+        SELECT
+          r.i,
+          lpad((r.i % ?)::text, 6, '0') || '.SZ', 'S' || (r.i % ?),
+          'industry_' || (r.i % ? + 1), 'CNY',
+          CASE WHEN r.i % 4 = 0 THEN 'SELL' ELSE 'BUY' END,
+          r.open_time, 10, 1,
+          CASE WHEN r.closed THEN r.open_time + INTERVAL '30 days' END,
+          CASE WHEN r.closed THEN 10 * (1 + r.ey) END,
+          CASE WHEN r.closed THEN 1 END,
+          CASE WHEN r.closed THEN r.ey END,
+          CASE WHEN NOT r.closed THEN NULL
+            WHEN r.ey < -0.25 THEN -20
+            WHEN r.ey < -0.1 THEN -10
+            WHEN r.ey < 0.15 THEN 10
+            WHEN r.ey <= 0.25 THEN 20
+            ELSE 40
+          END,
+          r.closed,
+          r.open_time, r.open_time,
+          'promoter_' || (r.i % ? + 1) || '@example.com',
+          'promotion_pact_' || r.pact
+        FROM (
+          SELECT
+            i,
+            i % ? + 1 AS pact,
+            TIMESTAMP '2025-01-01' + (i % ?) * INTERVAL '90 days' + random() * INTERVAL '89 days' AS open_time,
+            i % 5 <> 0 AS closed,
+            (random() - 0.4)::real AS ey
+          FROM generate_series(1, ?) i
+        ) r
+        """,
+        SYMBOLS, SYMBOLS, sizes.industries(), sizes.promoters(),
+        sizes.promotionPacts(), sizes.promotionPacts(), sizes.promotionRecords());
+
+    // 4. sequences and planner statistics
+    try (Statement st = conn.createStatement()) {
+      for (String table : new String[] {
+          "industry_info",
+          "portfolio_pact",
+          "portfolio_adjustment_record",
+          "promotion_record" }) {
+        st.execute(String.format(
+            "SELECT setval('%s_id_seq', (SELECT max(id) FROM %s))", table, table));
+      }
+      st.execute("ANALYZE");
+    }
+  }
+
+  private void execute(String sql, int... params) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+      for (int i = 0; i < params.length; i++) {
+        ps.setInt(i + 1, params[i]);
+      }
+      ps.execute();
+    }
+  }
+}
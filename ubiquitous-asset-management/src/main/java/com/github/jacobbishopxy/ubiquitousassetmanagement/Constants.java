@@ -22,6 +22,16 @@ public class Constants {
   public static final String TIME_FORMAT = "HH:mm:ss";
   public static final String DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
+  // response header of keyset pagination, absent on the last page
+  public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
+
+  // second-level cache regions of reference entities and their queries, see
+  // `ReferenceCacheConfig`
+  public static final String CACHE_REGION_PROMOTER = "reference.promoter";
+  public static final String CACHE_REGION_INDUSTRY_INFO = "reference.industry_info";
+  public static final String CACHE_REGION_PROMOTION_PACT = "reference.promotion_pact";
+  public static final String CACHE_REGION_REFERENCE_QUERIES = "reference.queries";
+
   public static final String dateToString(Date date) {
     return new SimpleDateFormat(DATE_FORMAT).format(date);
   }
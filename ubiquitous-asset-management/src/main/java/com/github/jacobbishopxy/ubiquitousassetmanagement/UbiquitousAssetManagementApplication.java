@@ -10,10 +10,12 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "com.github.jacobbishopxy.ubiquitousassetmanagement")
 @EnableJpaRepositories("com.github.jacobbishopxy.ubiquitousassetmanagement")
 @EntityScan("com.github.jacobbishopxy.ubiquitousassetmanagement")
+@EnableScheduling
 public class UbiquitousAssetManagementApplication {
 
 	private static final Logger logger = LogManager.getLogger(UbiquitousAssetManagementApplication.class);
@@ -4,31 +4,129 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 
+/**
+ * DbConfig
+ *
+ * Connections are served by HikariCP pools. If `replica.url` is provided, a
+ * second pool is created and every `@Transactional(readOnly = true)` method is
+ * routed to it, see {@link ReadWriteRoutingDataSource}. Both pools are closed
+ * on shutdown, after the data source's users.
+ *
+ * Pool metrics (active, idle, pending, acquire/wait time) are published to the
+ * meter registry under `hikaricp.*`, tagged by pool name.
+ */
 @Configuration
 @EnableJpaRepositories
 @PropertySource("classpath:persistence.properties")
 public class DbConfig {
 
+  public static final String PRIMARY_POOL_NAME = "asset-management-primary";
+  public static final String REPLICA_POOL_NAME = "asset-management-replica";
+
   @Autowired
   private Environment env;
 
+  // the routing data source does not close its targets
+  private final List<HikariDataSource> pools = new CopyOnWriteArrayList<>();
+
   @Bean
-  public DataSource dataSource() {
-    final DriverManagerDataSource dataSource = new DriverManagerDataSource();
-    dataSource.setDriverClassName(env.getProperty("driverClassName"));
-    dataSource.setUrl(env.getProperty("url"));
-    dataSource.setUsername(env.getProperty("username"));
-    dataSource.setPassword(env.getProperty("password"));
-    return dataSource;
+  @Primary
+  public DataSource dataSource(ObjectProvider<MeterRegistry> meterRegistry) {
+    HikariDataSource primary = pooledDataSource(
+        PRIMARY_POOL_NAME,
+        env.getProperty("url"),
+        env.getProperty("username"),
+        env.getProperty("password"),
+        meterRegistry.getIfAvailable());
+
+    // no replica configured, all the traffic goes to the primary pool
+    String replicaUrl = env.getProperty("replica.url");
+    if (replicaUrl == null || replicaUrl.isBlank()) {
+      return primary;
+    }
+
+    HikariDataSource replica = pooledDataSource(
+        REPLICA_POOL_NAME,
+        replicaUrl,
+        env.getProperty("replica.username", env.getProperty("username")),
+        env.getProperty("replica.password", env.getProperty("password")),
+        meterRegistry.getIfAvailable());
+
+    ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource();
+    routing.setTargetDataSources(Map.of(
+        ReadWriteRoutingDataSource.Route.PRIMARY, primary,
+        ReadWriteRoutingDataSource.Route.REPLICA, replica));
+    routing.setDefaultTargetDataSource(primary);
+    routing.afterPropertiesSet();
+
+    // the transaction's read-only flag is only known after the transaction has
+    // begun, hence the physical connection must be fetched lazily
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+
+  private HikariDataSource pooledDataSource(
+      String poolName,
+      String url,
+      String username,
+      String password,
+      MeterRegistry meterRegistry) {
+    HikariConfig config = new HikariConfig();
+    config.setPoolName(poolName);
+    config.setDriverClassName(env.getProperty("driverClassName"));
+    config.setJdbcUrl(url);
+    config.setUsername(username);
+    config.setPassword(password);
+
+    // sizing
+    config.setMaximumPoolSize(env.getProperty("pool.maximumPoolSize", Integer.class, 10));
+    config.setMinimumIdle(env.getProperty("pool.minimumIdle", Integer.class, 2));
+    config.setConnectionTimeout(env.getProperty("pool.connectionTimeout", Long.class, 30_000L));
+    config.setIdleTimeout(env.getProperty("pool.idleTimeout", Long.class, 600_000L));
+    config.setMaxLifetime(env.getProperty("pool.maxLifetime", Long.class, 1_800_000L));
+    // a connection held longer than this threshold is logged as a possible leak,
+    // 0 means disabled
+    config.setLeakDetectionThreshold(env.getProperty("pool.leakDetectionThreshold", Long.class, 60_000L));
+
+    // the PostgreSQL driver rewrites a JDBC batch of inserts into multi-row
+    // inserts, instead of one statement per row
+    config.addDataSourceProperty(
+        "reWriteBatchedInserts",
+        env.getProperty("pool.reWriteBatchedInserts", Boolean.class, true));
+
+    if (meterRegistry != null) {
+      config.setMetricRegistry(meterRegistry);
+    }
+
+    HikariDataSource pool = new HikariDataSource(config);
+    pools.add(pool);
+    return pool;
+  }
+
+  // the data source bean is destroyed before its factory, hence before this
+  @PreDestroy
+  public void closePools() {
+    pools.forEach(HikariDataSource::close);
   }
 }
@@ -0,0 +1,97 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * ExecutorConfig
+ *
+ * Bounded executors used by services. Pool sizes should stay below the
+ * connection pool size, since each task holds a connection.
+ *
+ * Statements of a task are counted for the request which submitted it, see
+ * `RequestQueryCounter`. Detail fetches are also routed like their submitter's
+ * reads, see `ReadWriteRoutingDataSource`.
+ */
+@Configuration
+public class ExecutorConfig {
+
+  public static final String PORTFOLIO_SETTLE_EXECUTOR = "portfolioSettleExecutor";
+
+  public static final String PORTFOLIO_DETAIL_EXECUTOR = "portfolioDetailExecutor";
+
+  public static final String PORTFOLIO_SETTLE_JOB_EXECUTOR = "portfolioSettleJobExecutor";
+
+  public static final String PORTFOLIO_STREAM_EXECUTOR = "portfolioStreamExecutor";
+
+  // settles independent pacts in parallel. When the queue is full, the caller
+  // runs the task itself, which throttles the submission.
+  @Bean(name = PORTFOLIO_SETTLE_EXECUTOR)
+  public ThreadPoolTaskExecutor portfolioSettleExecutor(
+      @Value("${portfolio.settle.parallelism:4}") int parallelism,
+      @Value("${portfolio.settle.queue-capacity:100}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("portfolio-settle-");
+    executor.setCorePoolSize(parallelism);
+    executor.setMaxPoolSize(parallelism);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setTaskDecorator(RequestQueryCounter::propagate);
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+
+  // fetches the independent parts of a portfolio detail concurrently. Running
+  // in the caller when saturated keeps a detail request from waiting on others.
+  @Bean(name = PORTFOLIO_DETAIL_EXECUTOR)
+  public ThreadPoolTaskExecutor portfolioDetailExecutor(
+      @Value("${portfolio.detail.parallelism:8}") int parallelism,
+      @Value("${portfolio.detail.queue-capacity:50}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("portfolio-detail-");
+    executor.setCorePoolSize(parallelism);
+    executor.setMaxPoolSize(parallelism);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    // a cache refill forced to the primary stays on it
+    executor.setTaskDecorator(task -> ReadWriteRoutingDataSource.propagate(RequestQueryCounter.propagate(task)));
+    return executor;
+  }
+
+  // runs settlement jobs, each of them settling its pacts on the settle
+  // executor. A submission is rejected when the queue is full, rather than run
+  // by the caller: it is a request thread, which must not wait for the job.
+  @Bean(name = PORTFOLIO_SETTLE_JOB_EXECUTOR)
+  public ThreadPoolTaskExecutor portfolioSettleJobExecutor(
+      @Value("${portfolio.settle-job.workers:2}") int workers,
+      @Value("${portfolio.settle-job.queue-capacity:50}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("portfolio-settle-job-");
+    executor.setCorePoolSize(workers);
+    executor.setMaxPoolSize(workers);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    return executor;
+  }
+
+  // writes overview deltas to the stream subscribers, at most one task per
+  // subscriber, so that a slow client only holds its own sender. Never runs in
+  // the caller, which is the scheduler thread.
+  @Bean(name = PORTFOLIO_STREAM_EXECUTOR)
+  public ThreadPoolTaskExecutor portfolioStreamExecutor(
+      @Value("${portfolio.stream.senders:4}") int senders,
+      @Value("${portfolio.stream.max-subscribers:200}") int maxSubscribers) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setThreadNamePrefix("portfolio-stream-");
+    executor.setCorePoolSize(senders);
+    executor.setMaxPoolSize(senders);
+    executor.setQueueCapacity(maxSubscribers);
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    return executor;
+  }
+}
@@ -0,0 +1,77 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
+
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * ReadWriteRoutingDataSource
+ *
+ * Routes connections of a read-only transaction to the replica, otherwise to
+ * the primary. Must be wrapped by a `LazyConnectionDataSourceProxy`, since the
+ * read-only flag is bound to the current thread after the transaction begins.
+ *
+ * A read which must not see a lagging replica (e.g. a cache refill right after
+ * a commit) is forced to the primary by `onPrimary`. Executors running parts of
+ * such a read carry it over to their tasks by `propagate`.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  public enum Route {
+    PRIMARY,
+    REPLICA
+  }
+
+  private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+  /**
+   * Run `reader` with its connections routed to the primary, read-only or not.
+   * Only effective if the reader fetches the transaction's first connection.
+   *
+   * @param reader
+   * @return
+   */
+  public static <T> T onPrimary(Supplier<T> reader) {
+    Boolean previous = PRIMARY_FORCED.get();
+    PRIMARY_FORCED.set(true);
+    try {
+      return reader.get();
+    } finally {
+      if (previous == null) {
+        PRIMARY_FORCED.remove();
+      } else {
+        PRIMARY_FORCED.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Task decorator: run `task` forced to the primary if the submitting thread
+   * is.
+   *
+   * @param task
+   * @return
+   */
+  public static Runnable propagate(Runnable task) {
+    if (PRIMARY_FORCED.get() == null) {
+      return task;
+    }
+
+    // restored afterwards, the task might run in the submitting thread
+    return () -> onPrimary(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (PRIMARY_FORCED.get() != null) {
+      return Route.PRIMARY;
+    }
+    return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        ? Route.REPLICA
+        : Route.PRIMARY;
+  }
+}
@@ -0,0 +1,100 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.expiry.ExpiryPolicy;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ReferenceCacheConfig
+ *
+ * Hibernate second-level cache (JCache, backed by Ehcache) of the read-mostly
+ * reference entities: `Promoter`, `IndustryInfo` and `PromotionPact`, which are
+ * eagerly fetched by pacts, promotion records and statistics, and of their
+ * lookup queries.
+ *
+ * Entries are invalidated by Hibernate when changed through this application.
+ * The `author` table is also written by other programs, hence every region is
+ * bounded by `reference-cache.size` entries and expires after
+ * `reference-cache.ttl` (seconds).
+ *
+ * Every application context has a cache manager of its own (e.g. test
+ * contexts), closed along with the context.
+ *
+ * Per-region hits/misses are published under
+ * `hibernate.second.level.cache.requests`, tagged by region (requires
+ * `hibernate.generate_statistics=true`).
+ */
+@Configuration
+public class ReferenceCacheConfig {
+
+  // Hibernate's own query cache regions
+  private static final String QUERY_RESULTS_REGION = "default-query-results-region";
+  private static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+  @Bean(destroyMethod = "close")
+  public CacheManager referenceCacheManager(
+      @Value("${reference-cache.size:1000}") long size,
+      @Value("${reference-cache.ttl:600}") long ttl) {
+    // identified by a unique URI, the provider's default manager would be shared
+    // by every context of the class loader
+    ClassLoader classLoader = getClass().getClassLoader();
+    EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching
+        .getCachingProvider(EhcacheCachingProvider.class.getName(), classLoader);
+    CacheManager cacheManager = provider.getCacheManager(
+        URI.create("urn:reference-cache:" + UUID.randomUUID()),
+        new DefaultConfiguration(classLoader));
+
+    List.of(
+        Constants.CACHE_REGION_PROMOTER,
+        Constants.CACHE_REGION_INDUSTRY_INFO,
+        Constants.CACHE_REGION_PROMOTION_PACT,
+        Constants.CACHE_REGION_REFERENCE_QUERIES,
+        QUERY_RESULTS_REGION)
+        .forEach(region -> createCache(
+            cacheManager,
+            region,
+            size,
+            ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttl))));
+
+    // last update time of each table, checked by cached queries. Must outlive
+    // the query results, hence never expires
+    createCache(cacheManager, UPDATE_TIMESTAMPS_REGION, size, ExpiryPolicyBuilder.noExpiration());
+
+    return cacheManager;
+  }
+
+  private static void createCache(
+      CacheManager cacheManager,
+      String region,
+      long size,
+      ExpiryPolicy<Object, Object> expiry) {
+    cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+        CacheConfigurationBuilder
+            .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(size))
+            .withExpiry(expiry)));
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer referenceCacheCustomizer(CacheManager referenceCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, referenceCacheManager);
+  }
+}
@@ -0,0 +1,97 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.RequestQueryCounter.RequestQueries;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * RequestMetricsConfig
+ *
+ * Per-request metrics complementing the latency of `http.server.requests`:
+ * the number of SQL statements of each request (see `RequestQueryCounter`) is
+ * published as the distribution `http.server.requests.queries`, tagged by
+ * method and uri (the handler's pattern).
+ *
+ * N+1 guard: a request exceeding `request-queries.warn-threshold` statements,
+ * or repeating a statement shape `request-queries.repeat-threshold` times, is
+ * logged with its repeated shapes. The request's `RequestQueries` are also
+ * left in its `QUERIES_ATTRIBUTE`, from which tests assert per-endpoint query
+ * budgets.
+ */
+@Configuration
+public class RequestMetricsConfig {
+
+  private static final Logger logger = LogManager.getLogger(RequestMetricsConfig.class);
+
+  public static final String QUERIES_SUMMARY = "http.server.requests.queries";
+
+  public static final String QUERIES_ATTRIBUTE = RequestMetricsConfig.class.getName() + ".queries";
+
+  private static final String UNKNOWN_URI = "UNKNOWN";
+
+  @Bean
+  public HibernatePropertiesCustomizer requestQueryCountCustomizer() {
+    StatementInspector inspector = sql -> {
+      RequestQueryCounter.increment(sql);
+      return sql;
+    };
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+  }
+
+  @Bean
+  public OncePerRequestFilter requestQueryCountFilter(
+      MeterRegistry meterRegistry,
+      @Value("${request-queries.warn-threshold:30}") int warnThreshold,
+      @Value("${request-queries.repeat-threshold:10}") int repeatThreshold) {
+    return new OncePerRequestFilter() {
+      @Override
+      protected void doFilterInternal(
+          HttpServletRequest request,
+          HttpServletResponse response,
+          FilterChain filterChain) throws ServletException, IOException {
+        RequestQueryCounter.start();
+        try {
+          filterChain.doFilter(request, response);
+        } finally {
+          RequestQueries queries = RequestQueryCounter.stop();
+          request.setAttribute(QUERIES_ATTRIBUTE, queries);
+
+          Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+          String uri = pattern == null ? UNKNOWN_URI : pattern.toString();
+          DistributionSummary
+              .builder(QUERIES_SUMMARY)
+              .description("SQL statements executed by a request")
+              .baseUnit("statements")
+              .tag("method", request.getMethod())
+              .tag("uri", uri)
+              .register(meterRegistry)
+              .record(queries.count());
+
+          if (queries.count() > warnThreshold || !queries.repeatedShapes(repeatThreshold).isEmpty()) {
+            // `logger` alone is the filter's own
+            RequestMetricsConfig.logger.warn("{} {} issued {}", request.getMethod(), uri, queries.describe());
+          }
+        }
+      }
+    };
+  }
+}
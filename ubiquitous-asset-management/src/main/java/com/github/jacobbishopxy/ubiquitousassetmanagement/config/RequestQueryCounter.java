@@ -0,0 +1,145 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.config;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * RequestQueryCounter
+ *
+ * Counts the SQL statements prepared by Hibernate on behalf of the current
+ * request: by the request thread, and by the tasks it submits to the service
+ * executors (see `ExecutorConfig`). A JDBC batch is prepared, hence counted,
+ * once.
+ *
+ * Statements are also counted per shape (the SQL with its `IN` lists
+ * collapsed), a shape repeated within a request being the mark of an N+1
+ * pattern, e.g. a lazy association or an EAGER `@ManyToOne` loaded row by row.
+ *
+ * Statements executed outside of a request (schedulers, startup) are not
+ * counted.
+ */
+public final class RequestQueryCounter {
+
+  private static final ThreadLocal<Counts> COUNTS = new ThreadLocal<>();
+
+  private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+  private static final Pattern IN_LIST = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+  private RequestQueryCounter() {
+  }
+
+  /**
+   * Statements of a request, `shapes` are the number of statements per shape.
+   */
+  public record RequestQueries(int count, Map<String, Integer> shapes) {
+
+    /**
+     * Shapes executed at least `threshold` times, most executed first.
+     *
+     * @param threshold
+     * @return
+     */
+    public Map<String, Integer> repeatedShapes(int threshold) {
+      return shapes
+          .entrySet()
+          .stream()
+          .filter(e -> e.getValue() >= threshold)
+          .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+          .collect(Collectors.toMap(
+              Map.Entry::getKey,
+              Map.Entry::getValue,
+              (a, b) -> a,
+              LinkedHashMap::new));
+    }
+
+    /**
+     * Multi-line description: the count, then the shapes executed more than
+     * once.
+     *
+     * @return
+     */
+    public String describe() {
+      StringBuilder sb = new StringBuilder();
+      sb.append(count).append(" statements");
+      repeatedShapes(2).forEach((shape, n) -> sb
+          .append(System.lineSeparator())
+          .append("  ").append(n).append(" x ").append(shape));
+      return sb.toString();
+    }
+  }
+
+  private static final class Counts {
+    private final AtomicInteger count = new AtomicInteger();
+    private final Map<String, AtomicInteger> shapes = new ConcurrentHashMap<>();
+
+    private void increment(String sql) {
+      count.incrementAndGet();
+      shapes.computeIfAbsent(shape(sql), k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private RequestQueries snapshot() {
+      return new RequestQueries(
+          count.get(),
+          shapes
+              .entrySet()
+              .stream()
+              .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().get())));
+    }
+  }
+
+  static void start() {
+    COUNTS.set(new Counts());
+  }
+
+  static RequestQueries stop() {
+    Counts counts = COUNTS.get();
+    COUNTS.remove();
+    return counts == null ? new RequestQueries(0, Map.of()) : counts.snapshot();
+  }
+
+  static void increment(String sql) {
+    Counts counts = COUNTS.get();
+    if (counts != null) {
+      counts.increment(sql);
+    }
+  }
+
+  static String shape(String sql) {
+    String s = WHITESPACES.matcher(sql.trim()).replaceAll(" ");
+    return IN_LIST.matcher(s).replaceAll("in (?...)");
+  }
+
+  /**
+   * Bind a task to the counter of the submitting thread, used as the task
+   * decorator of executors.
+   *
+   * @param task
+   * @return
+   */
+  public static Runnable propagate(Runnable task) {
+    Counts counts = COUNTS.get();
+    if (counts == null) {
+      return task;
+    }
+
+    return () -> {
+      // the task might run in the submitting thread (caller-runs policy)
+      Counts previous = COUNTS.get();
+      COUNTS.set(counts);
+      try {
+        task.run();
+      } finally {
+        if (previous == null) {
+          COUNTS.remove();
+        } else {
+          COUNTS.set(previous);
+        }
+      }
+    };
+  }
+}
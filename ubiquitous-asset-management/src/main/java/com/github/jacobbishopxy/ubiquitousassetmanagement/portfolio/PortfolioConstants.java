@@ -6,4 +6,10 @@ package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio;
 
 public class PortfolioConstants {
 
+  // ids allocated per sequence call, must equal the `INCREMENT BY` of the
+  // entities' sequences, and the block size of the database-side copies
+  // (`copyByARId`). Hibernate only batches inserts of entities whose ids are
+  // known before the insert (i.e. not `IDENTITY`)
+  public static final int ID_ALLOCATION_SIZE = 50;
+
 }
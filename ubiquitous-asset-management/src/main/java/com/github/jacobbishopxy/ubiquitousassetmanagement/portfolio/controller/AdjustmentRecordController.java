@@ -9,10 +9,12 @@ import java.util.List;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AdjustmentRecordService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AdjustmentRecordService.KeysetPage;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -32,23 +34,43 @@ public class AdjustmentRecordController {
   // =======================================================================
 
   @GetMapping("/adjustment_records")
-  @Operation(summary = "Get all adjustment records by pact id with pagination.")
-  List<AdjustmentRecord> getAdjustmentRecords(
+  @Operation(summary = "Get all adjustment records by pact id with pagination. Offset pagination if `page` is given, otherwise keyset pagination: the next page's token is returned in the `X-Continuation-Token` header.")
+  ResponseEntity<List<AdjustmentRecord>> getAdjustmentRecords(
       @RequestParam(value = "pact_id", required = true) Long pactId,
       @RequestParam(value = "is_adjusted", required = false) Boolean isAdjusted,
-      @RequestParam("page") Integer page,
-      @RequestParam("size") Integer size) {
+      @RequestParam(value = "page", required = false) Integer page,
+      @RequestParam(value = "size", required = false) Integer size,
+      @RequestParam(value = "continuation_token", required = false) String continuationToken) {
+
+    // keyset pagination
+    if (page == null && size != null) {
+      try {
+        KeysetPage kp = arService.getARSortDescAfter(
+            pactId, Boolean.TRUE.equals(isAdjusted), continuationToken, size);
+        return keysetResponse(kp);
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+      }
+    }
 
     PageRequest pr = null;
     if (page != null && size != null) {
       pr = PageRequest.of(page, size);
     }
 
-    if (isAdjusted == true) {
-      return arService.getARSortDescAndIsAdjustedTrue(pactId, pr);
+    if (Boolean.TRUE.equals(isAdjusted)) {
+      return ResponseEntity.ok(arService.getARSortDescAndIsAdjustedTrue(pactId, pr));
     }
 
-    return arService.getARSortDesc(pactId, pr);
+    return ResponseEntity.ok(arService.getARSortDesc(pactId, pr));
+  }
+
+  static ResponseEntity<List<AdjustmentRecord>> keysetResponse(KeysetPage kp) {
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    if (kp.continuationToken() != null) {
+      builder.header(Constants.CONTINUATION_TOKEN_HEADER, kp.continuationToken());
+    }
+    return builder.body(kp.records());
   }
 
   @GetMapping("/adjustment_record/item/{id}")
@@ -10,6 +10,8 @@ import java.util.stream.Collectors;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentInput;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdate;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdateResult;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentUpdate;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
 
@@ -100,25 +102,44 @@ public class ConstituentController {
   }
 
   @PatchMapping("/constituent/{id}")
-  @Operation(summary = "Update a constituent's price and related fields.")
+  @Operation(summary = "Update a constituent's price and related fields. `adjustment_record_id` is the record the constituent has been read from, if it may be inherited from another snapshot.")
   Constituent modifyConstituent(
       @PathVariable("id") Long id,
+      @RequestParam(value = "adjustment_record_id", required = false) Long adjustmentRecordId,
       @RequestBody ConstituentUpdate dto) {
     return constituentService
-        .modifyConstituent(id, dto)
+        .modifyConstituent(id, adjustmentRecordId, dto)
         .orElseThrow(() -> new ResponseStatusException(
             HttpStatus.NOT_FOUND, String.format("Constituent for id: %s not found", id)));
   }
 
+  @PatchMapping("/constituents/prices")
+  @Operation(summary = "Bulk update prices of all unsettled constituents by symbol, and recalculate their performances.")
+  ConstituentPriceUpdateResult updateUnsettledPrices(@RequestBody List<ConstituentPriceUpdate> dto) {
+    if (dto == null || dto.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "prices cannot be empty");
+    }
+
+    try {
+      return constituentService.updateUnsettledPrices(dto);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
   @DeleteMapping("/constituent/{id}")
-  @Operation(summary = "Delete constituent.")
-  void deleteConstituent(@PathVariable("id") Long id) {
-    constituentService.deleteConstituent(id);
+  @Operation(summary = "Delete constituent. `adjustment_record_id` is the record the constituent has been read from, if it may be inherited from another snapshot.")
+  void deleteConstituent(
+      @PathVariable("id") Long id,
+      @RequestParam(value = "adjustment_record_id", required = false) Long adjustmentRecordId) {
+    constituentService.deleteConstituent(id, adjustmentRecordId);
   }
 
   @DeleteMapping("/constituents")
-  @Operation(summary = "Delete multiple constituents.")
-  void deleteConstituents(@RequestBody List<Long> ids) {
-    constituentService.deleteConstituents(ids);
+  @Operation(summary = "Delete multiple constituents. `adjustment_record_id` is the record the constituents have been read from, if they may be inherited from another snapshot.")
+  void deleteConstituents(
+      @RequestBody List<Long> ids,
+      @RequestParam(value = "adjustment_record_id", required = false) Long adjustmentRecordId) {
+    constituentService.deleteConstituents(ids, adjustmentRecordId);
   }
 }
@@ -4,20 +4,41 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.controller;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AccumulatedPerformanceDrift;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDiff;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioPeriodReturn;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioTimeseriesPoint;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.BatchSettlePortfolio;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolio;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioBatchService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioDiffService;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioSettleJobService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioStreamService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioTimeseriesService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -30,6 +51,24 @@ public class PortfolioController {
   @Autowired
   private PortfolioService portfolioService;
 
+  @Autowired
+  private PortfolioBatchService portfolioBatchService;
+
+  @Autowired
+  private PortfolioTimeseriesService portfolioTimeseriesService;
+
+  @Autowired
+  private PortfolioDiffService portfolioDiffService;
+
+  @Autowired
+  private PortfolioSettleJobService portfolioSettleJobService;
+
+  @Autowired
+  private PortfolioStreamService portfolioStreamService;
+
+  @Value("${portfolio.settle-job.stream-timeout:600000}")
+  private long settleJobStreamTimeout;
+
   // =======================================================================
   // Query methods
   // =======================================================================
@@ -41,6 +80,34 @@ public class PortfolioController {
     return portfolioService.getPortfolioOverviews(isActivate);
   }
 
+  @GetMapping("/portfolio_overviews/search")
+  @Operation(summary = "Get portfolio overviews filtered by active flag, promoter and industry, optionally paged.")
+  List<PortfolioOverview> searchPortfolioOverviews(
+      @RequestParam(value = "is_active", required = false) Boolean isActive,
+      @RequestParam(value = "promoter_email", required = false) String promoterEmail,
+      @RequestParam(value = "industry_info_id", required = false) Integer industryInfoId,
+      @RequestParam(value = "page", required = false) Integer page,
+      @RequestParam(value = "size", required = false) Integer size) {
+
+    Pageable pr = Pageable.unpaged();
+    if (page != null && size != null) {
+      pr = PageRequest.of(page, size);
+    }
+
+    return portfolioService.getPortfolioOverviews(isActive, promoterEmail, industryInfoId, pr);
+  }
+
+  @GetMapping(value = "/portfolio_overviews/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(summary = "Stream portfolio overviews of the given pacts (all pacts if none): a `snapshot` event, then a `delta` event whenever overviews change.")
+  SseEmitter streamPortfolioOverviews(
+      @RequestParam(value = "pact_ids", required = false) List<Long> pactIds) {
+    try {
+      return portfolioStreamService.subscribe(pactIds);
+    } catch (TaskRejectedException e) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many stream subscribers, retry later");
+    }
+  }
+
   @GetMapping("/portfolio_overview")
   @Operation(summary = "Get portfolio overview by id.")
   PortfolioOverview getPortfolioOverview(
@@ -52,19 +119,31 @@ public class PortfolioController {
   }
 
   @GetMapping("/portfolio_adjustment_records")
-  @Operation(summary = "Get all adjustment records by pact id.")
-  List<AdjustmentRecord> getAdjustmentRecordsByPactId(
+  @Operation(summary = "Get all adjustment records by pact id. Offset pagination if `page` is given, otherwise keyset pagination if `size` is given: the next page's token is returned in the `X-Continuation-Token` header.")
+  ResponseEntity<List<AdjustmentRecord>> getAdjustmentRecordsByPactId(
       @RequestParam(value = "pact_id", required = true) Long pactId,
       @RequestParam(value = "is_adjusted", required = false) Boolean isAdjusted,
       @RequestParam(value = "page", required = false) Integer page,
-      @RequestParam(value = "size", required = false) Integer size) {
+      @RequestParam(value = "size", required = false) Integer size,
+      @RequestParam(value = "continuation_token", required = false) String continuationToken) {
+
+    // keyset pagination
+    if (page == null && size != null) {
+      try {
+        return AdjustmentRecordController.keysetResponse(
+            portfolioService.getAdjustmentRecordsByPactId(pactId, Boolean.TRUE.equals(isAdjusted),
+                continuationToken, size));
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+      }
+    }
 
     PageRequest pr = null;
     if (page != null && size != null) {
       pr = PageRequest.of(page, size);
     }
 
-    return portfolioService.getAdjustmentRecordsByPactId(pactId, pr, isAdjusted);
+    return ResponseEntity.ok(portfolioService.getAdjustmentRecordsByPactId(pactId, pr, isAdjusted));
   }
 
   @GetMapping("/portfolio_detail/unsettled")
@@ -89,6 +168,47 @@ public class PortfolioController {
 
   }
 
+  @GetMapping("/portfolio_timeseries")
+  @Operation(summary = "Get per-settlement and accumulated performances of a pact, in adjust date/version order.")
+  List<PortfolioTimeseriesPoint> getPortfolioTimeseries(
+      @RequestParam(value = "pact_id", required = true) Long pactId) {
+    return portfolioTimeseriesService.getTimeseries(pactId);
+  }
+
+  @GetMapping("/portfolio_timeseries/return")
+  @Operation(summary = "Get the return of a pact, either over a period (1M, 3M, 6M, 1Y, YTD), between two dates, or between two adjustment records.")
+  PortfolioPeriodReturn getPortfolioReturn(
+      @RequestParam(value = "pact_id", required = true) Long pactId,
+      @RequestParam(value = "period", required = false) String period,
+      @RequestParam(value = "from_date", required = false) @DateTimeFormat(pattern = Constants.DATE_FORMAT) LocalDate fromDate,
+      @RequestParam(value = "to_date", required = false) @DateTimeFormat(pattern = Constants.DATE_FORMAT) LocalDate toDate,
+      @RequestParam(value = "from_adjustment_record_id", required = false) Long fromAdjustmentRecordId,
+      @RequestParam(value = "to_adjustment_record_id", required = false) Long toAdjustmentRecordId) {
+    try {
+      if (toAdjustmentRecordId != null) {
+        return portfolioTimeseriesService.getReturn(pactId, fromAdjustmentRecordId, toAdjustmentRecordId);
+      }
+      if (period != null) {
+        return portfolioTimeseriesService.getPeriodReturn(pactId, period, toDate);
+      }
+      return portfolioTimeseriesService.getReturn(pactId, fromDate, toDate);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  @GetMapping("/portfolio_diff")
+  @Operation(summary = "Get joined, left, increased and decreased constituents between two adjustment records, of the same pact or not.")
+  PortfolioDiff getPortfolioDiff(
+      @RequestParam(value = "from_adjustment_record_id", required = true) Long fromAdjustmentRecordId,
+      @RequestParam(value = "to_adjustment_record_id", required = true) Long toAdjustmentRecordId) {
+    try {
+      return portfolioDiffService.getDiff(fromAdjustmentRecordId, toAdjustmentRecordId);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
   // =======================================================================
   // Mutation methods
   // =======================================================================
@@ -101,10 +221,91 @@ public class PortfolioController {
         portfolioSettle.settlementDate());
   }
 
+  @PostMapping("/portfolio_action/batch_settle")
+  @Operation(summary = "Settle many portfolios (by pact ids or all active ones), each pact succeeds or fails independently.")
+  List<SettlePortfolioResult> batchSettlePortfolios(@RequestBody BatchSettlePortfolio batchSettle) {
+    return portfolioBatchService.batchSettle(
+        batchSettle.pactIds(),
+        checkBatchSettle(batchSettle),
+        batchSettle.settlementDate());
+  }
+
+  @PostMapping("/portfolio_action/settle_job")
+  @Operation(summary = "Submit a settlement job (same body as `batch_settle`), whose status is then polled or streamed. Pacts already being settled by another job at the same date are skipped, at another date the job is rejected.")
+  ResponseEntity<SettleJobStatus> submitSettleJob(@RequestBody BatchSettlePortfolio batchSettle) {
+    boolean isAllActive = checkBatchSettle(batchSettle);
+    try {
+      return ResponseEntity
+          .status(HttpStatus.ACCEPTED)
+          .body(portfolioSettleJobService.submit(batchSettle.pactIds(), isAllActive, batchSettle.settlementDate()));
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+    } catch (TaskRejectedException e) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many settlement jobs, retry later");
+    }
+  }
+
+  @GetMapping("/portfolio_action/settle_job/{id}")
+  @Operation(summary = "Get the status of a settlement job, and its results once finished.")
+  SettleJobStatus getSettleJob(@PathVariable String id) {
+    return portfolioSettleJobService
+        .getJob(id)
+        .orElseThrow(() -> new ResponseStatusException(
+            HttpStatus.NOT_FOUND, String.format("Settle job id: %s not found", id)));
+  }
+
+  @GetMapping(value = "/portfolio_action/settle_job/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @Operation(summary = "Stream the status of a settlement job: its current status, then its final status (with results) once finished.")
+  SseEmitter streamSettleJob(@PathVariable String id) {
+    SettleJobStatus status = getSettleJob(id);
+    SseEmitter emitter = new SseEmitter(settleJobStreamTimeout);
+    try {
+      emitter.send(SseEmitter.event().name("status").data(status));
+    } catch (IOException e) {
+      emitter.completeWithError(e);
+      return emitter;
+    }
+    if (status.status().isFinished()) {
+      emitter.complete();
+      return emitter;
+    }
+
+    portfolioSettleJobService
+        .whenFinished(id)
+        .ifPresent(done -> done.thenAccept(finished -> {
+          try {
+            emitter.send(SseEmitter.event().name("status").data(finished));
+            emitter.complete();
+          } catch (IOException e) {
+            emitter.completeWithError(e);
+          }
+        }));
+    return emitter;
+  }
+
   @DeleteMapping("/portfolio_action/settle")
   @Operation(summary = "Cancel a portfolio settlement.")
   void cancelSettlePortfolio(@RequestParam("pact_id") Long pactId) {
     portfolioService.cancelSettle(pactId);
   }
 
+  @PostMapping("/portfolio_action/reconcile")
+  @Operation(summary = "Fully recalculate accumulated performances, and report drifted ones.")
+  List<AccumulatedPerformanceDrift> reconcileAccumulatedPerformances() {
+    return portfolioService.reconcileAccumulatedPerformances();
+  }
+
+  // validates a batch settle request, and returns whether all active pacts are
+  // settled
+  private static boolean checkBatchSettle(BatchSettlePortfolio batchSettle) {
+    boolean isAllActive = batchSettle.isAllActive() != null && batchSettle.isAllActive();
+    if (!isAllActive && (batchSettle.pactIds() == null || batchSettle.pactIds().isEmpty())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Either pactIds or isAllActive is required");
+    }
+    if (batchSettle.settlementDate() == null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "settlementDate is required");
+    }
+    return isAllActive;
+  }
+
 }
@@ -47,6 +47,17 @@ public class AccumulatedPerformance {
   @Schema(description = "The total number of the adjustments", required = true)
   private Integer adjustCount;
 
+  // product of `(1 + portfolioEarningsYield)` over all settled performances,
+  // null means unknown and a full recalculation is required
+  @Column(nullable = true)
+  @JsonIgnore
+  private Double settledPortfolioProduct;
+
+  // product of `(1 + benchmarkEarningsYield)` over all settled performances
+  @Column(nullable = true)
+  @JsonIgnore
+  private Double settledBenchmarkProduct;
+
   // =======================================================================
   // Constructors
   // =======================================================================
@@ -125,4 +136,20 @@ public class AccumulatedPerformance {
     this.adjustCount = adjustCount;
   }
 
+  public Double getSettledPortfolioProduct() {
+    return settledPortfolioProduct;
+  }
+
+  public void setSettledPortfolioProduct(Double settledPortfolioProduct) {
+    this.settledPortfolioProduct = settledPortfolioProduct;
+  }
+
+  public Double getSettledBenchmarkProduct() {
+    return settledBenchmarkProduct;
+  }
+
+  public void setSettledBenchmarkProduct(Double settledBenchmarkProduct) {
+    this.settledBenchmarkProduct = settledBenchmarkProduct;
+  }
+
 }
@@ -7,6 +7,7 @@ package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain;
 import java.time.LocalTime;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.obj.AdjustmentOperation;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.obj.AdjustmentOperationPgEnum;
 
@@ -33,8 +34,8 @@ public class AdjustmentInfo {
   // =======================================================================
 
   @Id
-  @Column(columnDefinition = "serial")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @SequenceGenerator(name = "portfolio_adjustment_info_id_seq", sequenceName = "portfolio_adjustment_info_id_seq", allocationSize = PortfolioConstants.ID_ALLOCATION_SIZE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_adjustment_info_id_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.EAGER)
@@ -7,6 +7,7 @@ package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain;
 import java.time.LocalDate;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
 
 import javax.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -19,6 +20,11 @@ import io.swagger.v3.oas.annotations.media.Schema;
     @UniqueConstraint(name = "unique_pact_id_adj_date_version", columnNames = { "portfolio_pact_id", "adjustDate",
         "adjustVersion" }),
     @UniqueConstraint(name = "unique_pact_id_is_unsettled", columnNames = { "portfolio_pact_id", "isUnsettled" })
+}, indexes = {
+    // keyset pagination of a pact's history
+    @Index(name = "idx_pact_id_adj_date_version_id", columnList = "portfolio_pact_id, adjustDate, adjustVersion, id"),
+    // delta snapshots based on a record
+    @Index(name = "idx_snapshot_base_id", columnList = "snapshotBaseId")
 })
 @Schema(name = "PortfolioAdjustmentRecord", description = "Portfolio adjustment record. Used to record each settlement or current unsettled status (adjustVersion = 0) of a portfolio.")
 public class AdjustmentRecord {
@@ -27,8 +33,8 @@ public class AdjustmentRecord {
   // =======================================================================
 
   @Id
-  @Column(columnDefinition = "serial")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @SequenceGenerator(name = "portfolio_adjustment_record_id_seq", sequenceName = "portfolio_adjustment_record_id_seq", allocationSize = PortfolioConstants.ID_ALLOCATION_SIZE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_adjustment_record_id_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.LAZY)
@@ -49,6 +55,17 @@ public class AdjustmentRecord {
   @Column(nullable = true)
   private Boolean isAdjusted;
 
+  // a settled record whose constituents are stored as a delta against this
+  // parent record, null if stored in full
+  @Column(nullable = true)
+  @JsonIgnore
+  private Long snapshotBaseId;
+
+  // number of deltas to resolve down to a full snapshot, null if stored in full
+  @Column(nullable = true)
+  @JsonIgnore
+  private Integer snapshotDepth;
+
   // =======================================================================
   // Constructors
   // =======================================================================
@@ -126,4 +143,25 @@ public class AdjustmentRecord {
     this.isAdjusted = isAdjusted;
   }
 
+  public Long getSnapshotBaseId() {
+    return snapshotBaseId;
+  }
+
+  public void setSnapshotBaseId(Long snapshotBaseId) {
+    this.snapshotBaseId = snapshotBaseId;
+  }
+
+  public Integer getSnapshotDepth() {
+    return snapshotDepth;
+  }
+
+  public void setSnapshotDepth(Integer snapshotDepth) {
+    this.snapshotDepth = snapshotDepth;
+  }
+
+  @JsonIgnore
+  public boolean isDeltaSnapshot() {
+    return snapshotBaseId != null;
+  }
+
 }
@@ -11,6 +11,7 @@ import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -24,8 +25,8 @@ public class Benchmark {
   // =======================================================================
 
   @Id
-  @Column(columnDefinition = "serial")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @SequenceGenerator(name = "portfolio_benchmark_id_seq", sequenceName = "portfolio_benchmark_id_seq", allocationSize = PortfolioConstants.ID_ALLOCATION_SIZE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_benchmark_id_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.EAGER)
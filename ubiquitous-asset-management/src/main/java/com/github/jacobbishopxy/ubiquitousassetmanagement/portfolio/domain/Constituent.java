@@ -8,6 +8,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
@@ -23,8 +24,8 @@ public class Constituent {
   // =======================================================================
 
   @Id
-  @Column(columnDefinition = "serial")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @SequenceGenerator(name = "portfolio_constituent_id_seq", sequenceName = "portfolio_constituent_id_seq", allocationSize = PortfolioConstants.ID_ALLOCATION_SIZE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_constituent_id_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.EAGER)
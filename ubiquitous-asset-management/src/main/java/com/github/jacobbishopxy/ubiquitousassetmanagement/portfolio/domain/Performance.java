@@ -7,6 +7,9 @@ package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain;
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
 
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -20,8 +23,8 @@ public class Performance {
   // =======================================================================
 
   @Id
-  @Column(columnDefinition = "serial")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @SequenceGenerator(name = "portfolio_performance_id_seq", sequenceName = "portfolio_performance_id_seq", allocationSize = PortfolioConstants.ID_ALLOCATION_SIZE)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_performance_id_seq")
   private Long id;
 
   @ManyToOne(fetch = FetchType.EAGER)
@@ -42,6 +45,18 @@ public class Performance {
   @Schema(description = "The difference between custom portfolio and benchmark.", required = true)
   private Float alpha;
 
+  // prefix product index: product of `(1 + portfolioEarningsYield)` over the
+  // pact's settled performances up to this one (in adjust date/version order).
+  // Null for the unsettled performance, or when not yet indexed
+  @Column(nullable = true)
+  @JsonIgnore
+  private Double portfolioProductIndex;
+
+  // prefix product index of `(1 + benchmarkEarningsYield)`
+  @Column(nullable = true)
+  @JsonIgnore
+  private Double benchmarkProductIndex;
+
   // =======================================================================
   // Constructors
   // =======================================================================
@@ -67,6 +82,8 @@ public class Performance {
     this.portfolioEarningsYield = source.portfolioEarningsYield;
     this.benchmarkEarningsYield = source.benchmarkEarningsYield;
     this.alpha = source.alpha;
+    this.portfolioProductIndex = source.portfolioProductIndex;
+    this.benchmarkProductIndex = source.benchmarkProductIndex;
   }
 
   // =======================================================================
@@ -112,4 +129,20 @@ public class Performance {
   public void setAlpha(Float alpha) {
     this.alpha = alpha;
   }
+
+  public Double getPortfolioProductIndex() {
+    return portfolioProductIndex;
+  }
+
+  public void setPortfolioProductIndex(Double portfolioProductIndex) {
+    this.portfolioProductIndex = portfolioProductIndex;
+  }
+
+  public Double getBenchmarkProductIndex() {
+    return benchmarkProductIndex;
+  }
+
+  public void setBenchmarkProductIndex(Double benchmarkProductIndex) {
+    this.benchmarkProductIndex = benchmarkProductIndex;
+  }
 }
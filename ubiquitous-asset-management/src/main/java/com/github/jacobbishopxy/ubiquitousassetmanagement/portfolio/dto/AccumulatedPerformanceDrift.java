@@ -0,0 +1,30 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioAccumulatedPerformanceDrift", description = "Difference between the stored and the fully recalculated accumulated performance of a pact")
+public record AccumulatedPerformanceDrift(
+		Long pactId,
+		Float storedPortfolioEarningsYield,
+		Float reconciledPortfolioEarningsYield,
+		Float storedBenchmarkEarningsYield,
+		Float reconciledBenchmarkEarningsYield,
+		Float storedAlpha,
+		Float reconciledAlpha) {
+
+	public Float maxAbsoluteDrift() {
+		return Math.max(
+				Math.max(
+						diff(storedPortfolioEarningsYield, reconciledPortfolioEarningsYield),
+						diff(storedBenchmarkEarningsYield, reconciledBenchmarkEarningsYield)),
+				diff(storedAlpha, reconciledAlpha));
+	}
+
+	private static float diff(Float stored, Float reconciled) {
+		if (stored == null || reconciled == null) {
+			return stored == reconciled ? 0f : Float.POSITIVE_INFINITY;
+		}
+		return Math.abs(stored - reconciled);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+
+/**
+ * Keyset position of an adjustment record in (adjustDate DESC, adjustVersion
+ * DESC, id DESC) order, exchanged with clients as an opaque continuation token.
+ *
+ * @param adjustDate:    null for the unsettled record, which always comes first
+ * @param adjustVersion
+ * @param id
+ */
+public record AdjustmentRecordCursor(
+		LocalDate adjustDate,
+		Integer adjustVersion,
+		Long id) {
+
+	private static final String SEPARATOR = "|";
+
+	public static AdjustmentRecordCursor of(AdjustmentRecord ar) {
+		return new AdjustmentRecordCursor(ar.getAdjustDate(), ar.getAdjustVersion(), ar.getId());
+	}
+
+	public boolean isUnsettled() {
+		return adjustDate == null;
+	}
+
+	public String encode() {
+		String raw = String.join(
+				SEPARATOR,
+				adjustDate == null ? "" : adjustDate.toString(),
+				adjustVersion == null ? "" : adjustVersion.toString(),
+				id.toString());
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static AdjustmentRecordCursor decode(String token) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] parts = raw.split("\\|", -1);
+			if (parts.length != 3) {
+				throw new IllegalArgumentException();
+			}
+			return new AdjustmentRecordCursor(
+					parts[0].isEmpty() ? null : LocalDate.parse(parts[0]),
+					parts[1].isEmpty() ? null : Integer.valueOf(parts[1]),
+					Long.valueOf(parts[2]));
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid continuation token: " + token);
+		}
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioConstituentPriceUpdate", description = "Market data of a symbol, applied to all unsettled constituents holding it. Null fields are left unchanged.")
+public record ConstituentPriceUpdate(
+		@Schema(required = true) String symbol,
+		Float currentPrice,
+		Float currentFactor,
+		Float earningsYield,
+		Float pbpe,
+		Float marketValue) {
+
+	public boolean isEmpty() {
+		return currentPrice == null &&
+				currentFactor == null &&
+				earningsYield == null &&
+				pbpe == null &&
+				marketValue == null;
+	}
+
+}
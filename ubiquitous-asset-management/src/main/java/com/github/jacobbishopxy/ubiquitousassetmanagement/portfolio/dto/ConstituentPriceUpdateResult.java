@@ -0,0 +1,12 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioConstituentPriceUpdateResult", description = "Result of a bulk market data ingestion")
+public record ConstituentPriceUpdateResult(
+		@Schema(description = "Number of updated constituents.") Integer updatedConstituents,
+		@Schema(description = "Unsettled adjustment records whose performance has been recalculated.") List<Long> adjustmentRecordIds) {
+
+}
@@ -0,0 +1,13 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioDiff", description = "Constituent changes between two adjustment records, of the same pact or not")
+public record PortfolioDiff(
+		Long fromAdjustmentRecordId,
+		Long toAdjustmentRecordId,
+		@Schema(description = "In symbol order.") List<PortfolioDiffEntry> entries) {
+
+}
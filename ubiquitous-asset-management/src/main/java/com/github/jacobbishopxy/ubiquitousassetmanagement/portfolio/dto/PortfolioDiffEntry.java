@@ -0,0 +1,26 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.obj.AdjustmentOperation;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioDiffEntry", description = "A constituent joined, left, increased or decreased between two snapshots")
+public record PortfolioDiffEntry(
+		String symbol,
+		String abbreviation,
+		AdjustmentOperation operation,
+		Float previousStaticWeight,
+		Float currentStaticWeight,
+		Float staticWeightChange) {
+
+	public static PortfolioDiffEntry fromAdjustmentInfo(AdjustmentInfo ai) {
+		return new PortfolioDiffEntry(
+				ai.getSymbol(),
+				ai.getAbbreviation(),
+				ai.getOperation(),
+				ai.getPreviousStaticWeight(),
+				ai.getCurrentStaticWeight(),
+				ai.getStaticWeight());
+	}
+}
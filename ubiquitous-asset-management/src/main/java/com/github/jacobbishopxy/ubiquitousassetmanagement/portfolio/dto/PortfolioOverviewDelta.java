@@ -0,0 +1,12 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioOverviewDelta", description = "Portfolio overviews changed since the previous event of a stream")
+public record PortfolioOverviewDelta(
+		@Schema(description = "Latest overviews of the changed pacts.") List<PortfolioOverview> overviews,
+		@Schema(description = "Pacts which no longer have an overview (deleted, or without unsettled adjustment record).") List<Long> removedPactIds) {
+
+}
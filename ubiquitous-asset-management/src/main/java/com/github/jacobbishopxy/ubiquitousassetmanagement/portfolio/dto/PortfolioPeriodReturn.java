@@ -0,0 +1,14 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioPeriodReturn", description = "Compounded performance between two adjustment records of a pact")
+public record PortfolioPeriodReturn(
+		Long pactId,
+		@Schema(description = "The base adjustment record, null means the pact's inception.") Long fromAdjustmentRecordId,
+		@Schema(description = "The end adjustment record, null means no settlement yet.") Long toAdjustmentRecordId,
+		Float portfolioEarningsYield,
+		Float benchmarkEarningsYield,
+		Float alpha) {
+
+}
@@ -0,0 +1,23 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto;
+
+import java.time.LocalDate;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+@Schema(name = "PortfolioTimeseriesPoint", description = "Performance of a settlement (or the unsettled record), and the accumulated performance up to it")
+public record PortfolioTimeseriesPoint(
+		Long adjustmentRecordId,
+		@JsonFormat(pattern = Constants.DATE_FORMAT) LocalDate adjustDate,
+		Integer adjustVersion,
+		Boolean isUnsettled,
+		Float portfolioEarningsYield,
+		Float benchmarkEarningsYield,
+		Float alpha,
+		Float accumulatedPortfolioEarningsYield,
+		Float accumulatedBenchmarkEarningsYield,
+		Float accumulatedAlpha) {
+
+}
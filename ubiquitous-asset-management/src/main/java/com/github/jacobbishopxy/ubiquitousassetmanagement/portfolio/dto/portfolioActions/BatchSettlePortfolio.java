@@ -0,0 +1,17 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+@Schema(name = "PortfolioActionBatchSettle", description = "Settle many portfolios, either by pact ids or all active pacts")
+public record BatchSettlePortfolio(
+		List<Long> pactIds,
+		Boolean isAllActive,
+		@JsonFormat(pattern = Constants.DATE_FORMAT) LocalDate settlementDate) {
+
+}
@@ -0,0 +1,38 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+@Schema(name = "PortfolioActionSettleJobStatus", description = "Status of an asynchronous settlement job")
+public record SettleJobStatus(
+		String jobId,
+		Status status,
+		@JsonFormat(pattern = Constants.DATE_FORMAT) LocalDate settlementDate,
+		@Schema(description = "Pacts settled by this job.") List<Long> pactIds,
+		@Schema(description = "Requested pacts already being settled by another job, by pact id.") Map<Long, String> duplicatedPactJobIds,
+		@JsonFormat(pattern = Constants.DATETIME_FORMAT) LocalDateTime submittedAt,
+		@JsonFormat(pattern = Constants.DATETIME_FORMAT) LocalDateTime startedAt,
+		@JsonFormat(pattern = Constants.DATETIME_FORMAT) LocalDateTime finishedAt,
+		@Schema(description = "A result per settled pact, once the job has succeeded.") List<SettlePortfolioResult> results,
+		String error) {
+
+	public enum Status {
+		QUEUED,
+		RUNNING,
+		// every pact has been tried, see each result
+		SUCCEEDED,
+		FAILED;
+
+		public boolean isFinished() {
+			return this == SUCCEEDED || this == FAILED;
+		}
+	}
+
+}
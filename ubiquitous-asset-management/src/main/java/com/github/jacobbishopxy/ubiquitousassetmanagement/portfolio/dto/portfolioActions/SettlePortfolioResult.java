@@ -0,0 +1,31 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(name = "PortfolioActionSettleResult", description = "Result of a single portfolio settlement")
+public record SettlePortfolioResult(
+		Long pactId,
+		Boolean isSuccess,
+		@Schema(description = "The adjustment record which has been settled.") Long settledAdjustmentRecordId,
+		@Schema(description = "The new unsettled adjustment record.") Long unsettledAdjustmentRecordId,
+		Boolean isAdjusted,
+		String error) {
+
+	public static SettlePortfolioResult fromSettledDetail(Long pactId, Long settledAdjustmentRecordId,
+			PortfolioDetail detail) {
+		return new SettlePortfolioResult(
+				pactId,
+				true,
+				settledAdjustmentRecordId,
+				detail.adjustmentRecord().getId(),
+				detail.adjustmentRecord().getIsAdjusted(),
+				null);
+	}
+
+	public static SettlePortfolioResult fromError(Long pactId, String error) {
+		return new SettlePortfolioResult(pactId, false, null, null, null, error);
+	}
+
+}
@@ -10,6 +10,7 @@ import java.util.Optional;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface AccumulatedPerformanceRepository extends JpaRepository<AccumulatedPerformance, Long> {
 
@@ -17,4 +18,7 @@ public interface AccumulatedPerformanceRepository extends JpaRepository<Accumula
 
   List<AccumulatedPerformance> findByPactIdIn(List<Long> pactId);
 
+  @Query("SELECT ap.pact.id FROM AccumulatedPerformance ap ORDER BY ap.pact.id")
+  List<Long> findAllPactIds();
+
 }
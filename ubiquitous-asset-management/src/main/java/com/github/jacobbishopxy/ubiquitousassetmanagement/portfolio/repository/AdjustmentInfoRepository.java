@@ -15,6 +15,7 @@ import org.springframework.data.repository.query.Param;
 public interface AdjustmentInfoRepository
     extends JpaRepository<AdjustmentInfo, Long>, JpaSpecificationExecutor<AdjustmentInfo> {
 
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<AdjustmentInfo> findByAdjustmentRecordId(Long adjustmentRecordId);
 
   // TODO:
@@ -4,6 +4,7 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,12 +26,34 @@ public interface AdjustmentRecordRepository
 	@Query(value = queryIdsByPactId)
 	List<Long> findIdsByPactId(@Param("pactId") Long pactId);
 
+	// ids only: unlike entities, not affected by instances already loaded in the
+	// persistence context
+	final String queryUnsettledIdsByPactId = """
+			SELECT ar.id
+			FROM AdjustmentRecord ar
+			WHERE ar.pact.id = :pactId
+			AND ar.isUnsettled = true
+			""";
+
+	@Query(value = queryUnsettledIdsByPactId)
+	List<Long> findUnsettledIdsByPactId(@Param("pactId") Long pactId);
+
+	// ids only, taken before the pact is locked
+	final String queryPactIdById = """
+			SELECT ar.pact.id
+			FROM AdjustmentRecord ar
+			WHERE ar.id = :id
+			""";
+
+	@Query(value = queryPactIdById)
+	Optional<Long> findPactIdById(@Param("id") Long id);
+
 	// sort by adjust_date desc and adjust_version desc
 	final String queryDescSort = """
 			SELECT p
 			FROM AdjustmentRecord p
 			WHERE p.pact.id = ?1
-			ORDER BY p.adjustDate DESC, p.adjustVersion DESC
+			ORDER BY p.adjustDate DESC, p.adjustVersion DESC, p.id DESC
 			""";
 
 	@Query(value = queryDescSort)
@@ -43,12 +66,52 @@ public interface AdjustmentRecordRepository
 			FROM AdjustmentRecord ar
 			WHERE ar.pact.id = ?1
 			AND (ar.isAdjusted = true OR ar.isUnsettled = true)
-			ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC
+			ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC, ar.id DESC
 			""";
 
 	@Query(value = queryDescSortAndIsAdjusted)
 	List<AdjustmentRecord> findByPactIdDescSortAndIsAdjustedTrue(Long pactId, Pageable pageable);
 
+	// keyset pagination: settled records after the unsettled one (which has no
+	// adjust date, and is the first in descending order)
+	final String querySettledDescSort = """
+			SELECT ar
+			FROM AdjustmentRecord ar
+			WHERE ar.pact.id = :pactId
+			AND ar.adjustDate IS NOT NULL
+			AND (:isAdjustedOnly = false OR ar.isAdjusted = true)
+			ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC, ar.id DESC
+			""";
+
+	@Query(value = querySettledDescSort)
+	List<AdjustmentRecord> findSettledByPactIdDescSort(
+			@Param("pactId") Long pactId,
+			@Param("isAdjustedOnly") boolean isAdjustedOnly,
+			Pageable pageable);
+
+	// keyset pagination: records after (adjustDate, adjustVersion, id)
+	final String queryDescSortAfter = """
+			SELECT ar
+			FROM AdjustmentRecord ar
+			WHERE ar.pact.id = :pactId
+			AND (:isAdjustedOnly = false OR ar.isAdjusted = true)
+			AND (
+			  ar.adjustDate < :adjustDate
+			  OR (ar.adjustDate = :adjustDate AND ar.adjustVersion < :adjustVersion)
+			  OR (ar.adjustDate = :adjustDate AND ar.adjustVersion = :adjustVersion AND ar.id < :id)
+			)
+			ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC, ar.id DESC
+			""";
+
+	@Query(value = queryDescSortAfter)
+	List<AdjustmentRecord> findByPactIdDescSortAfter(
+			@Param("pactId") Long pactId,
+			@Param("isAdjustedOnly") boolean isAdjustedOnly,
+			@Param("adjustDate") LocalDate adjustDate,
+			@Param("adjustVersion") Integer adjustVersion,
+			@Param("id") Long id,
+			Pageable pageable);
+
 	final String queryUnsettledByPactId = """
 			SELECT p
 			FROM AdjustmentRecord p
@@ -115,6 +178,8 @@ public interface AdjustmentRecordRepository
 	@Query(value = findAllRecordIdsByPactId)
 	List<Long> findAllRecordIdsByPactId(Long pactId);
 
+	List<AdjustmentRecord> findBySnapshotBaseId(Long snapshotBaseId);
+
 	final String deleteAllRecordsByPactId = """
 			DELETE AdjustmentRecord ar WHERE ar.pact.id = :pactId
 			""";
@@ -4,6 +4,7 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
@@ -14,14 +15,28 @@ import org.springframework.data.repository.query.Param;
 public interface BenchmarkRepository
     extends JpaRepository<Benchmark, Long>, JpaSpecificationExecutor<Benchmark> {
 
+  // the EAGER adjustment record is fetched by the same query, instead of a
+  // select per persistence context (detail parts are fetched concurrently)
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<Benchmark> findByAdjustmentRecordId(Long adjustmentRecordId);
 
   void deleteByAdjustmentRecordId(Long adjustmentRecordId);
 
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<Benchmark> findByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
   void deleteByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
+  // ids only, taken before the pacts are locked
+  final String queryPactIdsByIds = """
+      SELECT DISTINCT b.adjustmentRecord.pact.id
+      FROM Benchmark b
+      WHERE b.id IN :ids
+      """;
+
+  @Query(queryPactIdsByIds)
+  List<Long> findPactIdsByIds(@Param("ids") List<Long> ids);
+
   final String deleteAllRecordsByPactId = """
       DELETE Benchmark b WHERE b.adjustmentRecord.id in :arIds
       """;
@@ -29,4 +44,46 @@ public interface BenchmarkRepository
   @Modifying
   @Query(deleteAllRecordsByPactId)
   void deleteAllRecordsByARIds(@Param("arIds") List<Long> arIds);
+
+  final String querySumStaticWeightByARId = """
+      SELECT COALESCE(SUM(b.staticWeight), 0)
+      FROM Benchmark b
+      WHERE b.adjustmentRecord.id = :arId
+      """;
+
+  @Query(querySumStaticWeightByARId)
+  Double sumStaticWeightByARId(@Param("arId") Long arId);
+
+  // copy all benchmarks of an adjustment record to another one, database side.
+  // `adjustDate` overrides the original adjust date if `isAdjusted` is true.
+  // ids are allocated in blocks, see `ConstituentRepository.copyByARId`
+  final String copyByARId = """
+      WITH src AS (
+        SELECT b.*, row_number() OVER (ORDER BY b.id) - 1 AS rn
+        FROM portfolio_benchmark b
+        WHERE b.portfolio_adjustment_record_id = :arId
+      ), blocks AS (
+        SELECT bl, nextval('portfolio_benchmark_id_seq') AS hi
+        FROM generate_series(0, CAST(CEIL((SELECT count(*) FROM src) / 50.0) AS int) - 1) bl
+      )
+      INSERT INTO portfolio_benchmark (
+        id, portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+        percentage_change, static_weight, dynamic_weight, created_at
+      )
+      SELECT
+        blocks.hi - 49 + b.rn % 50,
+        :newArId, CASE WHEN :isAdjusted THEN :adjustDate ELSE b.adjust_date END, b.benchmark_name, b.symbol,
+        b.percentage_change, b.static_weight, b.dynamic_weight, now()
+      FROM src b
+      JOIN blocks ON blocks.bl = b.rn / 50
+      ORDER BY b.rn
+      """;
+
+  @Modifying(flushAutomatically = true)
+  @Query(value = copyByARId, nativeQuery = true)
+  int copyByARId(
+      @Param("arId") Long arId,
+      @Param("newArId") Long newArId,
+      @Param("isAdjusted") boolean isAdjusted,
+      @Param("adjustDate") LocalDate adjustDate);
 }
@@ -4,6 +4,7 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
@@ -12,16 +13,40 @@ import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
 public interface ConstituentRepository
-    extends JpaRepository<Constituent, Long>, JpaSpecificationExecutor<Constituent> {
+    extends JpaRepository<Constituent, Long>, JpaSpecificationExecutor<Constituent>, ConstituentRepositoryCustom {
 
+  // the EAGER adjustment record is fetched by the same query, instead of a
+  // select per persistence context (detail parts are fetched concurrently)
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<Constituent> findByAdjustmentRecordId(Long adjustmentRecordId);
 
   void deleteByAdjustmentRecordId(Long adjustmentRecordId);
 
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<Constituent> findByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
   void deleteByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
+  // ids only, taken before the pacts are locked
+  final String queryPactIdsByIds = """
+      SELECT DISTINCT c.adjustmentRecord.pact.id
+      FROM Constituent c
+      WHERE c.id IN :ids
+      """;
+
+  @Query(queryPactIdsByIds)
+  List<Long> findPactIdsByIds(@Param("ids") List<Long> ids);
+
+  final String queryUnsettledARIdsBySymbols = """
+      SELECT DISTINCT c.adjustmentRecord.id
+      FROM Constituent c
+      WHERE c.symbol IN :symbols
+      AND c.adjustmentRecord.isUnsettled = true
+      """;
+
+  @Query(queryUnsettledARIdsBySymbols)
+  List<Long> findUnsettledARIdsBySymbols(@Param("symbols") List<String> symbols);
+
   final String deleteAllRecordsByARIds = """
       DELETE Constituent c WHERE c.adjustmentRecord.id in :arIds
       """;
@@ -29,4 +54,41 @@ public interface ConstituentRepository
   @Modifying
   @Query(deleteAllRecordsByARIds)
   void deleteAllRecordsByARIds(@Param("arIds") List<Long> arIds);
+
+  // copy all constituents of an adjustment record to another one, database side.
+  // `adjustDate` overrides the original adjust date if `isAdjusted` is true.
+  // ids are allocated like Hibernate's pooled optimizer does: a `nextval` of the
+  // entity's sequence per 50 rows (`PortfolioConstants.ID_ALLOCATION_SIZE`),
+  // which is the last id of its block
+  final String copyByARId = """
+      WITH src AS (
+        SELECT c.*, row_number() OVER (ORDER BY c.id) - 1 AS rn
+        FROM portfolio_constituent c
+        WHERE c.portfolio_adjustment_record_id = :arId
+      ), blocks AS (
+        SELECT b, nextval('portfolio_constituent_id_seq') AS hi
+        FROM generate_series(0, CAST(CEIL((SELECT count(*) FROM src) / 50.0) AS int) - 1) b
+      )
+      INSERT INTO portfolio_constituent (
+        id, portfolio_adjustment_record_id, adjust_date, symbol, abbreviation,
+        adjust_date_price, current_price, adjust_date_factor, current_factor,
+        static_weight, dynamic_weight, pbpe, market_value, earnings_yield, created_at
+      )
+      SELECT
+        blocks.hi - 49 + c.rn % 50,
+        :newArId, CASE WHEN :isAdjusted THEN :adjustDate ELSE c.adjust_date END, c.symbol, c.abbreviation,
+        c.adjust_date_price, c.current_price, c.adjust_date_factor, c.current_factor,
+        c.static_weight, c.dynamic_weight, c.pbpe, c.market_value, c.earnings_yield, now()
+      FROM src c
+      JOIN blocks ON blocks.b = c.rn / 50
+      ORDER BY c.rn
+      """;
+
+  @Modifying(flushAutomatically = true)
+  @Query(value = copyByARId, nativeQuery = true)
+  int copyByARId(
+      @Param("arId") Long arId,
+      @Param("newArId") Long newArId,
+      @Param("isAdjusted") boolean isAdjusted,
+      @Param("adjustDate") LocalDate adjustDate);
 }
@@ -0,0 +1,17 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
+
+import java.util.List;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdate;
+
+public interface ConstituentRepositoryCustom {
+
+  /**
+   * Bulk update market data of unsettled constituents, one statement per symbol.
+   * The persistence context is cleared afterwards.
+   *
+   * @param prices
+   * @return number of updated constituents
+   */
+  int updateUnsettledPrices(List<ConstituentPriceUpdate> prices);
+}
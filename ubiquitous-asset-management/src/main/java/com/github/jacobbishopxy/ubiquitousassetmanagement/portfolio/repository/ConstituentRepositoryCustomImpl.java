@@ -0,0 +1,76 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdate;
+
+public class ConstituentRepositoryCustomImpl implements ConstituentRepositoryCustom {
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  public int updateUnsettledPrices(List<ConstituentPriceUpdate> prices) {
+    // pending changes must reach the database before the bulk updates
+    em.flush();
+
+    int count = 0;
+    for (ConstituentPriceUpdate price : prices) {
+      if (price.isEmpty()) {
+        continue;
+      }
+      count += em.createQuery(buildUpdate(price)).executeUpdate();
+    }
+
+    // managed constituents are stale from now on
+    em.clear();
+
+    return count;
+  }
+
+  // only non-null fields are set, so that no null parameter is bound
+  private CriteriaUpdate<Constituent> buildUpdate(ConstituentPriceUpdate price) {
+    CriteriaBuilder cb = em.getCriteriaBuilder();
+    CriteriaUpdate<Constituent> update = cb.createCriteriaUpdate(Constituent.class);
+    Root<Constituent> c = update.from(Constituent.class);
+
+    if (price.currentPrice() != null) {
+      update.set(c.<Float>get("currentPrice"), price.currentPrice());
+    }
+    if (price.currentFactor() != null) {
+      update.set(c.<Float>get("currentFactor"), price.currentFactor());
+    }
+    if (price.earningsYield() != null) {
+      update.set(c.<Float>get("earningsYield"), price.earningsYield());
+    }
+    if (price.pbpe() != null) {
+      update.set(c.<Float>get("pbpe"), price.pbpe());
+    }
+    if (price.marketValue() != null) {
+      update.set(c.<Float>get("marketValue"), price.marketValue());
+    }
+    update.set(c.<LocalDateTime>get("updatedAt"), LocalDateTime.now());
+
+    Subquery<Long> unsettledArIds = update.subquery(Long.class);
+    Root<AdjustmentRecord> ar = unsettledArIds.from(AdjustmentRecord.class);
+    unsettledArIds
+        .select(ar.<Long>get("id"))
+        .where(cb.isTrue(ar.<Boolean>get("isUnsettled")));
+
+    update.where(
+        cb.equal(c.get("symbol"), price.symbol()),
+        c.get("adjustmentRecord").get("id").in(unsettledArIds));
+
+    return update;
+  }
+}
@@ -8,8 +8,12 @@ import java.util.List;
 import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface PactRepository extends JpaRepository<Pact, Long> {
 
@@ -19,4 +23,55 @@ public interface PactRepository extends JpaRepository<Pact, Long> {
 
   List<Pact> findByIsActive(Boolean isActive);
 
+  // portfolio overviews (unsettled adjustment record) in a single query. Every
+  // filter is optional (null means no filter)
+  final String queryPortfolioOverviews = """
+      SELECT new com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview(
+        p.id, ar.id, p.alias, pr.nickname, ii.name, p.startDate, p.endDate, p.description,
+        pf.portfolioEarningsYield, pf.benchmarkEarningsYield, pf.alpha,
+        ap.portfolioEarningsYield, ap.benchmarkEarningsYield, ap.alpha,
+        ar.adjustDate, ar.adjustVersion, ar.isAdjusted
+      )
+      FROM Performance pf
+      JOIN pf.adjustmentRecord ar
+      JOIN ar.pact p
+      LEFT JOIN p.promoter pr
+      LEFT JOIN p.industryInfo ii
+      LEFT JOIN AccumulatedPerformance ap ON ap.pact = p
+      WHERE ar.isUnsettled = true
+      AND (:isActive IS NULL OR p.isActive = :isActive)
+      AND (:promoterEmail IS NULL OR pr.email = :promoterEmail)
+      AND (:industryInfoId IS NULL OR ii.id = :industryInfoId)
+      ORDER BY p.id
+      """;
+
+  @Query(value = queryPortfolioOverviews)
+  List<PortfolioOverview> findPortfolioOverviews(
+      @Param("isActive") Boolean isActive,
+      @Param("promoterEmail") String promoterEmail,
+      @Param("industryInfoId") Integer industryInfoId,
+      Pageable pageable);
+
+  // portfolio overviews (unsettled adjustment record) of the given pacts
+  final String queryPortfolioOverviewsByPactIds = """
+      SELECT new com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview(
+        p.id, ar.id, p.alias, pr.nickname, ii.name, p.startDate, p.endDate, p.description,
+        pf.portfolioEarningsYield, pf.benchmarkEarningsYield, pf.alpha,
+        ap.portfolioEarningsYield, ap.benchmarkEarningsYield, ap.alpha,
+        ar.adjustDate, ar.adjustVersion, ar.isAdjusted
+      )
+      FROM Performance pf
+      JOIN pf.adjustmentRecord ar
+      JOIN ar.pact p
+      LEFT JOIN p.promoter pr
+      LEFT JOIN p.industryInfo ii
+      LEFT JOIN AccumulatedPerformance ap ON ap.pact = p
+      WHERE ar.isUnsettled = true
+      AND p.id IN :pactIds
+      ORDER BY p.id
+      """;
+
+  @Query(value = queryPortfolioOverviewsByPactIds)
+  List<PortfolioOverview> findPortfolioOverviewsByPactIds(@Param("pactIds") List<Long> pactIds);
+
 }
@@ -4,24 +4,81 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
 public interface PerformanceRepository extends JpaRepository<Performance, Long> {
 
+  @EntityGraph(attributePaths = "adjustmentRecord")
   Optional<Performance> findByAdjustmentRecordId(Long adjustmentRecordId);
 
   void deleteByAdjustmentRecordId(Long adjustmentRecordId);
 
+  @EntityGraph(attributePaths = "adjustmentRecord")
   List<Performance> findByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
   void deleteByAdjustmentRecordIdIn(List<Long> adjustmentRecordIds);
 
+  // all performances of a pact in adjust date/version order. The unsettled
+  // record has no adjust date, and comes last
+  final String queryByPactIdOrdered = """
+      SELECT pf
+      FROM Performance pf
+      JOIN FETCH pf.adjustmentRecord ar
+      WHERE ar.pact.id = :pactId
+      ORDER BY ar.adjustDate ASC NULLS LAST, ar.adjustVersion ASC
+      """;
+
+  @Query(queryByPactIdOrdered)
+  List<Performance> findByPactIdOrdered(@Param("pactId") Long pactId);
+
+  // settled performances on or before a date, latest first
+  final String querySettledByPactIdOnOrBefore = """
+      SELECT pf
+      FROM Performance pf
+      JOIN FETCH pf.adjustmentRecord ar
+      WHERE ar.pact.id = :pactId
+      AND (ar.isUnsettled IS NULL OR ar.isUnsettled = false)
+      AND ar.adjustDate <= :date
+      ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC
+      """;
+
+  @Query(querySettledByPactIdOnOrBefore)
+  List<Performance> findSettledByPactIdOnOrBefore(
+      @Param("pactId") Long pactId,
+      @Param("date") LocalDate date,
+      Pageable pageable);
+
+  final String queryLatestSettledByPactId = """
+      SELECT pf
+      FROM Performance pf
+      JOIN FETCH pf.adjustmentRecord ar
+      WHERE ar.pact.id = :pactId
+      AND (ar.isUnsettled IS NULL OR ar.isUnsettled = false)
+      ORDER BY ar.adjustDate DESC, ar.adjustVersion DESC
+      """;
+
+  @Query(queryLatestSettledByPactId)
+  List<Performance> findLatestSettledByPactId(@Param("pactId") Long pactId, Pageable pageable);
+
+  final String queryUnsettledByPactId = """
+      SELECT pf
+      FROM Performance pf
+      JOIN FETCH pf.adjustmentRecord ar
+      WHERE ar.pact.id = :pactId
+      AND ar.isUnsettled = true
+      """;
+
+  @Query(queryUnsettledByPactId)
+  Optional<Performance> findUnsettledByPactId(@Param("pactId") Long pactId);
+
   final String deleteAllRecordsByARIds = """
       DELETE Performance p WHERE p.adjustmentRecord.id in :arIds
       """;
@@ -29,4 +86,20 @@ public interface PerformanceRepository extends JpaRepository<Performance, Long>
   @Modifying
   @Query(deleteAllRecordsByARIds)
   void deleteAllRecordsByARIds(@Param("arIds") List<Long> arIds);
+
+  // copy the performance of an adjustment record to another one, database side.
+  // a single row, the first id of a block (see
+  // `ConstituentRepository.copyByARId`)
+  final String copyByARId = """
+      INSERT INTO portfolio_performance (
+        id, portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+      )
+      SELECT nextval('portfolio_performance_id_seq') - 49, :newArId, p.portfolio_earnings_yield, p.benchmark_earnings_yield, p.alpha
+      FROM portfolio_performance p
+      WHERE p.portfolio_adjustment_record_id = :arId
+      """;
+
+  @Modifying(flushAutomatically = true)
+  @Query(value = copyByARId, nativeQuery = true)
+  int copyByARId(@Param("arId") Long arId, @Param("newArId") Long newArId);
 }
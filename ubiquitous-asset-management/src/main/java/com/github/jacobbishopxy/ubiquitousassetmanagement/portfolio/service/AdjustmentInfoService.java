@@ -10,8 +10,10 @@ import java.util.Optional;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AdjustmentInfoUpdate;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentInfoRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -24,6 +26,9 @@ public class AdjustmentInfoService {
   @Autowired
   private AdjustmentInfoRepository aRepo;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
   // =======================================================================
   // Query methods
   //
@@ -82,7 +87,11 @@ public class AdjustmentInfoService {
             a.setDescription(dto.description());
           }
 
-          return aRepo.save(a);
+          AdjustmentInfo saved = aRepo.save(a);
+          eventPublisher.publishEvent(new PortfolioChangedEvent(
+              saved.getAdjustmentRecord().getPact().getId(),
+              saved.getAdjustmentRecord().getId()));
+          return saved;
         });
   }
 
@@ -8,9 +8,11 @@ import java.util.List;
 import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AdjustmentRecordCursor;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentRecordRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -26,6 +28,17 @@ public class AdjustmentRecordService {
   @Autowired
   private AdjustmentRecordRepository arRepo;
 
+  /**
+   * A page of keyset pagination.
+   *
+   * @param records
+   * @param continuationToken: null if this is the last page
+   */
+  public record KeysetPage(
+      List<AdjustmentRecord> records,
+      String continuationToken) {
+  }
+
   // =======================================================================
   // Query methods
   //
@@ -48,6 +61,43 @@ public class AdjustmentRecordService {
     return arRepo.findByPactIdDescSortAndIsAdjustedTrue(pactId, pageable);
   }
 
+  /**
+   * Keyset pagination of a pact's adjustment records, in (adjustDate,
+   * adjustVersion, id) descending order. Unlike offset pagination, a deep page
+   * costs the same as the first one.
+   *
+   * @param pactId
+   * @param isAdjustedOnly:    only adjusted records (and the unsettled one)
+   * @param continuationToken: null for the first page
+   * @param size
+   * @return
+   */
+  public KeysetPage getARSortDescAfter(Long pactId, boolean isAdjustedOnly, String continuationToken, int size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    Pageable limit = PageRequest.of(0, size);
+
+    List<AdjustmentRecord> records;
+    if (continuationToken == null) {
+      records = isAdjustedOnly
+          ? arRepo.findByPactIdDescSortAndIsAdjustedTrue(pactId, limit)
+          : arRepo.findByPactIdDescSort(pactId, limit);
+    } else {
+      AdjustmentRecordCursor cursor = AdjustmentRecordCursor.decode(continuationToken);
+      records = cursor.isUnsettled()
+          ? arRepo.findSettledByPactIdDescSort(pactId, isAdjustedOnly, limit)
+          : arRepo.findByPactIdDescSortAfter(
+              pactId, isAdjustedOnly, cursor.adjustDate(), cursor.adjustVersion(), cursor.id(), limit);
+    }
+
+    String next = records.size() < size
+        ? null
+        : AdjustmentRecordCursor.of(records.get(records.size() - 1)).encode();
+
+    return new KeysetPage(records, next);
+  }
+
   public List<AdjustmentRecord> getUnsettledARs(List<Long> pactIds) {
     return arRepo.findUnsettledByPactIds(pactIds);
   }
@@ -69,6 +119,20 @@ public class AdjustmentRecordService {
     return arRepo.findById(id);
   }
 
+  public List<AdjustmentRecord> getARsByIds(List<Long> ids) {
+    return arRepo.findAllById(ids);
+  }
+
+  // id only, nothing is loaded into the persistence context
+  public Optional<Long> getPactIdByARId(Long id) {
+    return arRepo.findPactIdById(id);
+  }
+
+  // delta snapshots stored against a record
+  public List<AdjustmentRecord> getARsBySnapshotBaseId(Long snapshotBaseId) {
+    return arRepo.findBySnapshotBaseId(snapshotBaseId);
+  }
+
   public Optional<AdjustmentRecord> getFullARById(Long id) {
     return arRepo.findById(id);
   }
@@ -93,6 +157,10 @@ public class AdjustmentRecordService {
         });
   }
 
+  public AdjustmentRecord saveAR(AdjustmentRecord adjustmentRecord) {
+    return arRepo.save(adjustmentRecord);
+  }
+
   public void deleteAR(Long id) {
     arRepo.deleteById(id);
   }
@@ -0,0 +1,275 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus.Status;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+/**
+ * AutoSettleScheduler
+ *
+ * End of day settlement of all the active pacts, at each firing of
+ * `portfolio.auto-settle.cron` (in `portfolio.auto-settle.zone`, "-" disables
+ * it). A run is a settlement job of its own (see `PortfolioSettleJobService`),
+ * so that it never settles a pact twice with a manual job, and only accounts
+ * for the pacts it has submitted.
+ *
+ * 1. Skipping: a pact already settled on (or after) the date, or started after
+ * it, is not settled again.
+ *
+ * 2. Catch-up (`portfolio.auto-settle.catch-up=true`): on startup, the latest
+ * of the last `catch-up-days` days on which the cron has fired is settled. The
+ * cron expression is the trading calendar, e.g. `0 30 15 * * MON-FRI`. Prices
+ * are not historical, the unsettled record only holds the current ones: the
+ * earlier missed dates are logged but not settled, rather than recorded with
+ * made up returns, and the whole return since the latest settlement lands on
+ * the latest date.
+ *
+ * Runs are timed as `portfolio.settle.auto.run`, and their pacts counted by
+ * outcome (settled, skipped, failed) as `portfolio.settle.auto.pacts`.
+ */
+@Service
+public class AutoSettleScheduler {
+
+  private static final Logger logger = LogManager.getLogger(AutoSettleScheduler.class);
+
+  public static final String RUN_TIMER = "portfolio.settle.auto.run";
+  public static final String PACTS_COUNTER = "portfolio.settle.auto.pacts";
+
+  private static final String DISABLED = "-";
+
+  @Autowired
+  private PactService pactService;
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  private PortfolioSettleJobService portfolioSettleJobService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${portfolio.auto-settle.cron:-}")
+  private String cron;
+
+  @Value("${portfolio.auto-settle.zone:}")
+  private String zone;
+
+  @Value("${portfolio.auto-settle.catch-up:false}")
+  private boolean catchUp;
+
+  @Value("${portfolio.auto-settle.catch-up-days:7}")
+  private int catchUpDays;
+
+  private Timer runTimer;
+
+  private Counter settledCounter;
+
+  private Counter skippedCounter;
+
+  private Counter failedCounter;
+
+  @PostConstruct
+  private void init() {
+    runTimer = Timer
+        .builder(RUN_TIMER)
+        .description("Time spent on an end of day settlement, from submission to completion")
+        .register(meterRegistry);
+    settledCounter = pactsCounter("settled");
+    skippedCounter = pactsCounter("skipped");
+    failedCounter = pactsCounter("failed");
+  }
+
+  private Counter pactsCounter(String outcome) {
+    return Counter
+        .builder(PACTS_COUNTER)
+        .description("Pacts of end of day settlements, by outcome")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  @Scheduled(cron = "${portfolio.auto-settle.cron:-}", zone = "${portfolio.auto-settle.zone:}")
+  public void scheduledSettle() {
+    settle(LocalDate.now(zoneId()));
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void catchUpOnStartup() {
+    if (!catchUp || DISABLED.equals(cron)) {
+      return;
+    }
+
+    List<LocalDate> dates = missedDates(ZonedDateTime.now(zoneId()));
+    if (dates.isEmpty()) {
+      return;
+    }
+
+    // only the latest date has its prices, the current ones
+    LocalDate latest = dates.get(dates.size() - 1);
+    List<LocalDate> skipped = dates.subList(0, dates.size() - 1);
+    if (!skipped.isEmpty()) {
+      logger.warn("Auto settle catch-up: {} left unsettled, no historical prices", skipped);
+    }
+    logger.info("Auto settle catching up on {}", latest);
+
+    settle(latest).exceptionally(e -> {
+      logger.error("Auto settle catch-up aborted: {}", e.getMessage());
+      return null;
+    });
+  }
+
+  /**
+   * Settle the active pacts not settled yet on `date`.
+   *
+   * @param date
+   * @return the status of the run's job once finished, or null if nothing has
+   *         been submitted
+   */
+  public CompletableFuture<SettleJobStatus> settle(LocalDate date) {
+    // 0. skip the pacts settled on or after the date, or not started yet
+    List<Pact> pacts = pactService.getAllPacts(true);
+    List<Long> activeIds = pacts.stream().map(Pact::getId).collect(Collectors.toList());
+    Map<Long, LocalDate> latestSettledDates = activeIds.isEmpty()
+        ? Map.of()
+        : adjustmentRecordService
+            .getLatestSettledARs(activeIds)
+            .stream()
+            .collect(Collectors.toMap(
+                ar -> ar.getPact().getId(),
+                AdjustmentRecord::getAdjustDate,
+                (a, b) -> a));
+
+    List<Long> toSettle = new ArrayList<>();
+    for (Pact pact : pacts) {
+      LocalDate latest = latestSettledDates.get(pact.getId());
+      boolean isStarted = pact.getStartDate() == null || !pact.getStartDate().isAfter(date);
+      if (isStarted && (latest == null || latest.isBefore(date))) {
+        toSettle.add(pact.getId());
+      }
+    }
+    int skipped = pacts.size() - toSettle.size();
+
+    if (toSettle.isEmpty()) {
+      skippedCounter.increment(skipped);
+      logger.info("Auto settle of {}: nothing to settle, {} pact(s) skipped", date, skipped);
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // 1. submit, pacts of other active jobs are skipped by the job
+    SettleJobStatus submitted;
+    try {
+      submitted = portfolioSettleJobService.submitOwn(toSettle, date);
+    } catch (TaskRejectedException e) {
+      failedCounter.increment(toSettle.size());
+      logger.error("Auto settle of {} rejected, settlement jobs queue is full", date);
+      return CompletableFuture.completedFuture(null);
+    } catch (IllegalStateException e) {
+      failedCounter.increment(toSettle.size());
+      logger.error("Auto settle of {} rejected: {}", date, e.getMessage());
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // 2. record the run once finished
+    return portfolioSettleJobService
+        .whenFinished(submitted.jobId())
+        .orElse(CompletableFuture.completedFuture(submitted))
+        .thenApply(job -> {
+          record(date, job, skipped);
+          return job;
+        });
+  }
+
+  // `job` is the run's own: its pacts and results are the submitted pacts
+  // minus the ones of other active jobs, which are counted as skipped
+  private void record(LocalDate date, SettleJobStatus job, int skipped) {
+    int duplicated = job.duplicatedPactJobIds().size();
+    long settled = job.results() == null
+        ? 0
+        : job.results().stream().filter(r -> r.isSuccess() == Boolean.TRUE).count();
+    long failed = job.status() == Status.FAILED
+        ? job.pactIds().size()
+        : job.pactIds().size() - settled;
+    Duration elapsed = Duration.between(job.submittedAt(), job.finishedAt());
+
+    runTimer.record(elapsed);
+    settledCounter.increment(settled);
+    skippedCounter.increment(skipped + duplicated);
+    failedCounter.increment(failed);
+
+    double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+    logger.info(
+        "Auto settle of {} (job {}): {} settled, {} failed, {} skipped in {} ms ({} pacts/s)",
+        date,
+        job.jobId(),
+        settled,
+        failed,
+        skipped + duplicated,
+        elapsed.toMillis(),
+        String.format("%.1f", job.pactIds().size() / seconds));
+
+    if (job.status() == Status.FAILED) {
+      logger.error("Auto settle of {} failed: {}", date, job.error());
+    } else if (failed > 0) {
+      Map<Long, String> errors = job
+          .results()
+          .stream()
+          .filter(r -> r.isSuccess() != Boolean.TRUE)
+          .collect(Collectors.toMap(SettlePortfolioResult::pactId, SettlePortfolioResult::error, (a, b) -> a));
+      logger.warn("Auto settle of {} failed for pacts: {}", date, errors);
+    }
+  }
+
+  // dates of the last `catchUpDays` days on which the cron has fired, oldest
+  // first
+  private List<LocalDate> missedDates(ZonedDateTime now) {
+    CronExpression expression = CronExpression.parse(cron);
+
+    List<LocalDate> dates = new ArrayList<>();
+    for (int i = catchUpDays; i >= 0; i--) {
+      LocalDate date = now.toLocalDate().minusDays(i);
+      ZonedDateTime fire = expression.next(date.atStartOfDay(now.getZone()).minusNanos(1));
+      if (fire != null && fire.toLocalDate().equals(date) && !fire.isAfter(now)) {
+        dates.add(date);
+      }
+    }
+
+    return dates;
+  }
+
+  private ZoneId zoneId() {
+    return zone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(zone);
+  }
+}
@@ -12,23 +12,32 @@ import java.util.stream.Collectors;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
-import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.BenchmarkUpdate;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AccumulatedPerformanceRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.BenchmarkRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.BenchmarksResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
 import com.google.common.collect.Sets;
 
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class BenchmarkService {
 
+  public static final String MUTATION_TIMER = "portfolio.benchmark.mutation";
+
   @Autowired
   private BenchmarkRepository bRepo;
 
@@ -44,6 +53,28 @@ public class BenchmarkService {
   @Autowired
   private AdjustmentRecordService adjustmentRecordService;
 
+  @Autowired
+  private RecalculateScheduler recalculateScheduler;
+
+  @Autowired
+  private AggregateLockService aggregateLockService;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Timer mutationTimer;
+
+  @PostConstruct
+  private void init() {
+    mutationTimer = Timer
+        .builder(MUTATION_TIMER)
+        .description("Time spent on recalculating the benchmarks and performances of a mutated record")
+        .register(meterRegistry);
+  }
+
   // =======================================================================
   // Query methods
   //
@@ -70,17 +101,32 @@ public class BenchmarkService {
 
   @Transactional(rollbackFor = Exception.class)
   private void rawMutation(List<Benchmark> benchmarks) {
+    rawMutation(benchmarks, recalculateScheduler.isEnabled());
+  }
+
+  // when `isDeferred`, the recalculation is left to `RecalculateScheduler`
+  @Transactional(rollbackFor = Exception.class)
+  private void rawMutation(List<Benchmark> benchmarks, boolean isDeferred) {
+    mutationTimer.record(() -> doRawMutation(benchmarks, isDeferred));
+  }
+
+  private void doRawMutation(List<Benchmark> benchmarks, boolean isDeferred) {
     // 0. benchmarks cannot be empty
     if (benchmarks.isEmpty()) {
       throw new IllegalArgumentException("Benchmarks cannot be empty");
     }
 
-    // 1. get adjustment record id
+    // 1. get adjustment record id, its pact has been locked by the caller
     AdjustmentRecord adjustmentRecord = benchmarks.get(0).getAdjustmentRecord();
     Long adjustmentRecordId = adjustmentRecord.getId();
     adjustmentRecord = adjustmentRecordService.getARById(adjustmentRecordId)
         .orElseThrow(() -> new RuntimeException("cannot find adjustment record"));
-    Pact pact = adjustmentRecord.getPact();
+
+    if (isDeferred) {
+      recalculateScheduler.markDirty(adjustmentRecord, RecalculateScheduler.Target.BENCHMARKS);
+      eventPublisher.publishEvent(new PortfolioChangedEvent(adjustmentRecord.getPact().getId(), adjustmentRecordId));
+      return;
+    }
 
     // 2. recalculate all benchmarks and their related performance
     BenchmarksResult res = PortfolioCalculationHelper
@@ -93,14 +139,24 @@ public class BenchmarkService {
     Performance performance = pRepo
         .findByAdjustmentRecordId(adjustmentRecordId)
         .orElse(new Performance());
-    performance.setAdjustmentRecord(new AdjustmentRecord(adjustmentRecordId));
+    performance.setAdjustmentRecord(adjustmentRecord);
     performance.setBenchmarkEarningsYield(res.earningsYield());
     performance.setAlpha(performance.getPortfolioEarningsYield() - res.earningsYield());
     pRepo.save(performance);
 
     // 5. update or create accumulated performance
-    AccumulatedPerformance ap = recalculateService.recalculateAccumulatedPerformance(pact, false, false);
+    AccumulatedPerformance ap = recalculateService.recalculateAccumulatedPerformance(adjustmentRecord, performance);
     apRepo.save(ap);
+
+    // 6. notify listeners (e.g. cache) once committed
+    eventPublisher.publishEvent(new PortfolioChangedEvent(adjustmentRecord.getPact().getId(), adjustmentRecordId));
+  }
+
+  // recalculate immediately, called by `RecalculateScheduler`
+  @Transactional(rollbackFor = Exception.class)
+  public void recalculate(Long adjustmentRecordId) {
+    lockPactOfAR(adjustmentRecordId);
+    rawMutation(getBenchmarksByAdjustmentRecordId(adjustmentRecordId), false);
   }
 
   // common mutations is a wrapper of raw mutation, which only needs adjustment
@@ -119,6 +175,7 @@ public class BenchmarkService {
     // IMPORTANT: benchmark's adjustmentRecord id cannot be null. In other words,
     // it must have an adjustmentRecord to create a benchmark.
     Long adjustmentRecordId = benchmark.getAdjRecordId();
+    lockPactOfAR(adjustmentRecordId);
 
     // 1. save benchmark.
     Benchmark newB = bRepo.save(benchmark);
@@ -143,6 +200,7 @@ public class BenchmarkService {
     if (uniqueARIds.size() != 1) {
       throw new IllegalArgumentException("All benchmarks must have the same adjustment record id");
     }
+    lockPactOfAR(adjustmentRecordIds.get(0));
 
     // 1. save benchmarks
     List<Benchmark> newBs = bRepo.saveAll(benchmarks);
@@ -157,6 +215,7 @@ public class BenchmarkService {
   public Optional<Benchmark> updateBenchmark(Long id, Benchmark benchmark) {
     // 0. validate benchmark
     Long adjustmentRecordId = benchmark.getAdjRecordId();
+    lockPactOfAR(adjustmentRecordId);
 
     // 1. update benchmark
     bRepo
@@ -189,6 +248,7 @@ public class BenchmarkService {
     if (uniqueARIds.size() != 1) {
       throw new IllegalArgumentException("All benchmarks must have the same adjustment record id");
     }
+    lockPactOfAR(adjustmentRecordIds.get(0));
 
     // 1. only modify benchmarks that are in the database
     List<Long> ids = benchmarks
@@ -214,20 +274,27 @@ public class BenchmarkService {
     return newBms;
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public Optional<Benchmark> modifyBenchmark(Long id, BenchmarkUpdate dto) {
+    aggregateLockService.lockPacts(bRepo.findPactIdsByIds(List.of(id)));
+
     return bRepo
         .findById(id)
         .map(b -> {
           if (dto.percentageChange() != null) {
             b.setPercentageChange(dto.percentageChange());
           }
-          return bRepo.save(b);
+          Benchmark saved = bRepo.save(b);
+          eventPublisher.publishEvent(
+              new PortfolioChangedEvent(saved.getAdjustmentRecord().getPact().getId(), saved.getAdjRecordId()));
+          return saved;
         });
   }
 
   @Transactional(rollbackFor = Exception.class)
   public void deleteBenchmark(Long id) {
     // 0. validate benchmark
+    aggregateLockService.lockPacts(bRepo.findPactIdsByIds(List.of(id)));
     Benchmark b = bRepo
         .findById(id)
         .orElseThrow(() -> new RuntimeException(String.format("Benchmark %d not found", id)));
@@ -243,6 +310,7 @@ public class BenchmarkService {
   @Transactional(rollbackFor = Exception.class)
   public void deleteBenchmarks(List<Long> ids) {
     // 0. make sure all benchmarks' id are valid
+    aggregateLockService.lockPacts(bRepo.findPactIdsByIds(ids));
     List<Benchmark> bms = bRepo.findAllById(ids);
     List<Long> adjustmentRecordIds = bms
         .stream()
@@ -260,6 +328,26 @@ public class BenchmarkService {
     commonMutation(adjustmentRecordIds.get(0));
   }
 
+  // =======================================================================
+  // Lock methods
+  //
+  // every mutation locks its pact (see `AggregateLockService`) before it reads
+  // or writes anything. The pact is looked up by ids only, nothing is loaded
+  // before it is locked. A missing record is left to the mutation to report
+  // =======================================================================
+
+  private void lockPactOfAR(Long adjustmentRecordId) {
+    lockPactsOfARs(List.of(adjustmentRecordId));
+  }
+
+  private void lockPactsOfARs(List<Long> adjustmentRecordIds) {
+    aggregateLockService.lockPacts(adjustmentRecordIds
+        .stream()
+        .map(adjustmentRecordService::getPactIdByARId)
+        .flatMap(Optional::stream)
+        .collect(Collectors.toList()));
+  }
+
   // =======================================================================
   // DANGEROUS! Mutation methods
   //
@@ -270,15 +358,21 @@ public class BenchmarkService {
   // IMPORTANT: adjustRecord is not deleted
   @Transactional(rollbackFor = Exception.class)
   public void deleteBenchmarksByAdjustmentRecordId(Long adjustmentRecordId) {
+    lockPactOfAR(adjustmentRecordId);
     bRepo.deleteByAdjustmentRecordId(adjustmentRecordId);
 
     pRepo.deleteByAdjustmentRecordId(adjustmentRecordId);
+
+    eventPublisher.publishEvent(new PortfolioChangedEvent(null, adjustmentRecordId));
   }
 
   @Transactional(rollbackFor = Exception.class)
   public void deleteBenchmarksByAdjustmentRecordIds(List<Long> adjustmentRecordIds) {
+    lockPactsOfARs(adjustmentRecordIds);
     bRepo.deleteByAdjustmentRecordIdIn(adjustmentRecordIds);
 
     pRepo.deleteByAdjustmentRecordIdIn(adjustmentRecordIds);
+
+    adjustmentRecordIds.forEach(id -> eventPublisher.publishEvent(new PortfolioChangedEvent(null, id)));
   }
 }
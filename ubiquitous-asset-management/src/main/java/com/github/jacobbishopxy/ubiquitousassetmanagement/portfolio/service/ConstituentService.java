@@ -4,7 +4,10 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -12,23 +15,56 @@ import java.util.stream.Collectors;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
-import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdate;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentPriceUpdateResult;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentUpdate;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AccumulatedPerformanceRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.ConstituentRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.ConstituentsResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioSnapshotHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
 import com.google.common.collect.Sets;
 
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * ConstituentService
+ *
+ * Settled snapshots can be stored as deltas
+ * (`portfolio.snapshot.delta-encoding=true`): a settled record only keeps the
+ * constituents which changed since its parent record, see
+ * `PortfolioSnapshotHelper`. Queries always return full snapshots, rebuilt and
+ * cached if needed.
+ *
+ * A delta snapshot and the ones based on it are stored in full again before any
+ * of its constituents is mutated, so that a mutation never changes another
+ * snapshot implicitly. The inherited constituents of a rebuilt snapshot carry
+ * their parent's ids: a by-id mutation which names the record it has read the
+ * constituent from is applied to that record's own row (see
+ * `resolveConstituentId`), and leaves the parent untouched.
+ *
+ * Every mutation locks its pact (see `AggregateLockService`) before it reads or
+ * writes anything, like settlements do: two mutations of a pact are applied one
+ * after the other, each one recalculating from the other's committed rows.
+ */
 @Service
 public class ConstituentService {
 
+  public static final String MUTATION_TIMER = "portfolio.constituent.mutation";
+
   @Autowired
   private ConstituentRepository cRepo;
 
@@ -44,6 +80,38 @@ public class ConstituentService {
   @Autowired
   private AdjustmentRecordService adjustmentRecordService;
 
+  @Autowired
+  private RecalculateScheduler recalculateScheduler;
+
+  @Autowired
+  private PortfolioCacheService portfolioCacheService;
+
+  @Autowired
+  private AggregateLockService aggregateLockService;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Timer mutationTimer;
+
+  @PostConstruct
+  private void init() {
+    mutationTimer = Timer
+        .builder(MUTATION_TIMER)
+        .description("Time spent on recalculating the constituents and performances of a mutated record")
+        .register(meterRegistry);
+  }
+
+  @Value("${portfolio.snapshot.delta-encoding:false}")
+  private boolean deltaEncoding;
+
+  // longest chain of deltas to resolve when rebuilding a snapshot
+  @Value("${portfolio.snapshot.max-delta-depth:20}")
+  private int maxDeltaDepth;
+
   // =======================================================================
   // Query methods
   //
@@ -51,11 +119,66 @@ public class ConstituentService {
   // =======================================================================
 
   public List<Constituent> getConstituentsByAdjustmentRecordId(Long adjustmentRecordId) {
-    return cRepo.findByAdjustmentRecordId(adjustmentRecordId);
+    List<Constituent> cons = cRepo.findByAdjustmentRecordId(adjustmentRecordId);
+
+    // the adjustment record is eagerly fetched along with its constituents, a
+    // delta without any changed constituent needs to be looked up
+    AdjustmentRecord ar = cons.isEmpty()
+        ? adjustmentRecordService.getARById(adjustmentRecordId).orElse(null)
+        : cons.get(0).getAdjustmentRecord();
+    if (ar == null || !ar.isDeltaSnapshot()) {
+      return cons;
+    }
+
+    return rebuildSnapshot(ar, cons);
   }
 
   public List<Constituent> getConstituentsByAdjustmentRecordIds(List<Long> adjustmentRecordIds) {
-    return cRepo.findByAdjustmentRecordIdIn(adjustmentRecordIds);
+    return getConstituentsGroupedByAdjustmentRecordIds(adjustmentRecordIds)
+        .values()
+        .stream()
+        .flatMap(List::stream)
+        .collect(Collectors.toList());
+  }
+
+  // keyed by adjustment record id, records without constituents are absent
+  public Map<Long, List<Constituent>> getConstituentsGroupedByAdjustmentRecordIds(List<Long> adjustmentRecordIds) {
+    List<Constituent> cons = cRepo.findByAdjustmentRecordIdIn(adjustmentRecordIds);
+
+    Map<Long, List<Constituent>> consMap = cons
+        .stream()
+        .collect(Collectors.groupingBy(Constituent::getAdjRecordId, LinkedHashMap::new, Collectors.toList()));
+    List<Long> emptyARIds = adjustmentRecordIds
+        .stream()
+        .filter(id -> !consMap.containsKey(id))
+        .distinct()
+        .collect(Collectors.toList());
+    List<AdjustmentRecord> deltaARs = emptyARIds.isEmpty()
+        ? new ArrayList<>()
+        : adjustmentRecordService
+            .getARsByIds(emptyARIds)
+            .stream()
+            .filter(AdjustmentRecord::isDeltaSnapshot)
+            .collect(Collectors.toList());
+    consMap
+        .values()
+        .stream()
+        .map(cs -> cs.get(0).getAdjustmentRecord())
+        .filter(AdjustmentRecord::isDeltaSnapshot)
+        .forEach(deltaARs::add);
+
+    deltaARs.forEach(ar -> consMap.put(ar.getId(), rebuildSnapshot(ar, consMap.getOrDefault(ar.getId(), List.of()))));
+
+    return consMap;
+  }
+
+  private List<Constituent> rebuildSnapshot(AdjustmentRecord ar, List<Constituent> deltaCons) {
+    return portfolioCacheService.getSnapshot(
+        ar.getId(),
+        () -> PortfolioSnapshotHelper.rebuild(
+            ar,
+            getConstituentsByAdjustmentRecordId(ar.getSnapshotBaseId()),
+            deltaCons));
   }
 
   public Optional<Constituent> getConstituentById(Long id) {
@@ -71,17 +194,32 @@ public class ConstituentService {
   // raw mutation is called when create/update/delete a constituent
   @Transactional(rollbackFor = Exception.class)
   private void rawMutation(List<Constituent> constituents) {
+    rawMutation(constituents, recalculateScheduler.isEnabled());
+  }
+
+  // when `isDeferred`, the recalculation is left to `RecalculateScheduler`
+  @Transactional(rollbackFor = Exception.class)
+  private void rawMutation(List<Constituent> constituents, boolean isDeferred) {
+    mutationTimer.record(() -> doRawMutation(constituents, isDeferred));
+  }
+
+  private void doRawMutation(List<Constituent> constituents, boolean isDeferred) {
     // 0. constituents cannot be empty
     if (constituents.isEmpty()) {
       throw new IllegalArgumentException("Constituents cannot be empty");
     }
 
-    // 1. get adjustment record id
+    // 1. get adjustment record id, its pact has been locked by the caller
     AdjustmentRecord adjustmentRecord = constituents.get(0).getAdjustmentRecord();
     Long adjustmentRecordId = adjustmentRecord.getId();
     adjustmentRecord = adjustmentRecordService.getARById(adjustmentRecordId)
         .orElseThrow(() -> new RuntimeException("cannot find adjustment record"));
-    Pact pact = adjustmentRecord.getPact();
+
+    if (isDeferred) {
+      recalculateScheduler.markDirty(adjustmentRecord, RecalculateScheduler.Target.CONSTITUENTS);
+      eventPublisher.publishEvent(new PortfolioChangedEvent(adjustmentRecord.getPact().getId(), adjustmentRecordId));
+      return;
+    }
 
     // 2. recalculate all constituents and their related performance,
     // validate modified constituents
@@ -95,7 +233,7 @@ public class ConstituentService {
     Performance performance = pRepo
         .findByAdjustmentRecordId(adjustmentRecordId)
         .orElse(new Performance());
-    performance.setAdjustmentRecord(new AdjustmentRecord(adjustmentRecordId));
+    performance.setAdjustmentRecord(adjustmentRecord);
     performance.setPortfolioEarningsYield(res.earningsYield());
     if (res.earningsYield() != null && performance.getBenchmarkEarningsYield() != null) {
       performance.setAlpha(res.earningsYield() - performance.getBenchmarkEarningsYield());
@@ -103,16 +241,29 @@ public class ConstituentService {
     pRepo.save(performance);
 
     // 5. update or create accumulated performance
-    AccumulatedPerformance ap = recalculateService.recalculateAccumulatedPerformance(pact, false, false);
+    AccumulatedPerformance ap = recalculateService.recalculateAccumulatedPerformance(adjustmentRecord, performance);
     apRepo.save(ap);
+
+    // 6. notify listeners (e.g. cache) once committed
+    eventPublisher.publishEvent(new PortfolioChangedEvent(adjustmentRecord.getPact().getId(), adjustmentRecordId));
+  }
+
+  // recalculate immediately, called by `RecalculateScheduler`
+  @Transactional(rollbackFor = Exception.class)
+  public void recalculate(Long adjustmentRecordId) {
+    lockPactOfAR(adjustmentRecordId);
+    materializeSnapshot(adjustmentRecordId);
+
+    rawMutation(cRepo.findByAdjustmentRecordId(adjustmentRecordId), false);
   }
 
   // common mutations is a wrapper of raw mutation, which only needs adjustment
   // record id as input
   @Transactional(rollbackFor = Exception.class)
   private void commonMutation(Long adjustmentRecordId) {
-    // find all constituents in the portfolio
-    List<Constituent> constituents = getConstituentsByAdjustmentRecordId(adjustmentRecordId);
+    // find all constituents in the portfolio, stored in full
+    materializeSnapshot(adjustmentRecordId);
+    List<Constituent> constituents = cRepo.findByAdjustmentRecordId(adjustmentRecordId);
 
     rawMutation(constituents);
   }
@@ -123,6 +274,8 @@ public class ConstituentService {
     // IMPORTANT: constituent's adjustmentRecord id cannot be null. In other words,
     // it must have an adjustmentRecord to create a constituent.
     Long adjustmentRecordId = constituent.getAdjRecordId();
+    lockPactOfAR(adjustmentRecordId);
+    materializeSnapshot(adjustmentRecordId);
 
     // 1. save constituent.
     Constituent newC = cRepo.save(constituent);
@@ -148,6 +301,8 @@ public class ConstituentService {
     if (uniqueARIds.size() != 1) {
       throw new IllegalArgumentException("Constituents must have the same adjustmentRecord id");
     }
+    lockPactOfAR(adjustmentRecordIds.get(0));
+    materializeSnapshot(adjustmentRecordIds.get(0));
 
     // 1. save constituents.
     List<Constituent> newCs = cRepo.saveAll(constituents);
@@ -162,10 +317,12 @@ public class ConstituentService {
   public Optional<Constituent> updateConstituent(Long id, Constituent constituent) {
     // 0. validate constituent
     Long adjustmentRecordId = constituent.getAdjRecordId();
+    lockPactOfAR(adjustmentRecordId);
+    Long storedId = resolveConstituentId(id, adjustmentRecordId);
 
     // 1. update constituent
     cRepo
-        .findById(id)
+        .findById(storedId)
         .map(
             record -> {
               record.setAdjustDate(constituent.getAdjustDate());
@@ -187,7 +344,7 @@ public class ConstituentService {
     // 2. common mutation
     commonMutation(adjustmentRecordId);
 
-    return cRepo.findById(id);
+    return cRepo.findById(storedId);
   }
 
   @Transactional(rollbackFor = Exception.class)
@@ -201,11 +358,12 @@ public class ConstituentService {
     if (uniqueARIds.size() != 1) {
       throw new IllegalArgumentException("All constituents must have the same adjustmentRecord id");
     }
+    lockPactOfAR(adjustmentRecordIds.get(0));
 
     // 1. only modify constituents that are in the database
     List<Long> ids = constituents
         .stream()
-        .map(Constituent::getId)
+        .map(c -> resolveConstituentId(c.getId(), adjustmentRecordIds.get(0)))
         .collect(Collectors.toList());
 
     List<Constituent> newCons = cRepo
@@ -234,9 +392,12 @@ public class ConstituentService {
     return newCons;
   }
 
-  public Optional<Constituent> modifyConstituent(Long id, ConstituentUpdate dto) {
+  @Transactional(rollbackFor = Exception.class)
+  public Optional<Constituent> modifyConstituent(Long id, Long adjustmentRecordId, ConstituentUpdate dto) {
+    lockPactsOf(List.of(id), adjustmentRecordId);
+
     return cRepo
-        .findById(id)
+        .findById(resolveConstituentId(id, adjustmentRecordId))
         .map(c -> {
           if (dto.currentFactor() != null) {
             c.setCurrentFactor(dto.currentFactor());
@@ -251,32 +412,87 @@ public class ConstituentService {
             c.setMarketValue(dto.marketValue());
           }
 
-          return cRepo.save(c);
+          Constituent saved = cRepo.save(c);
+          eventPublisher.publishEvent(
+              new PortfolioChangedEvent(saved.getAdjustmentRecord().getPact().getId(), saved.getAdjRecordId()));
+          return saved;
         });
 
   }
 
+  /**
+   * Bulk market data ingestion. Applies prices to all unsettled constituents
+   * holding the symbols, then recalculates the performance and accumulated
+   * performance once per affected adjustment record.
+   *
+   * @param prices: one per symbol
+   * @return
+   */
+  @Transactional(rollbackFor = Exception.class)
+  public ConstituentPriceUpdateResult updateUnsettledPrices(List<ConstituentPriceUpdate> prices) {
+    // 0. validate prices
+    List<String> symbols = prices
+        .stream()
+        .map(ConstituentPriceUpdate::symbol)
+        .collect(Collectors.toList());
+    if (symbols.contains(null)) {
+      throw new IllegalArgumentException("Symbol cannot be null");
+    }
+    if (Sets.newHashSet(symbols).size() != symbols.size()) {
+      throw new IllegalArgumentException("Symbols must be unique");
+    }
+
+    // 1. affected unsettled adjustment records
+    List<Long> adjustmentRecordIds = cRepo.findUnsettledARIdsBySymbols(symbols);
+    if (adjustmentRecordIds.isEmpty()) {
+      return new ConstituentPriceUpdateResult(0, List.of());
+    }
+
+    // 2. lock all affected pacts at once, then set-based update, a statement per
+    // symbol
+    aggregateLockService.lockPacts(adjustmentRecordService
+        .getARsByIds(adjustmentRecordIds)
+        .stream()
+        .map(ar -> ar.getPact().getId())
+        .collect(Collectors.toList()));
+    int count = cRepo.updateUnsettledPrices(prices);
+
+    // 3. recalculate once per adjustment record
+    cRepo
+        .findByAdjustmentRecordIdIn(adjustmentRecordIds)
+        .stream()
+        .collect(Collectors.groupingBy(Constituent::getAdjRecordId))
+        .values()
+        .forEach(this::rawMutation);
+
+    return new ConstituentPriceUpdateResult(count, adjustmentRecordIds);
+  }
+
   @Transactional(rollbackFor = Exception.class)
-  public void deleteConstituent(Long id) {
+  public void deleteConstituent(Long id, Long adjustmentRecordId) {
     // 0. find constituent and get adjustmentRecordId
+    lockPactsOf(List.of(id), adjustmentRecordId);
     Constituent c = cRepo
-        .findById(id)
+        .findById(resolveConstituentId(id, adjustmentRecordId))
         .orElseThrow(() -> new RuntimeException(
             String.format("Constituent %d not found", id)));
-    Long adjustmentRecordId = c.getAdjRecordId();
 
     // 1. delete constituent. Since we've called findById, here can be sure that the
     // constituent is deleted.
-    cRepo.deleteById(id);
+    cRepo.deleteById(c.getId());
 
     // 2. common mutation
-    commonMutation(adjustmentRecordId);
+    commonMutation(c.getAdjRecordId());
   }
 
   @Transactional(rollbackFor = Exception.class)
-  public void deleteConstituents(List<Long> ids) {
+  public void deleteConstituents(List<Long> ids, Long adjustmentRecordId) {
     // 0. find constituents and get adjustmentRecordId
-    List<Constituent> cs = cRepo.findAllById(ids);
+    lockPactsOf(ids, adjustmentRecordId);
+    List<Constituent> cs = cRepo.findAllById(ids
+        .stream()
+        .map(id -> resolveConstituentId(id, adjustmentRecordId))
+        .collect(Collectors.toList()));
     List<Long> adjustmentRecordIds = cs
         .stream()
         .map(Constituent::getAdjRecordId)
@@ -295,6 +511,179 @@ public class ConstituentService {
     commonMutation(adjustmentRecordIds.get(0));
   }
 
+  // =======================================================================
+  // Snapshot methods
+  //
+  // called by internal services
+  // =======================================================================
+
+  /**
+   * Store the constituents of a just settled adjustment record as a delta
+   * against its parent record, i.e. delete the ones unchanged since the parent.
+   * No-op if delta encoding is disabled, or if the snapshot cannot be encoded
+   * (the pact's first settlement, a dropped symbol or a chain of deltas too
+   * long to resolve).
+   *
+   * @param settledAr
+   * @param parentAr:   nullable, the previous settled record
+   * @param parentCons: full constituents of `parentAr`
+   * @param settledCons constituents of `settledAr`
+   */
+  @Transactional(rollbackFor = Exception.class)
+  public void encodeSettledSnapshot(
+      AdjustmentRecord settledAr,
+      AdjustmentRecord parentAr,
+      List<Constituent> parentCons,
+      List<Constituent> settledCons) {
+    if (!deltaEncoding || parentAr == null) {
+      return;
+    }
+
+    int depth = parentAr.getSnapshotDepth() == null ? 1 : parentAr.getSnapshotDepth() + 1;
+    if (depth > maxDeltaDepth || !PortfolioSnapshotHelper.isDeltaEncodable(parentCons, settledCons)) {
+      return;
+    }
+
+    Set<Long> changedIds = PortfolioSnapshotHelper
+        .changed(parentCons, settledCons)
+        .stream()
+        .map(Constituent::getId)
+        .collect(Collectors.toSet());
+    List<Long> unchangedIds = settledCons
+        .stream()
+        .map(Constituent::getId)
+        .filter(id -> !changedIds.contains(id))
+        .collect(Collectors.toList());
+
+    cRepo.deleteAllByIdInBatch(unchangedIds);
+
+    settledAr.setSnapshotBaseId(parentAr.getId());
+    settledAr.setSnapshotDepth(depth);
+    adjustmentRecordService.saveAR(settledAr);
+  }
+
+  /**
+   * Store a delta snapshot, and the delta snapshots based on it, in full. Called
+   * before mutating the constituents of an adjustment record.
+   *
+   * @param adjustmentRecordId
+   */
+  @Transactional(rollbackFor = Exception.class)
+  public void materializeSnapshot(Long adjustmentRecordId) {
+    AdjustmentRecord ar = adjustmentRecordService.getARById(adjustmentRecordId).orElse(null);
+    // an unsettled record is neither a delta nor a parent
+    if (ar == null || ar.getIsUnsettled() == Boolean.TRUE) {
+      return;
+    }
+
+    // children first, they are rebuilt from this record as it is now
+    adjustmentRecordService
+        .getARsBySnapshotBaseId(adjustmentRecordId)
+        .forEach(this::materialize);
+
+    if (ar.isDeltaSnapshot()) {
+      materialize(ar);
+    }
+  }
+
+  /**
+   * Id of the stored constituent a by-id mutation applies to, once its record
+   * can be mutated (see `materializeSnapshot`).
+   *
+   * A rebuilt delta snapshot returns its inherited constituents with their
+   * parent's ids. If `id` is such a constituent of `adjustmentRecordId`, the
+   * delta is stored in full, and the id of its own constituent (same symbol)
+   * is returned instead.
+   *
+   * @param id
+   * @param adjustmentRecordId: nullable, the record the constituent has been
+   *                            read from; `id`'s own record if null
+   * @return `id` if it is not inherited, or not found
+   */
+  private Long resolveConstituentId(Long id, Long adjustmentRecordId) {
+    Constituent c = cRepo.findById(id).orElse(null);
+    if (c == null) {
+      return id;
+    }
+
+    boolean isInherited = adjustmentRecordId != null
+        && !adjustmentRecordId.equals(c.getAdjRecordId())
+        && getConstituentsByAdjustmentRecordId(adjustmentRecordId)
+            .stream()
+            .anyMatch(ic -> id.equals(ic.getId()));
+    if (!isInherited) {
+      materializeSnapshot(c.getAdjRecordId());
+      return id;
+    }
+
+    materializeSnapshot(adjustmentRecordId);
+    return cRepo
+        .findByAdjustmentRecordId(adjustmentRecordId)
+        .stream()
+        .filter(sc -> sc.getSymbol().equals(c.getSymbol()))
+        .map(Constituent::getId)
+        .findFirst()
+        .orElseThrow(() -> new RuntimeException(
+            String.format("Constituent %d not found in adjustment record %d", id, adjustmentRecordId)));
+  }
+
+  private void materialize(AdjustmentRecord ar) {
+    Long arId = ar.getId();
+    Set<Long> storedIds = cRepo
+        .findByAdjustmentRecordId(arId)
+        .stream()
+        .map(Constituent::getId)
+        .collect(Collectors.toSet());
+
+    // inherited constituents carry their parent's ids
+    List<Constituent> inherited = getConstituentsByAdjustmentRecordId(arId)
+        .stream()
+        .filter(c -> !storedIds.contains(c.getId()))
+        .map(c -> {
+          Constituent nc = new Constituent(c);
+          nc.setId(null);
+          nc.setAdjustmentRecord(ar);
+          return nc;
+        })
+        .collect(Collectors.toList());
+    cRepo.saveAll(inherited);
+
+    ar.setSnapshotBaseId(null);
+    ar.setSnapshotDepth(null);
+    adjustmentRecordService.saveAR(ar);
+
+    eventPublisher.publishEvent(new PortfolioChangedEvent(ar.getPact().getId(), arId));
+  }
+
+  // =======================================================================
+  // Lock methods
+  //
+  // the pact is looked up by ids only, nothing is loaded before it is locked.
+  // A missing record is left to the mutation to report
+  // =======================================================================
+
+  private void lockPactOfAR(Long adjustmentRecordId) {
+    lockPactsOfARs(List.of(adjustmentRecordId));
+  }
+
+  private void lockPactsOfARs(List<Long> adjustmentRecordIds) {
+    aggregateLockService.lockPacts(adjustmentRecordIds
+        .stream()
+        .map(adjustmentRecordService::getPactIdByARId)
+        .flatMap(Optional::stream)
+        .collect(Collectors.toList()));
+  }
+
+  // by-id mutations: the pact of the record the constituents have been read
+  // from, or of their own records
+  private void lockPactsOf(List<Long> ids, Long adjustmentRecordId) {
+    if (adjustmentRecordId != null) {
+      lockPactOfAR(adjustmentRecordId);
+    } else {
+      aggregateLockService.lockPacts(cRepo.findPactIdsByIds(ids));
+    }
+  }
+
   // =======================================================================
   // DANGEROUS! Mutation methods
   //
@@ -305,16 +694,26 @@ public class ConstituentService {
   // IMPORTANT: adjustRecord is not deleted
   @Transactional(rollbackFor = Exception.class)
   public void deleteConstituentsByAdjustmentRecordId(Long adjustmentRecordId) {
+    lockPactOfAR(adjustmentRecordId);
+    materializeSnapshot(adjustmentRecordId);
+
     cRepo.deleteByAdjustmentRecordId(adjustmentRecordId);
 
     pRepo.deleteByAdjustmentRecordId(adjustmentRecordId);
+
+    eventPublisher.publishEvent(new PortfolioChangedEvent(null, adjustmentRecordId));
   }
 
   @Transactional(rollbackFor = Exception.class)
   public void deleteConstituentsByAdjustmentRecordIds(List<Long> adjustmentRecordIds) {
+    lockPactsOfARs(adjustmentRecordIds);
+    adjustmentRecordIds.forEach(this::materializeSnapshot);
+
     cRepo.deleteByAdjustmentRecordIdIn(adjustmentRecordIds);
 
     pRepo.deleteByAdjustmentRecordIdIn(adjustmentRecordIds);
+
+    adjustmentRecordIds.forEach(id -> eventPublisher.publishEvent(new PortfolioChangedEvent(null, id)));
   }
 
 }
@@ -18,8 +18,10 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.B
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.ConstituentRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PactRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -47,6 +49,9 @@ public class PactService {
   @Autowired
   private AccumulatedPerformanceRepository apRepo;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
   // =======================================================================
   // Query methods
   // =======================================================================
@@ -98,9 +103,12 @@ public class PactService {
     accumulatedPerformance.setAdjustCount(0);
     apRepo.save(accumulatedPerformance);
 
+    eventPublisher.publishEvent(new PortfolioChangedEvent(pact.getId(), null));
+
     return pact;
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public Optional<Pact> updatePact(Long id, Pact portfolioPact) {
     return pRepo.findById(id).map(
         record -> {
@@ -111,10 +119,13 @@ public class PactService {
           record.setEndDate(portfolioPact.getEndDate());
           record.setDescription(portfolioPact.getDescription());
           record.setIsActive(portfolioPact.getIsActive());
-          return pRepo.save(record);
+          Pact saved = pRepo.save(record);
+          eventPublisher.publishEvent(new PortfolioChangedEvent(saved.getId(), null));
+          return saved;
         });
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public Optional<Pact> updatePact(String alias, Pact portfolioPact) {
     return pRepo.findByAlias(alias).map(
         record -> {
@@ -125,7 +136,9 @@ public class PactService {
           record.setEndDate(portfolioPact.getEndDate());
           record.setDescription(portfolioPact.getDescription());
           record.setIsActive(portfolioPact.getIsActive());
-          return pRepo.save(record);
+          Pact saved = pRepo.save(record);
+          eventPublisher.publishEvent(new PortfolioChangedEvent(saved.getId(), null));
+          return saved;
         });
   }
 
@@ -161,10 +174,15 @@ public class PactService {
 
     // delete the pact
     pRepo.deleteById(id);
+
+    // all its settled snapshots are gone as well
+    eventPublisher.publishEvent(new PortfolioChangedEvent(null, null));
   }
 
   public void deletePact(String alias) {
     pRepo.deleteByAlias(alias);
+
+    eventPublisher.publishEvent(new PortfolioChangedEvent(null, null));
   }
 
 }
@@ -0,0 +1,161 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ExecutorConfig;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PactRepository;
+import com.google.common.collect.Lists;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * PortfolioBatchService
+ *
+ * Settle many pacts at once:
+ *
+ * 1. Pick the pacts to settle (existing, with an unsettled adjustment record)
+ * with a few multi-pact queries.
+ *
+ * 2. Settle them a chunk at a time on a bounded executor, each chunk in its
+ * own transaction. The chunk's pacts are locked at once, then deferred
+ * recalculations are drained and the adjustment records and constituents read
+ * by grouped queries (see `PortfolioService.settle`); a pact settled
+ * concurrently since being picked fails instead of being settled twice.
+ *
+ * 3. A chunk which failed as a whole is settled again one pact per
+ * transaction, so that a failed pact does not affect the others.
+ */
+@Service
+public class PortfolioBatchService {
+
+  private static final Logger logger = LogManager.getLogger(PortfolioBatchService.class);
+
+  @Autowired
+  private PactRepository pactRepository;
+
+  @Autowired
+  private PactService pactService;
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  private PortfolioService portfolioService;
+
+  @Autowired
+  @Qualifier(ExecutorConfig.PORTFOLIO_SETTLE_EXECUTOR)
+  private ThreadPoolTaskExecutor settleExecutor;
+
+  @Value("${portfolio.settle.chunk-size:20}")
+  private int chunkSize;
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  /**
+   * Settle pacts in parallel.
+   *
+   * @param pactIds:     ignored if `isAllActive` is true
+   * @param isAllActive: settle all active pacts
+   * @param settleDate
+   * @return a result per requested pact, in request order
+   */
+  public List<SettlePortfolioResult> batchSettle(List<Long> pactIds, boolean isAllActive, LocalDate settleDate) {
+    // 0. resolve pacts
+    List<Pact> pacts = isAllActive
+        ? pactService.getAllPacts(true)
+        : pactRepository.findAllById(pactIds);
+    Set<Long> existedIds = pacts
+        .stream()
+        .map(Pact::getId)
+        .collect(Collectors.toSet());
+    List<Long> ids = isAllActive
+        ? pacts.stream().map(Pact::getId).collect(Collectors.toList())
+        : pactIds.stream().distinct().collect(Collectors.toList());
+
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+
+    // 1. pick the pacts to settle with a grouped read. Everything a settlement
+    // depends on is read again under the pacts' locks
+    Map<Long, Long> unsettledArIds = existedIds.isEmpty()
+        ? Map.of()
+        : adjustmentRecordService
+            .getUnsettledARs(new ArrayList<>(existedIds))
+            .stream()
+            .collect(Collectors.toMap(ar -> ar.getPact().getId(), AdjustmentRecord::getId, (a, b) -> a));
+
+    // 2. settle the picked pacts a chunk at a time, each chunk in its own
+    // transaction
+    List<Long> picked = ids
+        .stream()
+        .filter(unsettledArIds::containsKey)
+        .collect(Collectors.toList());
+    List<CompletableFuture<Map<Long, SettlePortfolioResult>>> futures = new ArrayList<>();
+    for (List<Long> chunk : Lists.partition(picked, chunkSize)) {
+      Map<Long, Long> chunkArIds = new LinkedHashMap<>();
+      chunk.forEach(pactId -> chunkArIds.put(pactId, unsettledArIds.get(pactId)));
+      futures.add(CompletableFuture.supplyAsync(() -> settleChunk(chunkArIds, settleDate), settleExecutor));
+    }
+    Map<Long, SettlePortfolioResult> results = new HashMap<>();
+    futures.forEach(f -> results.putAll(f.join()));
+
+    // 3. in request order
+    return ids
+        .stream()
+        .map(pactId -> {
+          if (!existedIds.contains(pactId)) {
+            return SettlePortfolioResult.fromError(pactId, "No pact found for id: " + pactId);
+          }
+          if (!unsettledArIds.containsKey(pactId)) {
+            return SettlePortfolioResult.fromError(pactId,
+                "No unsettled adjustment record found for pactId: " + pactId);
+          }
+          return results.get(pactId);
+        })
+        .collect(Collectors.toList());
+  }
+
+  private Map<Long, SettlePortfolioResult> settleChunk(Map<Long, Long> unsettledArIds, LocalDate settleDate) {
+    try {
+      return portfolioService.settle(unsettledArIds, settleDate);
+    } catch (RuntimeException e) {
+      // the chunk has been rolled back, its pacts are settled one by one
+      logger.warn("Batch settle failed for pacts {}, settling them one by one: {}",
+          unsettledArIds.keySet(),
+          e.getMessage());
+    }
+
+    Map<Long, SettlePortfolioResult> results = new HashMap<>();
+    unsettledArIds.forEach((pactId, unsettledArId) -> {
+      try {
+        PortfolioDetail detail = portfolioService.settle(pactId, unsettledArId, settleDate);
+        results.put(pactId, SettlePortfolioResult.fromSettledDetail(pactId, unsettledArId, detail));
+      } catch (RuntimeException e) {
+        logger.warn("Batch settle failed for pact {}: {}", pactId, e.getMessage());
+        results.put(pactId, SettlePortfolioResult.fromError(pactId, e.getMessage()));
+      }
+    });
+    return results;
+  }
+}
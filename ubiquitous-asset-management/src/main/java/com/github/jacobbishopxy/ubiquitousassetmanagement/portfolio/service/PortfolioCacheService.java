@@ -0,0 +1,243 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ReadWriteRoutingDataSource;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDiff;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioTimeseriesPoint;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * PortfolioCacheService
+ *
+ * In-process cache of portfolio overviews and details, invalidated by
+ * `PortfolioChangedEvent` once the change is committed.
+ *
+ * 1. overviews: keyed by active flag, any change invalidates all of them.
+ *
+ * 2. unsettled/latest settled details: keyed by pact id, invalidated by any
+ * change of the pact.
+ *
+ * 3. settled details: keyed by adjustment record id. A settled snapshot is
+ * immutable, so it is only evicted by size or when the record itself is
+ * changed (e.g. cancel settle). Notice that its accumulated performance is not
+ * part of the snapshot, and is attached by the caller on every read.
+ *
+ * 4. time series: keyed by pact id, invalidated by any change of the pact.
+ *
+ * 5. snapshots: full constituents rebuilt from delta snapshots, keyed by
+ * adjustment record id, evicted like settled details.
+ *
+ * 6. diffs: diffs between two settled snapshots, keyed by both adjustment record
+ * ids, evicted when either record is changed.
+ *
+ * With a read replica, a value loaded within `portfolio.cache.replica-lag` ms
+ * of an invalidation is read from the primary, so that the cache is not
+ * refilled from a replica which has not applied the change yet. A replica
+ * lagging more than that may still refill the cache with stale values, until
+ * the next change.
+ *
+ * Hit/miss metrics are published under `cache.*`, tagged by cache name.
+ */
+@Service
+public class PortfolioCacheService {
+
+  @Autowired
+  private ObjectProvider<MeterRegistry> meterRegistry;
+
+  @Value("${portfolio.cache.enabled:true}")
+  private boolean enabled;
+
+  @Value("${portfolio.cache.detail-size:1000}")
+  private long detailSize;
+
+  @Value("${portfolio.cache.settled-detail-size:10000}")
+  private long settledDetailSize;
+
+  @Value("${portfolio.cache.snapshot-size:1000}")
+  private long snapshotSize;
+
+  @Value("${portfolio.cache.diff-size:1000}")
+  private long diffSize;
+
+  @Value("${portfolio.cache.replica-lag:5000}")
+  private long replicaLag;
+
+  private Cache<String, List<PortfolioOverview>> overviews;
+
+  private Cache<Long, PortfolioDetail> unsettledDetails;
+
+  private Cache<Long, PortfolioDetail> latestSettledDetails;
+
+  private Cache<Long, PortfolioDetail> settledDetails;
+
+  private Cache<Long, List<PortfolioTimeseriesPoint>> timeseries;
+
+  private Cache<Long, List<Constituent>> snapshots;
+
+  private record DiffKey(Long from, Long to) {
+    boolean contains(Long adjustmentRecordId) {
+      return from.equals(adjustmentRecordId) || to.equals(adjustmentRecordId);
+    }
+  }
+
+  private Cache<DiffKey, PortfolioDiff> diffs;
+
+  // increased by every invalidation. A value loaded before an invalidation is
+  // not cached, since it might have been read before the change is committed.
+  private long generation = 0;
+
+  // when the last invalidation happened, guarded by `this`
+  private long invalidatedAt = 0;
+
+  @PostConstruct
+  private void init() {
+    overviews = build(16, "portfolio.overviews");
+    unsettledDetails = build(detailSize, "portfolio.details.unsettled");
+    latestSettledDetails = build(detailSize, "portfolio.details.latest_settled");
+    settledDetails = build(settledDetailSize, "portfolio.details.settled");
+    timeseries = build(detailSize, "portfolio.timeseries");
+    snapshots = build(snapshotSize, "portfolio.snapshots");
+    diffs = build(diffSize, "portfolio.diffs");
+  }
+
+  private <K, V> Cache<K, V> build(long maximumSize, String name) {
+    Cache<K, V> cache = CacheBuilder
+        .newBuilder()
+        .maximumSize(maximumSize)
+        .recordStats()
+        .build();
+
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      GuavaCacheMetrics.monitor(registry, cache, name);
+    }
+
+    return cache;
+  }
+
+  // =======================================================================
+  // Query methods
+  // =======================================================================
+
+  public List<PortfolioOverview> getOverviews(Boolean isActive, Supplier<List<PortfolioOverview>> loader) {
+    return get(overviews, String.valueOf(isActive), loader);
+  }
+
+  public PortfolioDetail getUnsettledDetail(Long pactId, Supplier<PortfolioDetail> loader) {
+    return get(unsettledDetails, pactId, loader);
+  }
+
+  public PortfolioDetail getLatestSettledDetail(Long pactId, Supplier<PortfolioDetail> loader) {
+    return get(latestSettledDetails, pactId, loader);
+  }
+
+  // details of unsettled adjustment records are returned but not cached
+  public PortfolioDetail getSettledDetail(Long adjustmentRecordId, Supplier<PortfolioDetail> loader) {
+    return get(settledDetails, adjustmentRecordId, loader,
+        d -> d.adjustmentRecord().getIsUnsettled() != Boolean.TRUE);
+  }
+
+  public List<PortfolioTimeseriesPoint> getTimeseries(Long pactId, Supplier<List<PortfolioTimeseriesPoint>> loader) {
+    return get(timeseries, pactId, loader);
+  }
+
+  // cached constituents are shared, callers get copies
+  public List<Constituent> getSnapshot(Long adjustmentRecordId, Supplier<List<Constituent>> loader) {
+    return get(snapshots, adjustmentRecordId, loader)
+        .stream()
+        .map(Constituent::new)
+        .collect(Collectors.toList());
+  }
+
+  // only diffs between settled snapshots should be cached
+  public PortfolioDiff getSettledDiff(Long fromAdjustmentRecordId, Long toAdjustmentRecordId,
+      Supplier<PortfolioDiff> loader) {
+    return get(diffs, new DiffKey(fromAdjustmentRecordId, toAdjustmentRecordId), loader);
+  }
+
+  private <K, V> V get(Cache<K, V> cache, K key, Supplier<V> loader) {
+    return get(cache, key, loader, v -> true);
+  }
+
+  private <K, V> V get(Cache<K, V> cache, K key, Supplier<V> loader, Predicate<V> isCacheable) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    V value = cache.getIfPresent(key);
+    if (value != null) {
+      return value;
+    }
+
+    long g;
+    boolean isRecentlyInvalidated;
+    synchronized (this) {
+      g = generation;
+      isRecentlyInvalidated = System.currentTimeMillis() - invalidatedAt < replicaLag;
+    }
+    value = isRecentlyInvalidated
+        ? ReadWriteRoutingDataSource.onPrimary(loader)
+        : loader.get();
+    synchronized (this) {
+      if (g == generation && value != null && isCacheable.test(value)) {
+        cache.put(key, value);
+      }
+    }
+
+    return value;
+  }
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPortfolioChanged(PortfolioChangedEvent event) {
+    synchronized (this) {
+      generation++;
+      invalidatedAt = System.currentTimeMillis();
+
+      overviews.invalidateAll();
+
+      if (event.isAnyPact()) {
+        unsettledDetails.invalidateAll();
+        latestSettledDetails.invalidateAll();
+        timeseries.invalidateAll();
+      } else {
+        unsettledDetails.invalidate(event.pactId());
+        latestSettledDetails.invalidate(event.pactId());
+        timeseries.invalidate(event.pactId());
+      }
+
+      if (event.adjustmentRecordId() != null) {
+        settledDetails.invalidate(event.adjustmentRecordId());
+        snapshots.invalidate(event.adjustmentRecordId());
+        diffs.asMap().keySet().removeIf(k -> k.contains(event.adjustmentRecordId()));
+      } else if (event.isAnyPact()) {
+        settledDetails.invalidateAll();
+        snapshots.invalidateAll();
+        diffs.invalidateAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ExecutorConfig;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AccumulatedPerformanceRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * PortfolioDetailService
+ *
+ * Assembles a `PortfolioDetail` from its five independent parts (benchmarks,
+ * constituents, performance, adjustment infos and accumulated performance).
+ *
+ * In concurrent mode (default), each part is fetched on a bounded executor.
+ * Since the worker threads have no bound persistence context, each fetch runs
+ * in its own read-only transaction (and connection), hence on the replica if
+ * any, unless the caller is forced to the primary. A caller within a
+ * transaction already holds a connection, waiting for others would let
+ * concurrent callers exhaust the pool: its parts are fetched in its own
+ * transaction instead (as `spring.jpa.open-in-view` is disabled, a request
+ * thread holds none).
+ *
+ * Every fetch is timed under `portfolio.detail.fetch`, tagged by `part`.
+ */
+@Service
+public class PortfolioDetailService {
+
+  public static final String FETCH_TIMER = "portfolio.detail.fetch";
+
+  @Autowired
+  private BenchmarkService benchmarkService;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private PerformanceService performanceService;
+
+  @Autowired
+  private AdjustmentInfoService adjustmentInfoService;
+
+  @Autowired
+  private AccumulatedPerformanceRepository accumulatedPerformanceRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  @Qualifier(ExecutorConfig.PORTFOLIO_DETAIL_EXECUTOR)
+  private ThreadPoolTaskExecutor detailExecutor;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${portfolio.detail.concurrent:true}")
+  private boolean concurrent;
+
+  private TransactionTemplate readOnlyTransaction;
+
+  @PostConstruct
+  private void init() {
+    readOnlyTransaction = new TransactionTemplate(transactionManager);
+    readOnlyTransaction.setReadOnly(true);
+  }
+
+  // =======================================================================
+  // Query methods
+  // =======================================================================
+
+  /**
+   * Assemble a portfolio detail of an adjustment record.
+   *
+   * @param ar:     adjustment record
+   * @param pactId: pact id of the adjustment record
+   * @return
+   */
+  public PortfolioDetail assemble(AdjustmentRecord ar, Long pactId) {
+    Long arId = ar.getId();
+    boolean async = concurrent && !TransactionSynchronizationManager.isActualTransactionActive();
+
+    CompletableFuture<List<Benchmark>> benchmarks = fetch(
+        async,
+        "benchmarks",
+        () -> benchmarkService.getBenchmarksByAdjustmentRecordId(arId));
+    CompletableFuture<List<Constituent>> constituents = fetch(
+        async,
+        "constituents",
+        () -> constituentService.getConstituentsByAdjustmentRecordId(arId));
+    // if performance is null, return empty performance
+    CompletableFuture<Performance> performance = fetch(
+        async,
+        "performance",
+        () -> performanceService.getPerformanceByAdjustmentRecordId(arId).orElse(new Performance()));
+    CompletableFuture<List<AdjustmentInfo>> adjustmentInfos = fetch(
+        async,
+        "adjustment_infos",
+        () -> adjustmentInfoService.getAdjustmentInfosByAdjustmentRecordId(arId));
+    CompletableFuture<AccumulatedPerformance> accumulatedPerformance = fetch(
+        async,
+        "accumulated_performance",
+        () -> accumulatedPerformanceRepository.findByPactId(pactId).orElse(new AccumulatedPerformance()));
+
+    return new PortfolioDetail(
+        ar,
+        join(constituents),
+        join(benchmarks),
+        join(performance),
+        join(adjustmentInfos),
+        join(accumulatedPerformance));
+  }
+
+  private <T> CompletableFuture<T> fetch(boolean async, String part, Supplier<T> supplier) {
+    Timer timer = Timer
+        .builder(FETCH_TIMER)
+        .description("Time spent on fetching a part of portfolio detail")
+        .tag("part", part)
+        .register(meterRegistry);
+
+    if (!async) {
+      return CompletableFuture.completedFuture(timer.record(supplier));
+    }
+
+    return CompletableFuture.supplyAsync(
+        () -> timer.record(() -> readOnlyTransaction.execute(status -> supplier.get())),
+        detailExecutor);
+  }
+
+  // rethrow the original exception, as the sequential fetching did
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDiff;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDiffEntry;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioAdjustmentHelper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * PortfolioDiffService
+ *
+ * Diff between the constituents of any two adjustment records, of the same pact
+ * or not. Diffs between two settled (immutable) snapshots are memoized.
+ */
+@Service
+public class PortfolioDiffService {
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private PortfolioCacheService portfolioCacheService;
+
+  // =======================================================================
+  // Query methods
+  // =======================================================================
+
+  /**
+   * Get the joined, left, increased and decreased constituents from one
+   * adjustment record to another.
+   *
+   * @param fromAdjustmentRecordId
+   * @param toAdjustmentRecordId
+   * @return
+   */
+  public PortfolioDiff getDiff(Long fromAdjustmentRecordId, Long toAdjustmentRecordId) {
+    AdjustmentRecord from = getAR(fromAdjustmentRecordId);
+    AdjustmentRecord to = getAR(toAdjustmentRecordId);
+
+    if (from.getIsUnsettled() == Boolean.TRUE || to.getIsUnsettled() == Boolean.TRUE) {
+      return loadDiff(fromAdjustmentRecordId, toAdjustmentRecordId);
+    }
+
+    return portfolioCacheService.getSettledDiff(
+        fromAdjustmentRecordId,
+        toAdjustmentRecordId,
+        () -> loadDiff(fromAdjustmentRecordId, toAdjustmentRecordId));
+  }
+
+  private PortfolioDiff loadDiff(Long fromAdjustmentRecordId, Long toAdjustmentRecordId) {
+    List<Constituent> fromCons = constituentService.getConstituentsByAdjustmentRecordId(fromAdjustmentRecordId);
+    List<Constituent> toCons = constituentService.getConstituentsByAdjustmentRecordId(toAdjustmentRecordId);
+
+    List<PortfolioDiffEntry> entries = PortfolioAdjustmentHelper
+        .diff(fromCons, toCons)
+        .stream()
+        .map(PortfolioDiffEntry::fromAdjustmentInfo)
+        .collect(Collectors.toList());
+
+    return new PortfolioDiff(fromAdjustmentRecordId, toAdjustmentRecordId, entries);
+  }
+
+  private AdjustmentRecord getAR(Long adjustmentRecordId) {
+    return adjustmentRecordService
+        .getARById(adjustmentRecordId)
+        .orElseThrow(() -> new IllegalArgumentException(
+            "No adjustment record found for id: " + adjustmentRecordId));
+  }
+}
@@ -5,10 +5,14 @@
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
@@ -17,17 +21,29 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Bench
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AccumulatedPerformanceDrift;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AccumulatedPerformanceRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentInfoRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentRecordRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.BenchmarkRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.ConstituentRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PactRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AdjustmentRecordService.KeysetPage;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioAdjustmentHelper;
-import com.google.common.collect.HashBiMap;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
+
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -40,7 +56,8 @@ import org.springframework.transaction.annotation.Transactional;
  * 1. Settle an existing portfolio. AdjustmentRecord/Performance is created. The
  * actual operation is to get the latest adjustment record's date and version,
  * and according to its id, copy the related portfolio benchmarks and
- * constituents to a new date. And then, create a new adjustment record.
+ * constituents to a new date. And then, create a new adjustment record. The
+ * copy is made by the database, only the adjustment infos are calculated here.
  *
  * 2. Cancel a portfolio settle. AdjustmentRecord/Performance is deleted. The
  * actual operation is to get the latest adjustment record's date and version,
@@ -51,9 +68,14 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class PortfolioService {
 
+	public static final String SETTLE_TIMER = "portfolio.settle";
+
 	@Autowired
 	private PactService pactService;
 
+	@Autowired
+	private PactRepository pactRepository;
+
 	@Autowired
 	private AdjustmentRecordRepository adjustmentRecordRepository;
 
@@ -81,6 +103,9 @@ public class PortfolioService {
 	@Autowired
 	private PerformanceService performanceService;
 
+	@Autowired
+	private PerformanceRepository performanceRepository;
+
 	@Autowired
 	private AccumulatedPerformanceRepository accumulatedPerformanceRepository;
 
@@ -90,8 +115,38 @@ public class PortfolioService {
 	@Autowired
 	private RecalculateService recalculateService;
 
+	@Autowired
+	private PortfolioCacheService portfolioCacheService;
+
+	@Autowired
+	private PortfolioDetailService portfolioDetailService;
+
+	@Autowired
+	private RecalculateScheduler recalculateScheduler;
+
+	@Autowired
+	private AggregateLockService aggregateLockService;
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Timer settleTimer;
+
+	@PostConstruct
+	private void init() {
+		settleTimer = Timer
+				.builder(SETTLE_TIMER)
+				.description("Time spent on settling a portfolio, from its loaded source to the new unsettled record")
+				.register(meterRegistry);
+	}
+
 	// =======================================================================
 	// Query methods
+	//
+	// read-only transactions are routed to the replica if configured
 	// =======================================================================
 
 	/**
@@ -100,35 +155,48 @@ public class PortfolioService {
 	 * @param isActive
 	 * @return
 	 */
+	@Transactional(readOnly = true)
 	public List<PortfolioOverview> getPortfolioOverviews(Boolean isActive) {
-		// get all activate(true)/inactivate(false)/all(null) portfolios' pacts
-		List<Pact> pacts = pactService.getAllPacts(isActive);
-		List<Long> pactIds = pacts.stream().map(Pact::getId).collect(Collectors.toList());
-
-		// IMPORTANT: get all unsettled adjustment records, we assume that each pact has
-		// only one unsettled adjustment record
-		List<AdjustmentRecord> ars = adjustmentRecordService.getUnsettledARs(pactIds);
-		List<Long> arIds = ars.stream().map(AdjustmentRecord::getId).collect(Collectors.toList());
-
-		// snapshot performances, sorted by arIds
-		List<Performance> pfm = performanceService.getPerformancesByAdjustmentRecordIds(arIds);
-		// accumulated performances, sorted by pactIds
-		List<AccumulatedPerformance> aPfm = accumulatedPerformanceRepository.findByPactIdIn(pactIds);
-		Map<Long, AccumulatedPerformance> aPfmMap = HashBiMap.create(
-				aPfm
-						.stream()
-						.collect(Collectors.toMap(AccumulatedPerformance::getThePactId, ap -> ap)));
-
-		return pfm
-				.stream()
-				.map(p -> {
-					Pact pact = p.getAdjustmentRecord().getPact();
-					AccumulatedPerformance optAp = aPfmMap.get(pact.getId());
-					AccumulatedPerformance ap = optAp == null ? new AccumulatedPerformance() : optAp;
+		// all activate(true)/inactivate(false)/all(null) portfolios' unsettled
+		// performances, joined with pact and accumulated performance in one query.
+		// IMPORTANT: we assume that each pact has only one unsettled adjustment record
+		return portfolioCacheService.getOverviews(
+				isActive,
+				() -> pactRepository.findPortfolioOverviews(isActive, null, null, Pageable.unpaged()));
+	}
 
-					return PortfolioOverview.fromPactAndPerformance(pact, p, ap);
-				})
-				.collect(Collectors.toList());
+	/**
+	 * Get a page of portfolios' overviews, filtered by active flag, promoter and
+	 * industry. Null filters are ignored.
+	 *
+	 * @param isActive
+	 * @param promoterEmail
+	 * @param industryInfoId
+	 * @param pageable
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public List<PortfolioOverview> getPortfolioOverviews(
+			Boolean isActive,
+			String promoterEmail,
+			Integer industryInfoId,
+			Pageable pageable) {
+		return pactRepository.findPortfolioOverviews(isActive, promoterEmail, industryInfoId, pageable);
+	}
+
+	/**
+	 * Get the overviews of the given pacts, bypassing the cache. Pacts without
+	 * unsettled adjustment record are missing.
+	 *
+	 * @param pactIds
+	 * @return
+	 */
+	@Transactional(readOnly = true)
+	public List<PortfolioOverview> getPortfolioOverviewsByPactIds(List<Long> pactIds) {
+		if (pactIds.isEmpty()) {
+			return List.of();
+		}
+		return pactRepository.findPortfolioOverviewsByPactIds(pactIds);
 	}
 
 	/**
@@ -149,6 +217,20 @@ public class PortfolioService {
 		return adjustmentRecordService.getARSortDesc(pactId, pageable);
 	}
 
+	/**
+	 * Get a page of adjustment records by pact id, with keyset pagination.
+	 *
+	 * @param pactId
+	 * @param isAdjustedOnly
+	 * @param continuationToken: null for the first page
+	 * @param size
+	 * @return
+	 */
+	public KeysetPage getAdjustmentRecordsByPactId(Long pactId, boolean isAdjustedOnly, String continuationToken,
+			int size) {
+		return adjustmentRecordService.getARSortDescAfter(pactId, isAdjustedOnly, continuationToken, size);
+	}
+
 	/**
 	 * Get an overview of a portfolio by given adjustmentRecord id (id list can be
 	 * found in Pact entity).
@@ -156,6 +238,7 @@ public class PortfolioService {
 	 * @param adjustmentRecordId: nullable. if null means latest adjustment record
 	 * @return
 	 */
+	@Transactional(readOnly = true)
 	public Optional<PortfolioOverview> getPortfolioOverview(Long adjustmentRecordId) {
 		return adjustmentRecordService
 				.getARById(adjustmentRecordId)
@@ -180,27 +263,17 @@ public class PortfolioService {
 	 * @return
 	 */
 	public PortfolioDetail getUnsettledPortfolioDetail(Long pactId) {
+		recalculateScheduler.flushPact(pactId);
+
+		return portfolioCacheService.getUnsettledDetail(pactId, () -> loadUnsettledPortfolioDetail(pactId));
+	}
+
+	private PortfolioDetail loadUnsettledPortfolioDetail(Long pactId) {
 		AdjustmentRecord ar = adjustmentRecordService
 				.getUnsettledAR(pactId)
 				.orElseThrow(() -> new RuntimeException(
 						"No unsettled adjustment record found for pact id: " + pactId));
-		Long arId = ar.getId();
-
-		List<Benchmark> benchmarks = benchmarkService
-				.getBenchmarksByAdjustmentRecordId(arId);
-		List<Constituent> constituents = constituentService
-				.getConstituentsByAdjustmentRecordId(arId);
-		// if performance is null, return empty performance
-		Performance performance = performanceService
-				.getPerformanceByAdjustmentRecordId(arId)
-				.orElse(new Performance());
-		List<AdjustmentInfo> adjustmentInfos = adjustmentInfoService
-				.getAdjustmentInfosByAdjustmentRecordId(arId);
-		AccumulatedPerformance accumulatedPerformance = accumulatedPerformanceRepository
-				.findByPactId(pactId)
-				.orElse(new AccumulatedPerformance());
-
-		return new PortfolioDetail(ar, constituents, benchmarks, performance, adjustmentInfos, accumulatedPerformance);
+		return portfolioDetailService.assemble(ar, pactId);
 	}
 
 	/**
@@ -210,61 +283,80 @@ public class PortfolioService {
 	 * @return
 	 */
 	public PortfolioDetail getLatestSettledPortfolioDetail(Long pactId) {
+		recalculateScheduler.flushPact(pactId);
+
+		return portfolioCacheService.getLatestSettledDetail(pactId, () -> loadLatestSettledPortfolioDetail(pactId));
+	}
+
+	private PortfolioDetail loadLatestSettledPortfolioDetail(Long pactId) {
 		AdjustmentRecord ar = adjustmentRecordService
 				.getLatestSettledAR(pactId)
 				.orElseThrow(() -> new RuntimeException(
 						"No latest adjustment record found for pactId: " + pactId));
-		Long arId = ar.getId();
-
-		List<Benchmark> benchmarks = benchmarkService
-				.getBenchmarksByAdjustmentRecordId(arId);
-		List<Constituent> constituents = constituentService
-				.getConstituentsByAdjustmentRecordId(arId);
-		// if performance is null, return empty performance
-		Performance performance = performanceService
-				.getPerformanceByAdjustmentRecordId(arId).orElse(new Performance());
-		List<AdjustmentInfo> adjustmentInfos = adjustmentInfoService
-				.getAdjustmentInfosByAdjustmentRecordId(arId);
-		AccumulatedPerformance accumulatedPerformance = accumulatedPerformanceRepository
-				.findByPactId(pactId)
-				.orElse(new AccumulatedPerformance());
-
-		return new PortfolioDetail(ar, constituents, benchmarks, performance, adjustmentInfos, accumulatedPerformance);
+		return portfolioDetailService.assemble(ar, pactId);
 	}
 
 	/**
 	 * Get a portfolio detail by adjustment record id. Used for searching history.
 	 *
+	 * Settled snapshots are immutable and cached, only the accumulated performance
+	 * is read every time.
+	 *
+	 * Not transactional: the parts are fetched concurrently, each in its own
+	 * read-only transaction, while this thread holds no connection (see
+	 * `PortfolioDetailService`).
+	 *
 	 * @param adjustmentRecordId
 	 * @return
 	 */
 	public PortfolioDetail getPortfolioDetailByARId(Long adjustmentRecordId) {
+		recalculateScheduler.flush(adjustmentRecordId);
+
+		PortfolioDetail detail = portfolioCacheService
+				.getSettledDetail(adjustmentRecordId, () -> loadPortfolioDetailByARId(adjustmentRecordId));
+
+		AccumulatedPerformance accumulatedPerformance = accumulatedPerformanceRepository
+				.findByPactId(detail.adjustmentRecord().getPact().getId())
+				.orElse(new AccumulatedPerformance());
+
+		return new PortfolioDetail(
+				detail.adjustmentRecord(),
+				detail.constituents(),
+				detail.benchmarks(),
+				detail.performance(),
+				detail.adjustmentInfos(),
+				accumulatedPerformance);
+	}
+
+	private PortfolioDetail loadPortfolioDetailByARId(Long adjustmentRecordId) {
 		AdjustmentRecord ar = adjustmentRecordService
 				.getARById(adjustmentRecordId)
 				.orElseThrow(() -> new RuntimeException(
 						"No adjustment record found for id: " + adjustmentRecordId));
-		Long arId = ar.getId();
-
-		List<Benchmark> benchmarks = benchmarkService
-				.getBenchmarksByAdjustmentRecordId(arId);
-		List<Constituent> constituents = constituentService
-				.getConstituentsByAdjustmentRecordId(arId);
-		// if performance is null, return empty performance
-		Performance performance = performanceService.getPerformanceByAdjustmentRecordId(arId)
-				.orElse(new Performance());
-		List<AdjustmentInfo> adjustmentInfos = adjustmentInfoService
-				.getAdjustmentInfosByAdjustmentRecordId(arId);
-		AccumulatedPerformance accumulatedPerformance = accumulatedPerformanceRepository
-				.findByPactId(ar.getPact().getId())
-				.orElse(new AccumulatedPerformance());
-
-		return new PortfolioDetail(ar, constituents, benchmarks, performance, adjustmentInfos, accumulatedPerformance);
+		return portfolioDetailService.assemble(ar, ar.getPact().getId());
 	}
 
 	// =======================================================================
 	// Mutation methods
 	// =======================================================================
 
+	/**
+	 * Everything read before a settlement, under the pact's lock.
+	 *
+	 * @param pact
+	 * @param unsettledAr:       the unsettled adjustment record, turns to settled
+	 * @param latestSettledAr:   nullable, if the pact has never been settled
+	 * @param latestSettledCons: constituents of `latestSettledAr`, empty if null
+	 * @param unsettledCons:     constituents of `unsettledAr`
+	 */
+	private record SettleSource(
+			Pact pact,
+			AdjustmentRecord unsettledAr,
+			AdjustmentRecord latestSettledAr,
+			List<Constituent> latestSettledCons,
+			List<Constituent> unsettledCons) {
+	}
+
 	/**
 	 * Settle a portfolio.
 	 *
@@ -277,6 +369,27 @@ public class PortfolioService {
 	 */
 	@Transactional(rollbackFor = Exception.class)
 	public PortfolioDetail settle(Long pactId, LocalDate settleDate) {
+		return settle(pactId, null, settleDate);
+	}
+
+	/**
+	 * Settle a portfolio, only if its unsettled adjustment record is still
+	 * `unsettledArId` once the pact is locked. Used by batches, whose pacts have
+	 * been picked before being locked.
+	 *
+	 * @param pactId
+	 * @param unsettledArId: nullable, settles whichever record is unsettled
+	 * @param settleDate
+	 * @return
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public PortfolioDetail settle(Long pactId, Long unsettledArId, LocalDate settleDate) {
+		// the pact is locked before its source is read
+		aggregateLockService.lockPact(pactId);
+
+		// deferred recalculations are drained first, within this transaction
+		recalculateScheduler.flushPact(pactId);
+
 		// get pact, validation check
 		Pact pact = pactService
 				.getPactById(pactId)
@@ -286,41 +399,142 @@ public class PortfolioService {
 		AdjustmentRecord unsettledAr = adjustmentRecordService
 				.getUnsettledAR(pactId)
 				.orElseThrow(() -> new RuntimeException("No unsettled adjustment record found for pactId: " + pactId));
-		Long unsettledArId = unsettledAr.getId();
+		if (unsettledArId != null && !unsettledArId.equals(unsettledAr.getId())) {
+			throw new RuntimeException(
+					String.format("Adjustment record %d of pact %d has been settled concurrently",
+							unsettledArId,
+							pactId));
+		}
 
-		// if latest adjustment exists, calculate adjustmentInfos
-		List<Constituent> latestSettledCons = adjustmentRecordService
+		// if latest adjustment exists, its constituents are used for adjustmentInfos
+		AdjustmentRecord latestSettledAr = adjustmentRecordService
 				.getLatestSettledAR(pactId)
-				.map(latestSettledAr -> {
-					LocalDate latestSettledDate = latestSettledAr.getAdjustDate();
-					// settle date should be later than the latest settled date
-					if (settleDate.isBefore(latestSettledDate)) {
-						throw new RuntimeException(
-								String.format(
-										"Settle date: %s is before latest settled adjustment record's date: %s",
-										settleDate,
-										latestSettledDate));
-					}
-
-					// modify unsettled record
-					if (latestSettledDate.equals(settleDate)) {
-						unsettledAr.setAdjustVersion(latestSettledAr.getAdjustVersion() + 1);
-					} else {
-						unsettledAr.setAdjustVersion(1);
-					}
-
-					return constituentService
-							.getConstituentsByAdjustmentRecordId(latestSettledAr.getId());
-				})
-				.orElseGet(() -> {
-					// this will only happen once when setting up a new pact
-					unsettledAr.setAdjustVersion(1);
-					return List.of();
-				});
+				.orElse(null);
+		List<Constituent> latestSettledCons = latestSettledAr == null
+				? List.of()
+				: constituentService.getConstituentsByAdjustmentRecordId(latestSettledAr.getId());
 
 		// get all unsettled constituents, which also represents the current portfolio
 		List<Constituent> unsettledCons = constituentService
-				.getConstituentsByAdjustmentRecordId(unsettledArId);
+				.getConstituentsByAdjustmentRecordId(unsettledAr.getId());
+
+		SettleSource source = new SettleSource(pact, unsettledAr, latestSettledAr, latestSettledCons, unsettledCons);
+		return settleTimer.record(() -> doSettle(source, settleDate));
+	}
+
+	/**
+	 * Settle a chunk of pacts in one transaction: the pacts are locked at once,
+	 * then their sources are read by grouped queries. Used by batches, whose pacts
+	 * have been picked before being locked.
+	 *
+	 * A pact whose unsettled adjustment record is no longer the picked one, or
+	 * which cannot be settled at `settleDate`, fails alone. Any other failure rolls
+	 * the whole chunk back.
+	 *
+	 * @param unsettledArIds: the picked unsettled adjustment record id, by pact id
+	 * @param settleDate
+	 * @return a result per pact
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public Map<Long, SettlePortfolioResult> settle(Map<Long, Long> unsettledArIds, LocalDate settleDate) {
+		List<Long> pactIds = new ArrayList<>(unsettledArIds.keySet());
+
+		// the pacts are locked before their sources are read
+		aggregateLockService.lockPacts(pactIds);
+
+		// deferred recalculations are drained first, within this transaction
+		recalculateScheduler.flushPacts(pactIds);
+
+		// grouped reads of pacts, unsettled/latest settled records and constituents
+		Map<Long, Pact> pacts = pactRepository
+				.findAllById(pactIds)
+				.stream()
+				.collect(Collectors.toMap(Pact::getId, Function.identity()));
+		Map<Long, AdjustmentRecord> unsettledArs = adjustmentRecordService
+				.getUnsettledARs(pactIds)
+				.stream()
+				.collect(Collectors.toMap(ar -> ar.getPact().getId(), Function.identity(), (a, b) -> a));
+		Map<Long, AdjustmentRecord> latestSettledArs = adjustmentRecordService
+				.getLatestSettledARs(pactIds)
+				.stream()
+				.collect(Collectors.toMap(ar -> ar.getPact().getId(), Function.identity(), (a, b) -> a));
+		List<Long> arIds = Stream
+				.concat(unsettledArs.values().stream(), latestSettledArs.values().stream())
+				.map(AdjustmentRecord::getId)
+				.collect(Collectors.toList());
+		Map<Long, List<Constituent>> cons = arIds.isEmpty()
+				? Map.of()
+				: constituentService.getConstituentsGroupedByAdjustmentRecordIds(arIds);
+
+		Map<Long, SettlePortfolioResult> results = new LinkedHashMap<>();
+		for (Long pactId : pactIds) {
+			Long unsettledArId = unsettledArIds.get(pactId);
+			Pact pact = pacts.get(pactId);
+			AdjustmentRecord unsettledAr = unsettledArs.get(pactId);
+			AdjustmentRecord latestSettledAr = latestSettledArs.get(pactId);
+
+			// validation check, as the single settlement
+			String error = null;
+			if (pact == null) {
+				error = "No pact found for id: " + pactId;
+			} else if (unsettledAr == null) {
+				error = "No unsettled adjustment record found for pactId: " + pactId;
+			} else if (!unsettledAr.getId().equals(unsettledArId)) {
+				error = String.format("Adjustment record %d of pact %d has been settled concurrently",
+						unsettledArId,
+						pactId);
+			} else if (latestSettledAr != null && settleDate.isBefore(latestSettledAr.getAdjustDate())) {
+				error = String.format("Settle date: %s is before latest settled adjustment record's date: %s",
+						settleDate,
+						latestSettledAr.getAdjustDate());
+			}
+			if (error != null) {
+				results.put(pactId, SettlePortfolioResult.fromError(pactId, error));
+				continue;
+			}
+
+			SettleSource source = new SettleSource(
+					pact,
+					unsettledAr,
+					latestSettledAr,
+					latestSettledAr == null ? List.of() : cons.getOrDefault(latestSettledAr.getId(), List.of()),
+					cons.getOrDefault(unsettledArId, List.of()));
+			PortfolioDetail detail = settleTimer.record(() -> doSettle(source, settleDate));
+			results.put(pactId, SettlePortfolioResult.fromSettledDetail(pactId, unsettledArId, detail));
+		}
+
+		return results;
+	}
+
+	private PortfolioDetail doSettle(SettleSource source, LocalDate settleDate) {
+		Pact pact = source.pact();
+		AdjustmentRecord unsettledAr = source.unsettledAr();
+		Long unsettledArId = unsettledAr.getId();
+		AdjustmentRecord latestSettledAr = source.latestSettledAr();
+		List<Constituent> latestSettledCons = source.latestSettledCons();
+		List<Constituent> unsettledCons = source.unsettledCons();
+
+		if (latestSettledAr != null) {
+			LocalDate latestSettledDate = latestSettledAr.getAdjustDate();
+			// settle date should be later than the latest settled date
+			if (settleDate.isBefore(latestSettledDate)) {
+				throw new RuntimeException(
+						String.format(
+								"Settle date: %s is before latest settled adjustment record's date: %s",
+								settleDate,
+								latestSettledDate));
+			}
+
+			// modify unsettled record
+			if (latestSettledDate.equals(settleDate)) {
+				unsettledAr.setAdjustVersion(latestSettledAr.getAdjustVersion() + 1);
+			} else {
+				unsettledAr.setAdjustVersion(1);
+			}
+		} else {
+			// this will only happen once when setting up a new pact
+			unsettledAr.setAdjustVersion(1);
+		}
 
 		// get adjustment info
 		List<AdjustmentInfo> ais = PortfolioAdjustmentHelper.adjust(latestSettledCons, unsettledCons);
@@ -345,59 +559,44 @@ public class PortfolioService {
 		tmpAr.setIsUnsettled(true);
 		tmpAr.setIsAdjusted(isAdjusted);
 		final AdjustmentRecord newAr = adjustmentRecordRepository.save(tmpAr);
+		Long newArId = newAr.getId();
+
+		// validate unsettled constituents & benchmarks before copying
+		validationService.checkConstituentsTotalWeightIsWithinRange(unsettledCons);
+		validationService.checkBenchmarksTotalWeightIsWithinRange(unsettledArId);
+
+		// copy constituents, benchmarks and performance, bind to new adjustment record.
+		// rows are copied by the database (INSERT ... SELECT), instead of a round trip
+		// through the application
+		constituentRepository.copyByARId(unsettledArId, newArId, isAdjusted, settleDate);
+		benchmarkRepository.copyByARId(unsettledArId, newArId, isAdjusted, settleDate);
+		if (performanceRepository.copyByARId(unsettledArId, newArId) != 1) {
+			throw new RuntimeException("No performance found for unsettled adjustment record id: " + unsettledArId);
+		}
 
-		// copy constituents, bind to new adjustment record and save
-		List<Constituent> newCons = unsettledCons
-				.stream()
-				.map(c -> {
-					Constituent newC = new Constituent(c);
-					newC.setId(null);
-					newC.setAdjustmentRecord(newAr);
-					if (isAdjusted) {
-						newC.setAdjustDate(settleDate);
-					}
-					return newC;
-				})
-				.collect(Collectors.toList());
-		// validate unsettled constituents
-		validationService.checkConstituentsTotalWeightIsWithinRange(newCons);
-		newCons = constituentRepository.saveAll(newCons);
+		// once copied, the settled constituents can be stored as a delta against the
+		// previous settlement
+		constituentService.encodeSettledSnapshot(unsettledAr, latestSettledAr, latestSettledCons, unsettledCons);
 
-		// copy benchmarks, bind to new adjustment record and save
-		List<Benchmark> newBms = benchmarkService
-				.getBenchmarksByAdjustmentRecordId(unsettledArId)
-				.stream()
-				.map(b -> {
-					Benchmark newB = new Benchmark(b);
-					newB.setId(null);
-					newB.setAdjustmentRecord(newAr);
-					if (isAdjusted) {
-						newB.setAdjustDate(settleDate);
-					}
-					return newB;
-				})
-				.collect(Collectors.toList());
-		// validate unsettled benchmarks
-		validationService.checkBenchmarksTotalWeightIsWithinRange(newBms);
-		newBms = benchmarkRepository.saveAll(newBms);
-
-		// copy performance, bind to new adjustment record and save
-		Performance unsettledPfm = performanceService
-				.getPerformanceByAdjustmentRecordId(unsettledArId).get();
-		Performance newPfm = new Performance(unsettledPfm);
-		newPfm.setId(null);
-		newPfm.setAdjustmentRecord(newAr);
-		newPfm = performanceService.createPerformance(newPfm);
+		List<Constituent> newCons = constituentRepository.findByAdjustmentRecordId(newArId);
+		List<Benchmark> newBms = benchmarkRepository.findByAdjustmentRecordId(newArId);
+		Performance newPfm = performanceRepository.findByAdjustmentRecordId(newArId).get();
 
 		// recalculate accumulated performance and save it
 		AccumulatedPerformance ap = recalculateService.recalculateAccumulatedPerformance(pact, true, isAdjusted);
 		ap = accumulatedPerformanceRepository.save(ap);
 
+		eventPublisher.publishEvent(new PortfolioChangedEvent(pact.getId(), unsettledArId));
+
 		return new PortfolioDetail(newAr, newCons, newBms, newPfm, ais, ap);
 	}
 
 	@Transactional(rollbackFor = Exception.class)
 	public void cancelSettle(Long pactId) {
+		aggregateLockService.lockPact(pactId);
+
+		recalculateScheduler.flushPact(pactId);
+
 		AdjustmentRecord ar = adjustmentRecordService
 				.getLatestSettledAR(pactId)
 				.orElseThrow(() -> new RuntimeException(
@@ -423,6 +622,18 @@ public class PortfolioService {
 
 		// delete the latest adjustment record
 		adjustmentRecordService.deleteAR(ar.getId());
+
+		eventPublisher.publishEvent(new PortfolioChangedEvent(pactId, ar.getId()));
+	}
+
+	/**
+	 * Fully recalculate all the accumulated performances, and return the ones
+	 * drifted from their stored values.
+	 *
+	 * @return
+	 */
+	public List<AccumulatedPerformanceDrift> reconcileAccumulatedPerformances() {
+		return recalculateService.reconcileAccumulatedPerformances();
 	}
 
 }
@@ -0,0 +1,306 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ExecutorConfig;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus.Status;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * PortfolioSettleJobService
+ *
+ * Asynchronous settlements: a job settles its pacts like a batch settle (see
+ * `PortfolioBatchService`), on a bounded worker pool, while the client polls
+ * or streams its status.
+ *
+ * 1. Deduplication: a pact is settled by at most one queued or running job. A
+ * submission skips the pacts of other active jobs for the same date (reported
+ * by the job), and a submission made only of the pacts of a single active job
+ * for the same date returns that job. A submission for another date than an
+ * active job settling one of its pacts is rejected.
+ *
+ * 2. Retention: finished jobs are kept for `portfolio.settle-job.retention`
+ * seconds, active jobs until they finish.
+ *
+ * Queue depth and running jobs are published as `portfolio.settle.job.queued`
+ * and `portfolio.settle.job.running`, the time spent queued and running as
+ * `portfolio.settle.job.wait` and `portfolio.settle.job.run`.
+ */
+@Service
+public class PortfolioSettleJobService {
+
+  private static final Logger logger = LogManager.getLogger(PortfolioSettleJobService.class);
+
+  public static final String QUEUED_GAUGE = "portfolio.settle.job.queued";
+  public static final String RUNNING_GAUGE = "portfolio.settle.job.running";
+  public static final String WAIT_TIMER = "portfolio.settle.job.wait";
+  public static final String RUN_TIMER = "portfolio.settle.job.run";
+
+  @Autowired
+  private PactService pactService;
+
+  @Autowired
+  private PortfolioBatchService portfolioBatchService;
+
+  @Autowired
+  @Qualifier(ExecutorConfig.PORTFOLIO_SETTLE_JOB_EXECUTOR)
+  private ThreadPoolTaskExecutor jobExecutor;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${portfolio.settle-job.retention:3600}")
+  private long retentionSeconds;
+
+  private static final class SettleJob {
+    private final String id = UUID.randomUUID().toString();
+    private final LocalDate settlementDate;
+    private final List<Long> pactIds;
+    private final Map<Long, String> duplicatedPactJobIds;
+    private final LocalDateTime submittedAt = LocalDateTime.now();
+    private final CompletableFuture<SettleJobStatus> done = new CompletableFuture<>();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile List<SettlePortfolioResult> results;
+    private volatile String error;
+
+    private SettleJob(LocalDate settlementDate, List<Long> pactIds, Map<Long, String> duplicatedPactJobIds) {
+      this.settlementDate = settlementDate;
+      this.pactIds = List.copyOf(pactIds);
+      this.duplicatedPactJobIds = Map.copyOf(duplicatedPactJobIds);
+    }
+
+    private SettleJobStatus toStatus() {
+      return new SettleJobStatus(
+          id,
+          status,
+          settlementDate,
+          pactIds,
+          duplicatedPactJobIds,
+          submittedAt,
+          startedAt,
+          finishedAt,
+          results,
+          error);
+    }
+  }
+
+  // queued and running jobs
+  private final Map<String, SettleJob> activeJobs = new ConcurrentHashMap<>();
+
+  // pact id -> id of the active job settling it, guarded by `this`
+  private final Map<Long, String> activePactJobIds = new HashMap<>();
+
+  private Cache<String, SettleJob> finishedJobs;
+
+  private Timer waitTimer;
+
+  private Timer runTimer;
+
+  @PostConstruct
+  private void init() {
+    finishedJobs = CacheBuilder
+        .newBuilder()
+        .expireAfterWrite(retentionSeconds, TimeUnit.SECONDS)
+        .build();
+
+    Gauge
+        .builder(QUEUED_GAUGE, jobExecutor, e -> e.getThreadPoolExecutor().getQueue().size())
+        .description("Settlement jobs waiting for a worker")
+        .register(meterRegistry);
+    Gauge
+        .builder(RUNNING_GAUGE, jobExecutor, ThreadPoolTaskExecutor::getActiveCount)
+        .description("Settlement jobs being run")
+        .register(meterRegistry);
+    waitTimer = Timer
+        .builder(WAIT_TIMER)
+        .description("Time spent by a settlement job in the queue")
+        .register(meterRegistry);
+    runTimer = Timer
+        .builder(RUN_TIMER)
+        .description("Time spent on running a settlement job")
+        .register(meterRegistry);
+  }
+
+  // =======================================================================
+  // Query methods
+  // =======================================================================
+
+  public Optional<SettleJobStatus> getJob(String jobId) {
+    return findJob(jobId).map(SettleJob::toStatus);
+  }
+
+  /**
+   * The job's status once it has finished (completed at once if it has).
+   *
+   * @param jobId
+   * @return
+   */
+  public Optional<CompletableFuture<SettleJobStatus>> whenFinished(String jobId) {
+    return findJob(jobId).map(job -> job.done);
+  }
+
+  private Optional<SettleJob> findJob(String jobId) {
+    SettleJob job = activeJobs.get(jobId);
+    if (job == null) {
+      job = finishedJobs.getIfPresent(jobId);
+    }
+    return Optional.ofNullable(job);
+  }
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  /**
+   * Submit a settlement job.
+   *
+   * @param pactIds:     ignored if `isAllActive` is true
+   * @param isAllActive: settle all active pacts
+   * @param settleDate
+   * @return the new job, or the active job already settling all the pacts at
+   *         the same date
+   * @throws IllegalStateException if one of the pacts is being settled at
+   *                               another date
+   * @throws TaskRejectedException if the queue is full
+   */
+  public SettleJobStatus submit(List<Long> pactIds, boolean isAllActive, LocalDate settleDate) {
+    // 0. resolve pacts
+    List<Long> ids = isAllActive
+        ? pactService.getAllPacts(true).stream().map(Pact::getId).collect(Collectors.toList())
+        : pactIds;
+
+    return submit(ids, settleDate, true);
+  }
+
+  /**
+   * Submit a settlement job of its own, never an active job: pacts already
+   * being settled at the same date are only reported by the new job, which
+   * then settles the others (finished at once if there are none).
+   *
+   * @param pactIds
+   * @param settleDate
+   * @return the new job
+   * @throws IllegalStateException if one of the pacts is being settled at
+   *                               another date
+   * @throws TaskRejectedException if the queue is full
+   */
+  SettleJobStatus submitOwn(List<Long> pactIds, LocalDate settleDate) {
+    return submit(pactIds, settleDate, false);
+  }
+
+  private SettleJobStatus submit(List<Long> pactIds, LocalDate settleDate, boolean isReusingActiveJob) {
+    List<Long> ids = pactIds.stream().distinct().collect(Collectors.toList());
+
+    synchronized (this) {
+      // 1. skip the pacts of active jobs for the same date, reject the ones of
+      // active jobs for another date
+      List<Long> toSettle = new ArrayList<>();
+      Map<Long, String> duplicated = new LinkedHashMap<>();
+      List<Long> conflicted = new ArrayList<>();
+      for (Long id : ids) {
+        String activeJobId = activePactJobIds.get(id);
+        if (activeJobId == null) {
+          toSettle.add(id);
+        } else if (activeJobs.get(activeJobId).settlementDate.equals(settleDate)) {
+          duplicated.put(id, activeJobId);
+        } else {
+          conflicted.add(id);
+        }
+      }
+      if (!conflicted.isEmpty()) {
+        throw new IllegalStateException(String.format(
+            "Pacts %s are being settled at another date than %s", conflicted, settleDate));
+      }
+
+      Set<String> duplicatedJobIds = new HashSet<>(duplicated.values());
+      if (isReusingActiveJob && toSettle.isEmpty() && duplicatedJobIds.size() == 1) {
+        return activeJobs.get(duplicatedJobIds.iterator().next()).toStatus();
+      }
+
+      // 2. enqueue, a job without pacts is finished at once
+      SettleJob job = new SettleJob(settleDate, toSettle, duplicated);
+      if (toSettle.isEmpty()) {
+        job.results = List.of();
+        finish(job, Status.SUCCEEDED);
+        return job.toStatus();
+      }
+
+      // the job cannot finish before it is registered, since `finish` waits for
+      // the lock
+      jobExecutor.execute(() -> run(job));
+      activeJobs.put(job.id, job);
+      toSettle.forEach(id -> activePactJobIds.put(id, job.id));
+
+      return job.toStatus();
+    }
+  }
+
+  private void run(SettleJob job) {
+    job.startedAt = LocalDateTime.now();
+    job.status = Status.RUNNING;
+    waitTimer.record(Duration.between(job.submittedAt, job.startedAt));
+
+    Status status;
+    try {
+      job.results = runTimer.recordCallable(
+          () -> portfolioBatchService.batchSettle(job.pactIds, false, job.settlementDate));
+      status = Status.SUCCEEDED;
+    } catch (Exception e) {
+      logger.warn("Settle job {} failed: {}", job.id, e.getMessage());
+      job.error = e.getMessage();
+      status = Status.FAILED;
+    }
+
+    finish(job, status);
+  }
+
+  private void finish(SettleJob job, Status status) {
+    job.finishedAt = LocalDateTime.now();
+    job.status = status;
+
+    synchronized (this) {
+      job.pactIds.forEach(id -> activePactJobIds.remove(id, job.id));
+      finishedJobs.put(job.id, job);
+      activeJobs.remove(job.id);
+    }
+
+    job.done.complete(job.toStatus());
+  }
+}
@@ -0,0 +1,378 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ExecutorConfig;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverview;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioOverviewDelta;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * PortfolioStreamService
+ *
+ * Live portfolio overviews, pushed as server-sent events to subscribers of all
+ * pacts or of a few of them: a `snapshot` event with the current overviews,
+ * then a `delta` event (see `PortfolioOverviewDelta`) whenever overviews have
+ * changed.
+ *
+ * 1. Coalescing: `PortfolioChangedEvent`s are collected once committed, and
+ * flushed every `portfolio.stream.coalesce-window` ms: the overviews of the
+ * changed pacts are loaded once, and only those differing from the previously
+ * pushed ones are sent.
+ *
+ * 2. Slow consumers: each subscriber has at most one sender at a time, and its
+ * pending overviews are keyed by pact, a newer one replacing an older one, so
+ * that a slow client holds at most one overview per pact. A subscriber whose
+ * sender is still busy after `portfolio.stream.send-timeout` ms is dropped,
+ * and is expected to reconnect (and get a new snapshot).
+ *
+ * Subscribers are published as `portfolio.stream.subscribers`, the dropped
+ * ones counted as `portfolio.stream.dropped`.
+ */
+@Service
+public class PortfolioStreamService {
+
+  private static final Logger logger = LogManager.getLogger(PortfolioStreamService.class);
+
+  public static final String SUBSCRIBERS_GAUGE = "portfolio.stream.subscribers";
+  public static final String DROPPED_COUNTER = "portfolio.stream.dropped";
+
+  @Autowired
+  private PortfolioService portfolioService;
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  @Qualifier(ExecutorConfig.PORTFOLIO_STREAM_EXECUTOR)
+  private ThreadPoolTaskExecutor streamExecutor;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${portfolio.stream.max-subscribers:200}")
+  private int maxSubscribers;
+
+  @Value("${portfolio.stream.timeout:1800000}")
+  private long streamTimeout;
+
+  @Value("${portfolio.stream.send-timeout:30000}")
+  private long sendTimeout;
+
+  private static final class Subscriber {
+    private final SseEmitter emitter;
+    // null means all pacts
+    private final Set<Long> pactIds;
+
+    // pact id -> latest overview to send, null if removed, guarded by `this`
+    private Map<Long, PortfolioOverview> pending = new LinkedHashMap<>();
+    // when the sender has last taken pending overviews, 0 if idle, guarded by
+    // `this`
+    private long sendingSince;
+
+    private volatile boolean isDropped;
+
+    private Subscriber(SseEmitter emitter, Set<Long> pactIds) {
+      this.emitter = emitter;
+      this.pactIds = pactIds;
+    }
+
+    private boolean subscribes(Long pactId) {
+      return pactIds == null || pactIds.contains(pactId);
+    }
+  }
+
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  // changes since the last flush, guarded by `this`
+  private Set<Long> changedPactIds = new HashSet<>();
+  private Set<Long> changedArIds = new HashSet<>();
+  private boolean isAnyPactChanged;
+
+  // pact id -> overview last pushed, only used by `flush`
+  private final Map<Long, PortfolioOverview> pushed = new HashMap<>();
+
+  private Counter droppedCounter;
+
+  @PostConstruct
+  private void init() {
+    Gauge
+        .builder(SUBSCRIBERS_GAUGE, subscribers, Set::size)
+        .description("Subscribers of the portfolio overview stream")
+        .register(meterRegistry);
+    droppedCounter = Counter
+        .builder(DROPPED_COUNTER)
+        .description("Subscribers of the portfolio overview stream dropped for being too slow")
+        .register(meterRegistry);
+  }
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  /**
+   * Subscribe to the overviews of `pactIds`, or of all pacts if empty.
+   *
+   * @param pactIds
+   * @return
+   * @throws TaskRejectedException if there are too many subscribers
+   */
+  public SseEmitter subscribe(List<Long> pactIds) {
+    Subscriber subscriber = new Subscriber(
+        new SseEmitter(streamTimeout),
+        pactIds == null || pactIds.isEmpty() ? null : Set.copyOf(pactIds));
+    subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber));
+    subscriber.emitter.onError(e -> subscribers.remove(subscriber));
+
+    // 0. register first, so that no change is missed, but hold the sender until
+    // the snapshot is sent
+    synchronized (this) {
+      if (subscribers.size() >= maxSubscribers) {
+        throw new TaskRejectedException("Too many portfolio stream subscribers: " + maxSubscribers);
+      }
+      subscriber.sendingSince = System.currentTimeMillis();
+      subscribers.add(subscriber);
+    }
+
+    // 1. snapshot, a change committed meanwhile might be sent again as a delta
+    List<PortfolioOverview> snapshot = subscriber.pactIds == null
+        ? portfolioService.getPortfolioOverviews((Boolean) null)
+        : portfolioService.getPortfolioOverviewsByPactIds(List.copyOf(subscriber.pactIds));
+    try {
+      subscriber.emitter.send(SseEmitter.event().name("snapshot").data(snapshot));
+    } catch (IOException e) {
+      subscribers.remove(subscriber);
+      subscriber.emitter.completeWithError(e);
+      return subscriber.emitter;
+    }
+
+    // 2. release the sender
+    synchronized (subscriber) {
+      subscriber.sendingSince = 0;
+    }
+    schedule(subscriber);
+
+    return subscriber.emitter;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onPortfolioChanged(PortfolioChangedEvent event) {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+
+    synchronized (this) {
+      if (!event.isAnyPact()) {
+        changedPactIds.add(event.pactId());
+      } else if (event.adjustmentRecordId() != null) {
+        changedArIds.add(event.adjustmentRecordId());
+      } else {
+        isAnyPactChanged = true;
+      }
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${portfolio.stream.coalesce-window:1000}")
+  public void flush() {
+    // 0. drop slow subscribers, and retry the senders rejected by the executor
+    long now = System.currentTimeMillis();
+    for (Subscriber subscriber : subscribers) {
+      boolean isSlow;
+      synchronized (subscriber) {
+        isSlow = subscriber.sendingSince != 0 && now - subscriber.sendingSince > sendTimeout;
+      }
+      if (isSlow) {
+        drop(subscriber);
+      } else {
+        schedule(subscriber);
+      }
+    }
+
+    // 1. take the changes
+    Set<Long> pactIds;
+    Set<Long> arIds;
+    boolean isAnyPact;
+    synchronized (this) {
+      pactIds = changedPactIds;
+      arIds = changedArIds;
+      isAnyPact = isAnyPactChanged;
+      changedPactIds = new HashSet<>();
+      changedArIds = new HashSet<>();
+      isAnyPactChanged = false;
+    }
+
+    if (subscribers.isEmpty()) {
+      pushed.clear();
+      return;
+    }
+    if (!isAnyPact && pactIds.isEmpty() && arIds.isEmpty()) {
+      return;
+    }
+
+    Map<Long, PortfolioOverview> delta;
+    try {
+      delta = loadDelta(pactIds, arIds, isAnyPact);
+    } catch (Exception e) {
+      logger.warn("Portfolio stream flush failed, retried on the next flush: {}", e.getMessage());
+      synchronized (this) {
+        isAnyPactChanged = true;
+      }
+      return;
+    }
+    if (delta.isEmpty()) {
+      return;
+    }
+
+    // 2. hand the delta over to the subscribers' senders
+    for (Subscriber subscriber : subscribers) {
+      boolean isChanged = false;
+      synchronized (subscriber) {
+        for (Map.Entry<Long, PortfolioOverview> e : delta.entrySet()) {
+          if (subscriber.subscribes(e.getKey())) {
+            subscriber.pending.put(e.getKey(), e.getValue());
+            isChanged = true;
+          }
+        }
+      }
+      if (isChanged) {
+        schedule(subscriber);
+      }
+    }
+  }
+
+  // pact id -> changed overview, null if removed
+  private Map<Long, PortfolioOverview> loadDelta(Set<Long> pactIds, Set<Long> arIds, boolean isAnyPact) {
+    // 0. resolve adjustment records, a missing (deleted) one may be of any pact
+    if (!isAnyPact && !arIds.isEmpty()) {
+      List<AdjustmentRecord> ars = adjustmentRecordService.getARsByIds(new ArrayList<>(arIds));
+      if (ars.size() < arIds.size()) {
+        isAnyPact = true;
+      } else {
+        ars.forEach(ar -> pactIds.add(ar.getPact().getId()));
+      }
+    }
+
+    // 1. load the overviews
+    Map<Long, PortfolioOverview> overviews = (isAnyPact
+        ? portfolioService.getPortfolioOverviews((Boolean) null)
+        : portfolioService.getPortfolioOverviewsByPactIds(new ArrayList<>(pactIds)))
+        .stream()
+        .collect(Collectors.toMap(PortfolioOverview::pactId, Function.identity(), (a, b) -> a));
+    Set<Long> changed = isAnyPact ? new HashSet<>(pushed.keySet()) : pactIds;
+    changed.addAll(overviews.keySet());
+
+    // 2. diff with the overviews last pushed
+    Map<Long, PortfolioOverview> delta = new LinkedHashMap<>();
+    for (Long pactId : changed) {
+      PortfolioOverview overview = overviews.get(pactId);
+      if (overview == null) {
+        delta.put(pactId, null);
+        pushed.remove(pactId);
+      } else if (!overview.equals(pushed.get(pactId))) {
+        delta.put(pactId, overview);
+        pushed.put(pactId, overview);
+      }
+    }
+
+    return delta;
+  }
+
+  private void schedule(Subscriber subscriber) {
+    synchronized (subscriber) {
+      if (subscriber.isDropped || subscriber.sendingSince != 0 || subscriber.pending.isEmpty()) {
+        return;
+      }
+      subscriber.sendingSince = System.currentTimeMillis();
+    }
+
+    try {
+      streamExecutor.execute(() -> send(subscriber));
+    } catch (TaskRejectedException e) {
+      // retried on the next flush
+      synchronized (subscriber) {
+        subscriber.sendingSince = 0;
+      }
+    }
+  }
+
+  private void send(Subscriber subscriber) {
+    while (true) {
+      Map<Long, PortfolioOverview> batch;
+      synchronized (subscriber) {
+        if (subscriber.isDropped || subscriber.pending.isEmpty()) {
+          subscriber.sendingSince = 0;
+          break;
+        }
+        batch = subscriber.pending;
+        subscriber.pending = new LinkedHashMap<>();
+        subscriber.sendingSince = System.currentTimeMillis();
+      }
+
+      List<PortfolioOverview> overviews = new ArrayList<>();
+      List<Long> removedPactIds = new ArrayList<>();
+      batch.forEach((pactId, overview) -> {
+        if (overview == null) {
+          removedPactIds.add(pactId);
+        } else {
+          overviews.add(overview);
+        }
+      });
+
+      try {
+        subscriber.emitter.send(SseEmitter
+            .event()
+            .name("delta")
+            .data(new PortfolioOverviewDelta(overviews, removedPactIds)));
+      } catch (IOException | IllegalStateException e) {
+        // the client has gone, completion is handled by the emitter
+        subscribers.remove(subscriber);
+        return;
+      }
+    }
+
+    // dropped while sending
+    if (subscriber.isDropped) {
+      subscriber.emitter.complete();
+    }
+  }
+
+  // the emitter is completed by its sender once its write returns, since
+  // completing blocks while a write is in progress
+  private void drop(Subscriber subscriber) {
+    subscriber.isDropped = true;
+    if (subscribers.remove(subscriber)) {
+      droppedCounter.increment();
+      logger.warn("Portfolio stream subscriber dropped, no write completed for {} ms", sendTimeout);
+    }
+  }
+}
@@ -0,0 +1,247 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioPeriodReturn;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioTimeseriesPoint;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+/**
+ * PortfolioTimeseriesService
+ *
+ * Performance time series of a pact, backed by the prefix product index of
+ * settled performances (maintained by `RecalculateService`).
+ *
+ * The level of a settled record is its index, i.e. the product of
+ * `(1 + earningsYield)` up to it. The level of the unsettled record is the
+ * latest settled level times its own `(1 + earningsYield)`. The return between
+ * two records is `level(to) / level(from) - 1`, read with a couple of
+ * single-row queries whatever the length of the history.
+ */
+@Service
+public class PortfolioTimeseriesService {
+
+  private record Level(
+      Long adjustmentRecordId,
+      double portfolio,
+      double benchmark) {
+  }
+
+  private static final Level INCEPTION = new Level(null, 1d, 1d);
+
+  private static final PageRequest FIRST = PageRequest.of(0, 1);
+
+  @Autowired
+  private PerformanceRepository performanceRepository;
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  private PortfolioCacheService portfolioCacheService;
+
+  @Autowired
+  private RecalculateScheduler recalculateScheduler;
+
+  // =======================================================================
+  // Query methods
+  // =======================================================================
+
+  /**
+   * Get a pact's per-settlement and accumulated performances, in adjust
+   * date/version order. The unsettled record comes last.
+   *
+   * @param pactId
+   * @return
+   */
+  public List<PortfolioTimeseriesPoint> getTimeseries(Long pactId) {
+    recalculateScheduler.flushPact(pactId);
+
+    return portfolioCacheService.getTimeseries(pactId, () -> loadTimeseries(pactId));
+  }
+
+  private List<PortfolioTimeseriesPoint> loadTimeseries(Long pactId) {
+    List<Performance> pfms = performanceRepository.findByPactIdOrdered(pactId);
+    List<PortfolioTimeseriesPoint> points = new ArrayList<>(pfms.size());
+
+    Level level = INCEPTION;
+    for (Performance pf : pfms) {
+      level = next(level, pf);
+
+      AdjustmentRecord ar = pf.getAdjustmentRecord();
+      float accumulatedPey = (float) (level.portfolio() - 1);
+      float accumulatedBey = (float) (level.benchmark() - 1);
+      points.add(new PortfolioTimeseriesPoint(
+          ar.getId(),
+          ar.getAdjustDate(),
+          ar.getAdjustVersion(),
+          ar.getIsUnsettled() == Boolean.TRUE,
+          pf.getPortfolioEarningsYield(),
+          pf.getBenchmarkEarningsYield(),
+          pf.getAlpha(),
+          accumulatedPey,
+          accumulatedBey,
+          accumulatedPey - accumulatedBey));
+    }
+
+    return points;
+  }
+
+  /**
+   * Get the return of a pact between two dates. The base is the latest
+   * settlement on or before `fromDate`, and the end is the latest settlement on
+   * or before `toDate` (the unsettled record if `toDate` is null).
+   *
+   * @param pactId
+   * @param fromDate: null means the pact's inception
+   * @param toDate:   nullable
+   * @return
+   */
+  public PortfolioPeriodReturn getReturn(Long pactId, LocalDate fromDate, LocalDate toDate) {
+    recalculateScheduler.flushPact(pactId);
+
+    Level from = fromDate == null ? INCEPTION : settledLevelOnOrBefore(pactId, fromDate);
+    Level to = toDate == null ? unsettledLevel(pactId) : settledLevelOnOrBefore(pactId, toDate);
+
+    return periodReturn(pactId, from, to);
+  }
+
+  /**
+   * Get the return of a pact between two of its adjustment records.
+   *
+   * @param pactId
+   * @param fromAdjustmentRecordId: null means the pact's inception
+   * @param toAdjustmentRecordId
+   * @return
+   */
+  public PortfolioPeriodReturn getReturn(Long pactId, Long fromAdjustmentRecordId, Long toAdjustmentRecordId) {
+    recalculateScheduler.flushPact(pactId);
+
+    Level from = fromAdjustmentRecordId == null ? INCEPTION : level(pactId, fromAdjustmentRecordId);
+    Level to = level(pactId, toAdjustmentRecordId);
+
+    return periodReturn(pactId, from, to);
+  }
+
+  /**
+   * Get the return of a pact over a trailing period (1M, 3M, 6M, 1Y or YTD).
+   *
+   * @param pactId
+   * @param period
+   * @param asOf:   null means up to the unsettled record, as of today
+   * @return
+   */
+  public PortfolioPeriodReturn getPeriodReturn(Long pactId, String period, LocalDate asOf) {
+    LocalDate end = asOf == null ? LocalDate.now() : asOf;
+    LocalDate start = switch (period.toUpperCase()) {
+      case "1M" -> end.minusMonths(1);
+      case "3M" -> end.minusMonths(3);
+      case "6M" -> end.minusMonths(6);
+      case "1Y" -> end.minusYears(1);
+      case "YTD" -> LocalDate.of(end.getYear() - 1, 12, 31);
+      default -> throw new IllegalArgumentException(
+          String.format("Unknown period: %s, expected one of 1M, 3M, 6M, 1Y, YTD", period));
+    };
+
+    return getReturn(pactId, start, asOf);
+  }
+
+  private Level level(Long pactId, Long adjustmentRecordId) {
+    AdjustmentRecord ar = adjustmentRecordService
+        .getARById(adjustmentRecordId)
+        .orElseThrow(() -> new IllegalArgumentException(
+            "No adjustment record found for id: " + adjustmentRecordId));
+    if (!pactId.equals(ar.getPact().getId())) {
+      throw new IllegalArgumentException(
+          String.format("Adjustment record %d does not belong to pact %d", adjustmentRecordId, pactId));
+    }
+
+    if (ar.getIsUnsettled() == Boolean.TRUE) {
+      return unsettledLevel(pactId);
+    }
+
+    return performanceRepository
+        .findByAdjustmentRecordId(adjustmentRecordId)
+        .map(pf -> settledLevel(pactId, pf))
+        .orElseThrow(() -> new IllegalArgumentException(
+            "No performance found for adjustment record id: " + adjustmentRecordId));
+  }
+
+  private Level settledLevelOnOrBefore(Long pactId, LocalDate date) {
+    return first(performanceRepository.findSettledByPactIdOnOrBefore(pactId, date, FIRST))
+        .map(pf -> settledLevel(pactId, pf))
+        .orElse(INCEPTION);
+  }
+
+  private Level unsettledLevel(Long pactId) {
+    Level latestSettled = first(performanceRepository.findLatestSettledByPactId(pactId, FIRST))
+        .map(pf -> settledLevel(pactId, pf))
+        .orElse(INCEPTION);
+
+    return performanceRepository
+        .findUnsettledByPactId(pactId)
+        .map(pf -> next(latestSettled, pf))
+        .orElse(latestSettled);
+  }
+
+  // a settled performance which has not been indexed yet (e.g. created before
+  // the index) is resolved from the time series
+  private Level settledLevel(Long pactId, Performance pf) {
+    Long arId = pf.getAdjustmentRecord().getId();
+    if (pf.getPortfolioProductIndex() != null && pf.getBenchmarkProductIndex() != null) {
+      return new Level(arId, pf.getPortfolioProductIndex(), pf.getBenchmarkProductIndex());
+    }
+
+    return getTimeseries(pactId)
+        .stream()
+        .filter(p -> arId.equals(p.adjustmentRecordId()))
+        .findFirst()
+        .map(p -> new Level(
+            arId,
+            1d + p.accumulatedPortfolioEarningsYield(),
+            1d + p.accumulatedBenchmarkEarningsYield()))
+        .orElseThrow(() -> new RuntimeException("No time series point found for adjustment record id: " + arId));
+  }
+
+  private static Level next(Level prev, Performance pf) {
+    Long arId = pf.getAdjustmentRecord().getId();
+    if (pf.getAdjustmentRecord().getIsUnsettled() != Boolean.TRUE
+        && pf.getPortfolioProductIndex() != null
+        && pf.getBenchmarkProductIndex() != null) {
+      return new Level(arId, pf.getPortfolioProductIndex(), pf.getBenchmarkProductIndex());
+    }
+
+    Float pey = pf.getPortfolioEarningsYield();
+    Float bey = pf.getBenchmarkEarningsYield();
+    return new Level(
+        arId,
+        prev.portfolio() * (1 + (pey == null ? 0d : pey)),
+        prev.benchmark() * (1 + (bey == null ? 0d : bey)));
+  }
+
+  private static PortfolioPeriodReturn periodReturn(Long pactId, Level from, Level to) {
+    float pey = (float) (to.portfolio() / from.portfolio() - 1);
+    float bey = (float) (to.benchmark() / from.benchmark() - 1);
+
+    return new PortfolioPeriodReturn(
+        pactId,
+        from.adjustmentRecordId(),
+        to.adjustmentRecordId(),
+        pey,
+        bey,
+        pey - bey);
+  }
+
+  private static <T> Optional<T> first(List<T> list) {
+    return list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
+  }
+}
@@ -0,0 +1,255 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentRecordRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * RecalculateScheduler
+ *
+ * Write-behind mode of constituent/benchmark mutations
+ * (`portfolio.recalculation.write-behind=true`). Instead of recalculating the
+ * performance and accumulated performance on every mutation, the adjustment
+ * record is marked dirty once the mutation is committed, and all the mutations
+ * of a record within `portfolio.recalculation.coalesce-window` (ms) are
+ * recalculated once by a background task.
+ *
+ * Guarantees:
+ *
+ * 1. flush-on-read: detail queries flush the dirty records of the pact first.
+ *
+ * 2. drain-before-settle: settlements flush the dirty records of the pact
+ * first, within the settle transaction.
+ *
+ * A record is flushed under its pact's aggregate lock, and stays dirty until
+ * the recalculation is committed, so a reader waits for an in-flight
+ * recalculation of the same pact instead of reading a stale performance. A
+ * recalculation rolled back (e.g. along with the settlement which drained it)
+ * leaves the record dirty, to be flushed again.
+ *
+ * Dirty records are kept in memory: write-behind is for a single instance
+ * only. Another instance would neither flush them on its reads and
+ * settlements, nor see them at all, and the ones pending when the instance
+ * dies without draining are lost.
+ */
+@Service
+public class RecalculateScheduler {
+
+  private static final Logger logger = LogManager.getLogger(RecalculateScheduler.class);
+
+  public enum Target {
+    CONSTITUENTS,
+    BENCHMARKS
+  }
+
+  private record Dirty(
+      Long pactId,
+      Set<Target> targets,
+      long since) {
+  }
+
+  @Autowired
+  private ObjectProvider<ConstituentService> constituentService;
+
+  @Autowired
+  private ObjectProvider<BenchmarkService> benchmarkService;
+
+  @Autowired
+  private AdjustmentRecordRepository adjustmentRecordRepository;
+
+  @Autowired
+  private AggregateLockService aggregateLockService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private ObjectProvider<MeterRegistry> meterRegistry;
+
+  @Value("${portfolio.recalculation.write-behind:false}")
+  private boolean enabled;
+
+  @Value("${portfolio.recalculation.coalesce-window:1000}")
+  private long coalesceWindow;
+
+  // keyed by adjustment record id
+  private final Map<Long, Dirty> dirties = new ConcurrentHashMap<>();
+
+  @PostConstruct
+  private void init() {
+    MeterRegistry registry = meterRegistry.getIfAvailable();
+    if (registry != null) {
+      registry.gaugeMapSize("portfolio.recalculation.pending", List.of(), dirties);
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  // =======================================================================
+  // Mutation methods
+  // =======================================================================
+
+  /**
+   * Mark an adjustment record dirty, once the current transaction (if any) is
+   * committed.
+   *
+   * @param adjustmentRecord
+   * @param target
+   */
+  public void markDirty(AdjustmentRecord adjustmentRecord, Target target) {
+    Long arId = adjustmentRecord.getId();
+    Long pactId = adjustmentRecord.getPact().getId();
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      doMarkDirty(arId, pactId, target);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCommit() {
+        doMarkDirty(arId, pactId, target);
+      }
+    });
+  }
+
+  private void doMarkDirty(Long arId, Long pactId, Target target) {
+    dirties.merge(
+        arId,
+        new Dirty(pactId, EnumSet.of(target), System.currentTimeMillis()),
+        (prev, curr) -> {
+          Set<Target> targets = EnumSet.copyOf(prev.targets());
+          targets.add(target);
+          return new Dirty(prev.pactId(), targets, prev.since());
+        });
+  }
+
+  /**
+   * Flush dirty adjustment records of a pact.
+   *
+   * @param pactId
+   */
+  public void flushPact(Long pactId) {
+    flushPacts(List.of(pactId));
+  }
+
+  public void flushPacts(Collection<Long> pactIds) {
+    if (dirties.isEmpty()) {
+      return;
+    }
+
+    List<Long> arIds = dirties
+        .entrySet()
+        .stream()
+        .filter(e -> pactIds.contains(e.getValue().pactId()))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+
+    arIds.forEach(this::flush);
+  }
+
+  /**
+   * Flush a dirty adjustment record. No-op if the record is clean.
+   *
+   * @param adjustmentRecordId
+   */
+  public void flush(Long adjustmentRecordId) {
+    Dirty pending = dirties.get(adjustmentRecordId);
+    if (pending == null) {
+      return;
+    }
+
+    // joins the caller's transaction if any (e.g. settle). The pact is locked
+    // before the record is taken, in the same order as mutations and settlements
+    transactionTemplate.executeWithoutResult(status -> {
+      aggregateLockService.lockPact(pending.pactId());
+
+      Dirty dirty = dirties.get(adjustmentRecordId);
+      if (dirty == null) {
+        return;
+      }
+      // dropped once the recalculation is committed, unless a mutation committed
+      // since then has marked the record again (a new `Dirty`)
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          dirties.computeIfPresent(adjustmentRecordId, (k, v) -> v == dirty ? null : v);
+        }
+      });
+
+      // nothing left to recalculate once the record has been deleted
+      if (!adjustmentRecordRepository.existsById(adjustmentRecordId)) {
+        return;
+      }
+
+      if (dirty.targets().contains(Target.CONSTITUENTS)) {
+        constituentService.getObject().recalculate(adjustmentRecordId);
+      }
+      if (dirty.targets().contains(Target.BENCHMARKS)) {
+        benchmarkService.getObject().recalculate(adjustmentRecordId);
+      }
+    });
+  }
+
+  // background flushing of records whose coalesce window has elapsed
+  @Scheduled(fixedDelayString = "${portfolio.recalculation.flush-interval:200}")
+  public void scheduledFlush() {
+    flushDirtiedBefore(System.currentTimeMillis() - coalesceWindow);
+  }
+
+  @PreDestroy
+  private void drain() {
+    if (!dirties.isEmpty()) {
+      logger.info("Draining {} deferred recalculations", dirties.size());
+      flushDirtiedBefore(Long.MAX_VALUE);
+    }
+  }
+
+  private void flushDirtiedBefore(long deadline) {
+    if (dirties.isEmpty()) {
+      return;
+    }
+
+    List<Long> arIds = dirties
+        .entrySet()
+        .stream()
+        .filter(e -> e.getValue().since() <= deadline)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+
+    for (Long arId : arIds) {
+      try {
+        flush(arId);
+      } catch (Exception e) {
+        // still dirty, retried at the next flush
+        logger.warn("Deferred recalculation failed for adjustment record {}: {}", arId, e.getMessage());
+      }
+    }
+  }
+}
@@ -4,24 +4,50 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AccumulatedPerformance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Pact;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AccumulatedPerformanceDrift;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AccumulatedPerformanceRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentRecordRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.PerformanceRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+/**
+ * RecalculateService
+ *
+ * Accumulated performance is the product of `(1 + earningsYield)` over every
+ * performance of a pact. In incremental mode (default), the product of the
+ * settled performances is stored alongside the accumulated performance, so that
+ * a mutation of the unsettled record only needs to apply its own performance.
+ * The settled product is refreshed by every full recalculation (settle/cancel
+ * settle), and a periodic reconciliation reports any drift between the two.
+ *
+ * Every full recalculation also rebuilds the prefix product index of the
+ * pact's settled performances.
+ */
 @Service
 public class RecalculateService {
 
-  @Autowired
-  private AdjustmentRecordRepository adjustmentRecordRepository;
+  private static final Logger logger = LogManager.getLogger(RecalculateService.class);
 
   @Autowired
   private PerformanceRepository performanceRepository;
@@ -29,6 +55,24 @@ public class RecalculateService {
   @Autowired
   private AccumulatedPerformanceRepository accumulatedPerformanceRepository;
 
+  @Autowired
+  private AdjustmentRecordRepository adjustmentRecordRepository;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private AggregateLockService aggregateLockService;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Value("${portfolio.accumulated-performance.incremental:true}")
+  private boolean incremental;
+
+  @Value("${portfolio.accumulated-performance.drift-tolerance:1e-5}")
+  private float driftTolerance;
+
   // =======================================================================
   // Mutation methods
   // =======================================================================
@@ -46,10 +90,14 @@ public class RecalculateService {
   public AccumulatedPerformance recalculateAccumulatedPerformance(Pact pact, boolean isSettle, boolean isAdjusted) {
     Long pactId = pact.getId();
 
-    // get all adjustment record ids under this pact
-    List<Long> arIds = adjustmentRecordRepository.findIdsByPactId(pactId);
-    // get all performance records
-    List<Performance> pfms = performanceRepository.findByAdjustmentRecordIdIn(arIds);
+    // get all performance records, in adjust date/version order
+    List<Performance> pfms = performanceRepository.findByPactIdOrdered(pactId);
+    // unsettled records are told by id, since performances already loaded in
+    // the persistence context keep the adjustment record instance they were
+    // given
+    List<Long> unsettledArIds = adjustmentRecordRepository.findUnsettledIdsByPactId(pactId);
+    // refresh the prefix product index, which is used by the time series
+    PortfolioCalculationHelper.indexSettledPerformances(pfms, unsettledArIds);
     // calculate accumulated performance
     PortfolioCalculationHelper.AccumulatedPerformanceResult apr = PortfolioCalculationHelper
         .calculateAccumulatedPerformance(pfms);
@@ -75,6 +123,135 @@ public class RecalculateService {
     ap.setPortfolioEarningsYield(apr.portfolioEarningsYield());
     ap.setAlpha(apr.alpha());
 
+    // refresh the settled product, which is used by the incremental mode
+    PortfolioCalculationHelper.SettledProductResult spr = PortfolioCalculationHelper
+        .calculateSettledProduct(settledPerformances(pfms, unsettledArIds));
+    ap.setSettledPortfolioProduct(spr.portfolioProduct());
+    ap.setSettledBenchmarkProduct(spr.benchmarkProduct());
+
     return ap;
   }
+
+  /**
+   * Recalculate accumulated performance after a mutation of an adjustment
+   * record's constituents or benchmarks.
+   *
+   * If the record is the unsettled one and the settled product is known, only
+   * the new performance is applied. Otherwise, falls back to the full
+   * recalculation.
+   *
+   * @param adjustmentRecord: the mutated adjustment record
+   * @param performance:      the performance of the mutated adjustment record
+   * @return
+   */
+  public AccumulatedPerformance recalculateAccumulatedPerformance(
+      AdjustmentRecord adjustmentRecord,
+      Performance performance) {
+    Pact pact = adjustmentRecord.getPact();
+
+    if (!incremental || adjustmentRecord.getIsUnsettled() != Boolean.TRUE) {
+      return recalculateAccumulatedPerformance(pact, false, false);
+    }
+
+    AccumulatedPerformance ap = accumulatedPerformanceRepository
+        .findByPactId(pact.getId())
+        .orElse(null);
+    if (ap == null || ap.getSettledPortfolioProduct() == null || ap.getSettledBenchmarkProduct() == null) {
+      return recalculateAccumulatedPerformance(pact, false, false);
+    }
+
+    PortfolioCalculationHelper.AccumulatedPerformanceResult apr = PortfolioCalculationHelper
+        .calculateAccumulatedPerformance(
+            new PortfolioCalculationHelper.SettledProductResult(
+                ap.getSettledPortfolioProduct(),
+                ap.getSettledBenchmarkProduct()),
+            performance);
+
+    ap.setBenchmarkEarningsYield(apr.benchmarkEarningsYield());
+    ap.setPortfolioEarningsYield(apr.portfolioEarningsYield());
+    ap.setAlpha(apr.alpha());
+
+    return ap;
+  }
+
+  /**
+   * Fully recalculate every pact's accumulated performance, and report the ones
+   * whose stored values drift from the recalculated ones beyond tolerance.
+   *
+   * Stored values (including the settled product) are overwritten by the
+   * recalculated ones.
+   *
+   * Not transactional: each pact is reconciled in its own transaction, under
+   * its lock, so that concurrent mutations of a pact are neither overwritten
+   * by the reconciliation nor blocked for the whole run.
+   *
+   * @return
+   */
+  public List<AccumulatedPerformanceDrift> reconcileAccumulatedPerformances() {
+    List<AccumulatedPerformanceDrift> drifts = new ArrayList<>();
+
+    for (Long pactId : accumulatedPerformanceRepository.findAllPactIds()) {
+      transactionTemplate
+          .execute(status -> reconcileAccumulatedPerformance(pactId))
+          .ifPresent(drifts::add);
+    }
+
+    return drifts;
+  }
+
+  // the drift of a pact beyond tolerance, within the caller's transaction
+  private Optional<AccumulatedPerformanceDrift> reconcileAccumulatedPerformance(Long pactId) {
+    aggregateLockService.lockPact(pactId);
+
+    // read under the lock, the pact might have been deleted meanwhile
+    AccumulatedPerformance stored = accumulatedPerformanceRepository.findByPactId(pactId).orElse(null);
+    if (stored == null) {
+      return Optional.empty();
+    }
+
+    Float storedPey = stored.getPortfolioEarningsYield();
+    Float storedBey = stored.getBenchmarkEarningsYield();
+    Float storedAlpha = stored.getAlpha();
+
+    AccumulatedPerformance reconciled = recalculateAccumulatedPerformance(stored.getPact(), false, false);
+    accumulatedPerformanceRepository.save(reconciled);
+
+    AccumulatedPerformanceDrift drift = new AccumulatedPerformanceDrift(
+        pactId,
+        storedPey,
+        reconciled.getPortfolioEarningsYield(),
+        storedBey,
+        reconciled.getBenchmarkEarningsYield(),
+        storedAlpha,
+        reconciled.getAlpha());
+
+    if (drift.maxAbsoluteDrift() <= driftTolerance) {
+      return Optional.empty();
+    }
+
+    eventPublisher.publishEvent(new PortfolioChangedEvent(pactId, null));
+    return Optional.of(drift);
+  }
+
+  // periodic reconciliation, disabled by setting the cron expression to "-"
+  @Scheduled(cron = "${portfolio.accumulated-performance.reconcile-cron:0 0 2 * * *}")
+  public void scheduledReconciliation() {
+    List<AccumulatedPerformanceDrift> drifts = reconcileAccumulatedPerformances();
+
+    if (drifts.isEmpty()) {
+      logger.info("Accumulated performance reconciliation finished, no drift found");
+    } else {
+      drifts.forEach(d -> logger.warn("Accumulated performance drift found: {}", d));
+    }
+  }
+
+  private static List<Performance> settledPerformances(
+      List<Performance> performances,
+      Collection<Long> unsettledAdjustmentRecordIds) {
+    return performances
+        .stream()
+        .filter(p -> p.getAdjustmentRecord() != null
+            && !unsettledAdjustmentRecordIds.contains(p.getAdjustmentRecord().getId()))
+        .collect(Collectors.toList());
+  }
 }
@@ -10,6 +10,7 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Adjus
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.AdjustmentRecordRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.repository.BenchmarkRepository;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,6 +21,9 @@ public class ValidationService {
   @Autowired
   private AdjustmentRecordRepository arRepo;
 
+  @Autowired
+  private BenchmarkRepository bRepo;
+
   public void checkAdjustmentRecordIsUnsettled(Long adjustmentRecordId) {
     AdjustmentRecord ar = arRepo
         .findById(adjustmentRecordId)
@@ -39,6 +43,15 @@ public class ValidationService {
         .mapToDouble(Benchmark::getStaticWeight)
         .sum();
 
+    checkBenchmarksTotalWeightIsWithinRange(totalWeight);
+  }
+
+  // same as above, but summed by the database
+  public void checkBenchmarksTotalWeightIsWithinRange(Long adjustmentRecordId) {
+    checkBenchmarksTotalWeightIsWithinRange(bRepo.sumStaticWeightByARId(adjustmentRecordId));
+  }
+
+  private void checkBenchmarksTotalWeightIsWithinRange(double totalWeight) {
     if (totalWeight < 0 || totalWeight > 1.1) {
       throw new RuntimeException(String.format(
           "Total weight of benchmarks is %f, which is out of range [0, 1]", totalWeight));
@@ -0,0 +1,23 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event;
+
+/**
+ * PortfolioChangedEvent
+ *
+ * Published by portfolio services whenever rows of a pact (pact itself,
+ * adjustment records, constituents, benchmarks, performances or adjustment
+ * infos) are changed. Listeners should use `@TransactionalEventListener`, so
+ * that they are only notified once the change is committed.
+ *
+ * @param pactId:             null if unknown, which means any pact may have
+ *                            been changed
+ * @param adjustmentRecordId: nullable, the adjustment record whose rows have
+ *                            been changed
+ */
+public record PortfolioChangedEvent(
+    Long pactId,
+    Long adjustmentRecordId) {
+
+  public boolean isAnyPact() {
+    return pactId == null;
+  }
+}
@@ -5,32 +5,18 @@
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper;
 
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.obj.AdjustmentOperation;
-import com.google.common.collect.HashBiMap;
-import com.google.common.collect.Sets;
 
 public class PortfolioAdjustmentHelper {
 
-  private static <T> Set<T> intersection(Set<T> pre, Set<T> cur) {
-    Set<T> intersection = Sets.newHashSet(pre);
-    intersection.retainAll(cur);
-    return intersection;
-  }
-
-  private static <T> Set<T> difference(Set<T> pre, Set<T> cur) {
-    Set<T> difference = Sets.newHashSet(pre);
-    difference.removeAll(cur);
-    return difference;
-  }
+  private static final Comparator<Constituent> BY_SYMBOL = Comparator.comparing(Constituent::getSymbol);
 
   // IMPORTANT:
   // If preCons and curCons are the same (same constituents with unchanged static
@@ -43,97 +29,104 @@ public class PortfolioAdjustmentHelper {
       throw new IllegalArgumentException("Constituents must be non-empty");
     }
 
+    // NOTICE: adjustment should use the current adjustment record
     final AdjustmentRecord curAr = curCons.get(0).getAdjustmentRecord();
+    final LocalTime adjustTime = LocalTime.now();
+
+    List<AdjustmentInfo> ais = diff(preCons, curCons);
+    ais.forEach(ai -> {
+      ai.setAdjustmentRecord(curAr);
+      ai.setAdjustTime(adjustTime);
+    });
+
+    return ais;
+  }
+
+  /**
+   * Diff two snapshots in a single sorted-merge pass over their symbols.
+   *
+   * remaining: if the current static weight is less than the previous one, mark
+   * the constituent as `Decrease`; if greater, mark it as `Increase`; otherwise
+   * it is skipped.
+   *
+   * added: mark it as `Join`.
+   *
+   * popped: mark it as `Leave`.
+   *
+   * The adjustment infos are in symbol order, without adjustment record nor
+   * adjust time.
+   *
+   * @param preCons
+   * @param curCons
+   * @return
+   */
+  public static List<AdjustmentInfo> diff(
+      List<Constituent> preCons,
+      List<Constituent> curCons) {
+
+    List<Constituent> pre = sorted(preCons);
+    List<Constituent> cur = sorted(curCons);
+
+    List<AdjustmentInfo> ais = new ArrayList<>();
+    int i = 0;
+    int j = 0;
+    while (i < pre.size() || j < cur.size()) {
+      int cmp = i == pre.size()
+          ? 1
+          : j == cur.size()
+              ? -1
+              : pre.get(i).getSymbol().compareTo(cur.get(j).getSymbol());
+
+      if (cmp < 0) {
+        Constituent c = pre.get(i++);
+        ais.add(adjustmentInfo(c, AdjustmentOperation.Leave, c.getStaticWeight(), 0f, c.getStaticWeight()));
+      } else if (cmp > 0) {
+        Constituent c = cur.get(j++);
+        ais.add(adjustmentInfo(c, AdjustmentOperation.Join, 0f, c.getStaticWeight(), c.getStaticWeight()));
+      } else {
+        Constituent preC = pre.get(i++);
+        Constituent curC = cur.get(j++);
+        // operation based on the static weight's change
+        int wCmp = Float.compare(curC.getStaticWeight(), preC.getStaticWeight());
+        if (wCmp != 0) {
+          ais.add(adjustmentInfo(
+              preC,
+              wCmp > 0 ? AdjustmentOperation.Increase : AdjustmentOperation.Decrease,
+              preC.getStaticWeight(),
+              curC.getStaticWeight(),
+              curC.getStaticWeight() - preC.getStaticWeight()));
+        }
+      }
+    }
+
+    return ais;
+  }
+
+  private static List<Constituent> sorted(List<Constituent> cons) {
+    List<Constituent> res = new ArrayList<>(cons);
+    res.sort(BY_SYMBOL);
+    for (int k = 1; k < res.size(); k++) {
+      if (res.get(k - 1).getSymbol().equals(res.get(k).getSymbol())) {
+        throw new IllegalStateException("Duplicate symbol: " + res.get(k).getSymbol());
+      }
+    }
+    return res;
+  }
 
-    Map<String, Constituent> preConsMap = HashBiMap
-        .create(preCons
-            .stream()
-            .collect(Collectors.toMap(Constituent::getSymbol, c -> c)));
-    Map<String, Constituent> curConsMap = HashBiMap
-        .create(curCons
-            .stream()
-            .collect(Collectors.toMap(Constituent::getSymbol, c -> c)));
-
-    Set<String> preConsSymbols = Sets.newHashSet(preConsMap.keySet());
-    Set<String> curConsSymbols = Sets.newHashSet(curConsMap.keySet());
-
-    // remaining: if the current static weight is less than the previous one, mark
-    // the constituent as `Decrease`; otherwise, mark it as `Increase`.
-    Set<String> remainingSymbols = intersection(preConsSymbols, curConsSymbols);
-    // added: mark it as `Join`.
-    Set<String> addedSymbols = difference(curConsSymbols, preConsSymbols);
-    // popped: mark it as `Leave`.
-    Set<String> poppedSymbols = difference(preConsSymbols, curConsSymbols);
-
-    List<AdjustmentInfo> aisRemaining = remainingSymbols
-        .stream()
-        .map(i -> {
-          Constituent preC = preConsMap.get(i);
-          Constituent curC = curConsMap.get(i);
-
-          AdjustmentInfo ai = new AdjustmentInfo();
-          // NOTICE: adjustment should use the current adjustment record
-          ai.setAdjustmentRecord(curAr);
-          ai.setAdjustTime(LocalTime.now());
-          ai.setSymbol(preC.getSymbol());
-          ai.setAbbreviation(preC.getAbbreviation());
-          // operation based on the static weight's change
-          AdjustmentOperation ao = AdjustmentOperation.Unchanged;
-          if (preC.getStaticWeight() < curC.getStaticWeight()) {
-            ao = AdjustmentOperation.Increase;
-          } else if (preC.getStaticWeight() > curC.getStaticWeight()) {
-            ao = AdjustmentOperation.Decrease;
-          }
-          ai.setOperation(ao);
-          ai.setPreviousStaticWeight(preC.getStaticWeight());
-          ai.setCurrentStaticWeight(curC.getStaticWeight());
-          ai.setStaticWeight(curC.getStaticWeight() - preC.getStaticWeight());
-
-          return ai;
-        })
-        .filter(c -> c.getOperation() != AdjustmentOperation.Unchanged)
-        .collect(Collectors.toList());
-
-    List<AdjustmentInfo> aisAdded = addedSymbols
-        .stream()
-        .map(i -> {
-          Constituent c = curConsMap.get(i);
-          AdjustmentInfo ai = new AdjustmentInfo();
-          // NOTICE: adjustment should use the current adjustment record
-          ai.setAdjustmentRecord(curAr);
-          ai.setAdjustTime(LocalTime.now());
-          ai.setSymbol(c.getSymbol());
-          ai.setAbbreviation(c.getAbbreviation());
-          ai.setOperation(AdjustmentOperation.Join);
-          ai.setPreviousStaticWeight(0f);
-          ai.setCurrentStaticWeight(c.getStaticWeight());
-          ai.setStaticWeight(c.getStaticWeight());
-          return ai;
-        })
-        .collect(Collectors.toList());
-
-    List<AdjustmentInfo> aisPopped = poppedSymbols
-        .stream()
-        .map(i -> {
-          Constituent c = preConsMap.get(i);
-          AdjustmentInfo ai = new AdjustmentInfo();
-          // NOTICE: adjustment should use the current adjustment record
-          ai.setAdjustmentRecord(curAr);
-          ai.setAdjustTime(LocalTime.now());
-          ai.setSymbol(c.getSymbol());
-          ai.setAbbreviation(c.getAbbreviation());
-          ai.setOperation(AdjustmentOperation.Leave);
-          ai.setPreviousStaticWeight(c.getStaticWeight());
-          ai.setCurrentStaticWeight(0f);
-          ai.setStaticWeight(c.getStaticWeight());
-          return ai;
-        })
-        .collect(Collectors.toList());
-
-    return Stream
-        .of(aisRemaining, aisAdded, aisPopped)
-        .flatMap(List::stream)
-        .collect(Collectors.toList());
+  private static AdjustmentInfo adjustmentInfo(
+      Constituent c,
+      AdjustmentOperation operation,
+      Float previousStaticWeight,
+      Float currentStaticWeight,
+      Float staticWeightChange) {
+    AdjustmentInfo ai = new AdjustmentInfo();
+    ai.setSymbol(c.getSymbol());
+    ai.setAbbreviation(c.getAbbreviation());
+    ai.setOperation(operation);
+    ai.setPreviousStaticWeight(previousStaticWeight);
+    ai.setCurrentStaticWeight(currentStaticWeight);
+    ai.setStaticWeight(staticWeightChange);
+    return ai;
   }
 
 }
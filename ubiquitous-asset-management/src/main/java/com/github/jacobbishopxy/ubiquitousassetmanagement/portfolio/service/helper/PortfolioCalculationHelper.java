@@ -4,11 +4,13 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationKernel.Columns;
 
 public class PortfolioCalculationHelper {
 
@@ -17,29 +19,16 @@ public class PortfolioCalculationHelper {
       Float earningsYield) {
   }
 
+  // normalizes constituents' dynamic weights in place
   public static ConstituentsResult modifyConstituentsAndCalculatePortfolioEarningsYield(
       List<Constituent> constituents) {
+    Columns cols = Columns.ofConstituents(constituents);
 
-    Float totalExpansion = constituents
-        .stream()
-        .map(Constituent::getDynamicWeight)
-        .reduce(0f, (t, u) -> Float.sum(t, u));
-
-    Float earningsYield = constituents
-        .stream()
-        .map(c -> {
-          Float ey = c.getEarningsYield();
-          if (ey == null) {
-            ey = 0f;
-          }
-          return c.getStaticWeight() * ey;
-        })
-        .reduce(0f, (t, u) -> Float.sum(t, u));
+    Float earningsYield = PortfolioCalculationKernel.weightedYieldAndNormalize(cols);
 
-    constituents.stream().map(c -> {
-      c.setDynamicWeight(c.getDynamicWeight() / totalExpansion);
-      return c;
-    });
+    for (int i = 0; i < cols.length(); i++) {
+      constituents.get(i).setDynamicWeight(cols.dynamicWeights()[i]);
+    }
 
     return new ConstituentsResult(constituents, earningsYield);
   }
@@ -49,29 +38,16 @@ public class PortfolioCalculationHelper {
       Float earningsYield) {
   }
 
+  // normalizes benchmarks' dynamic weights in place
   public static BenchmarksResult modifyBenchmarksAndCalculateBenchmarkEarningsYield(
       List<Benchmark> benchmarks) {
+    Columns cols = Columns.ofBenchmarks(benchmarks);
 
-    Float totalExpansion = benchmarks
-        .stream()
-        .map(Benchmark::getDynamicWeight)
-        .reduce(0f, (t, u) -> Float.sum(t, u));
+    Float earningsYield = PortfolioCalculationKernel.weightedYieldAndNormalize(cols);
 
-    Float earningsYield = benchmarks
-        .stream()
-        .map(b -> {
-          Float ey = b.getPercentageChange();
-          if (ey == null) {
-            ey = 0f;
-          }
-          return b.getStaticWeight() * ey;
-        })
-        .reduce(0f, (t, u) -> Float.sum(t, u));
-
-    benchmarks.stream().map(b -> {
-      b.setDynamicWeight(b.getDynamicWeight() / totalExpansion);
-      return b;
-    });
+    for (int i = 0; i < cols.length(); i++) {
+      benchmarks.get(i).setDynamicWeight(cols.dynamicWeights()[i]);
+    }
 
     return new BenchmarksResult(benchmarks, earningsYield);
   }
@@ -121,4 +97,93 @@ public class PortfolioCalculationHelper {
         accumulatedBenchmarkEarningsYield,
         accumulatedAlpha);
   }
+
+  public record SettledProductResult(
+      Double portfolioProduct,
+      Double benchmarkProduct) {
+  }
+
+  /**
+   * Product of `(1 + earningsYield)` over the given (settled) performances. Kept
+   * in double precision, since it is stored and reused by the incremental
+   * accumulated performance calculation.
+   *
+   * @param settledPerformances
+   * @return
+   */
+  public static SettledProductResult calculateSettledProduct(List<Performance> settledPerformances) {
+    double portfolioProduct = 1d;
+    double benchmarkProduct = 1d;
+
+    for (Performance p : settledPerformances) {
+      Float pey = p.getPortfolioEarningsYield();
+      Float bey = p.getBenchmarkEarningsYield();
+      portfolioProduct *= 1 + (pey == null ? 0d : pey);
+      benchmarkProduct *= 1 + (bey == null ? 0d : bey);
+    }
+
+    return new SettledProductResult(portfolioProduct, benchmarkProduct);
+  }
+
+  /**
+   * Set the prefix product index of settled performances, which must be in
+   * adjust date/version order. Unsettled performances are not indexed.
+   *
+   * @param orderedPerformances
+   * @param unsettledAdjustmentRecordIds: performances of these adjustment
+   *                                      records are unsettled, whatever the
+   *                                      flag of their adjustment record
+   *                                      instance
+   */
+  public static void indexSettledPerformances(
+      List<Performance> orderedPerformances,
+      Collection<Long> unsettledAdjustmentRecordIds) {
+    double portfolioProduct = 1d;
+    double benchmarkProduct = 1d;
+
+    for (Performance p : orderedPerformances) {
+      if (unsettledAdjustmentRecordIds.contains(p.getAdjustmentRecord().getId())) {
+        p.setPortfolioProductIndex(null);
+        p.setBenchmarkProductIndex(null);
+        continue;
+      }
+
+      Float pey = p.getPortfolioEarningsYield();
+      Float bey = p.getBenchmarkEarningsYield();
+      portfolioProduct *= 1 + (pey == null ? 0d : pey);
+      benchmarkProduct *= 1 + (bey == null ? 0d : bey);
+      p.setPortfolioProductIndex(portfolioProduct);
+      p.setBenchmarkProductIndex(benchmarkProduct);
+    }
+  }
+
+  /**
+   * Accumulated performance from a settled prefix product and the unsettled
+   * performance, which equals `calculateAccumulatedPerformance` over the whole
+   * chain.
+   *
+   * @param settledProduct
+   * @param unsettledPerformance
+   * @return
+   */
+  public static AccumulatedPerformanceResult calculateAccumulatedPerformance(
+      SettledProductResult settledProduct,
+      Performance unsettledPerformance) {
+    Float pey = unsettledPerformance.getPortfolioEarningsYield();
+    Float bey = unsettledPerformance.getBenchmarkEarningsYield();
+
+    Float accumulatedPortfolioEarningsYield = (float) (settledProduct.portfolioProduct()
+        * (1 + (pey == null ? 0d : pey)) - 1);
+    Float accumulatedBenchmarkEarningsYield = (float) (settledProduct.benchmarkProduct()
+        * (1 + (bey == null ? 0d : bey)) - 1);
+
+    Float accumulatedAlpha = calculateAlpha(
+        accumulatedPortfolioEarningsYield,
+        accumulatedBenchmarkEarningsYield);
+
+    return new AccumulatedPerformanceResult(
+        accumulatedPortfolioEarningsYield,
+        accumulatedBenchmarkEarningsYield,
+        accumulatedAlpha);
+  }
 }
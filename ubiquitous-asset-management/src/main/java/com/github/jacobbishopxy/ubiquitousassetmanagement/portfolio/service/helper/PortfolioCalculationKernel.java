@@ -0,0 +1,101 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper;
+
+import java.util.List;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Benchmark;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+
+/**
+ * PortfolioCalculationKernel
+ *
+ * Primitive calculations over columns extracted once from constituents or
+ * benchmarks. No boxing and no allocation inside the loops; sums are
+ * accumulated in double precision.
+ */
+public final class PortfolioCalculationKernel {
+
+  private PortfolioCalculationKernel() {
+  }
+
+  /**
+   * Columns of a weighted portfolio (constituents or benchmarks). Null values
+   * are extracted as 0.
+   *
+   * @param staticWeights
+   * @param dynamicWeights: expansion rates, normalized in place by the kernel
+   * @param yields:         earnings yield (constituent) or percentage change
+   *                        (benchmark)
+   */
+  public record Columns(
+      float[] staticWeights,
+      float[] dynamicWeights,
+      float[] yields) {
+
+    public int length() {
+      return staticWeights.length;
+    }
+
+    public static Columns ofConstituents(List<Constituent> constituents) {
+      int n = constituents.size();
+      Columns cols = new Columns(new float[n], new float[n], new float[n]);
+      for (int i = 0; i < n; i++) {
+        Constituent c = constituents.get(i);
+        cols.staticWeights[i] = orZero(c.getStaticWeight());
+        cols.dynamicWeights[i] = orZero(c.getDynamicWeight());
+        cols.yields[i] = orZero(c.getEarningsYield());
+      }
+      return cols;
+    }
+
+    public static Columns ofBenchmarks(List<Benchmark> benchmarks) {
+      int n = benchmarks.size();
+      Columns cols = new Columns(new float[n], new float[n], new float[n]);
+      for (int i = 0; i < n; i++) {
+        Benchmark b = benchmarks.get(i);
+        cols.staticWeights[i] = orZero(b.getStaticWeight());
+        cols.dynamicWeights[i] = orZero(b.getDynamicWeight());
+        cols.yields[i] = orZero(b.getPercentageChange());
+      }
+      return cols;
+    }
+
+    private static float orZero(Float v) {
+      return v == null ? 0f : v;
+    }
+  }
+
+  /**
+   * Weighted yield `sum(staticWeight * yield)`, and normalize the dynamic weights
+   * by their sum in place. The dynamic weights are left unchanged if their sum is
+   * 0.
+   *
+   * @param cols
+   * @return weighted yield
+   */
+  public static float weightedYieldAndNormalize(Columns cols) {
+    return weightedYieldAndNormalize(cols.staticWeights(), cols.dynamicWeights(), cols.yields(), cols.length());
+  }
+
+  public static float weightedYieldAndNormalize(
+      float[] staticWeights,
+      float[] dynamicWeights,
+      float[] yields,
+      int length) {
+    double totalExpansion = 0d;
+    double weightedYield = 0d;
+    for (int i = 0; i < length; i++) {
+      totalExpansion += dynamicWeights[i];
+      weightedYield += (double) staticWeights[i] * yields[i];
+    }
+
+    // a multiplication loop, which the JIT is able to vectorize
+    if (totalExpansion != 0d) {
+      float reciprocal = (float) (1d / totalExpansion);
+      for (int i = 0; i < length; i++) {
+        dynamicWeights[i] *= reciprocal;
+      }
+    }
+
+    return (float) weightedYield;
+  }
+}
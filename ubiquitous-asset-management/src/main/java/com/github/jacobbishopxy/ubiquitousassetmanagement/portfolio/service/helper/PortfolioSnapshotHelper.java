@@ -0,0 +1,126 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+
+/**
+ * PortfolioSnapshotHelper
+ *
+ * Delta encoding of settled constituents. A delta snapshot only stores the
+ * constituents which differ from its parent snapshot (keyed by symbol), the
+ * others are inherited from the parent when the snapshot is rebuilt.
+ *
+ * A delta has no tombstone, so a snapshot which drops any of its parent's
+ * symbols is stored in full.
+ */
+public class PortfolioSnapshotHelper {
+
+  /**
+   * Whether `cons` can be stored as a delta against `parentCons`: symbols are
+   * unique, and none of the parent's symbols is dropped.
+   *
+   * @param parentCons
+   * @param cons
+   * @return
+   */
+  public static boolean isDeltaEncodable(List<Constituent> parentCons, List<Constituent> cons) {
+    if (parentCons.isEmpty()) {
+      return false;
+    }
+
+    Set<String> parentSymbols = symbols(parentCons);
+    Set<String> symbols = symbols(cons);
+
+    return parentSymbols.size() == parentCons.size()
+        && symbols.size() == cons.size()
+        && symbols.containsAll(parentSymbols);
+  }
+
+  /**
+   * Constituents of `cons` which do not exist in `parentCons`, or whose values
+   * differ from the parent's.
+   *
+   * @param parentCons
+   * @param cons
+   * @return
+   */
+  public static List<Constituent> changed(List<Constituent> parentCons, List<Constituent> cons) {
+    Map<String, Constituent> parentMap = bySymbol(parentCons);
+
+    return cons
+        .stream()
+        .filter(c -> !sameValues(parentMap.get(c.getSymbol()), c))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Rebuild a full snapshot from its parent's full snapshot and its delta. The
+   * parent's order is kept, new symbols are appended. Constituents are copied,
+   * and the inherited ones are bound to `adjustmentRecord` (their ids are the
+   * parent's).
+   *
+   * @param adjustmentRecord
+   * @param parentCons:      the parent's full snapshot
+   * @param deltaCons:       stored constituents of `adjustmentRecord`
+   * @return
+   */
+  public static List<Constituent> rebuild(
+      AdjustmentRecord adjustmentRecord,
+      List<Constituent> parentCons,
+      List<Constituent> deltaCons) {
+    Map<String, Constituent> deltaMap = bySymbol(deltaCons);
+
+    List<Constituent> res = new ArrayList<>(parentCons.size() + deltaCons.size());
+    for (Constituent pc : parentCons) {
+      Constituent dc = deltaMap.remove(pc.getSymbol());
+      if (dc != null) {
+        res.add(new Constituent(dc));
+      } else {
+        Constituent c = new Constituent(pc);
+        c.setAdjustmentRecord(adjustmentRecord);
+        res.add(c);
+      }
+    }
+    deltaMap.values().forEach(dc -> res.add(new Constituent(dc)));
+
+    return res;
+  }
+
+  // every persisted value but the id, the adjustment record and the audit dates
+  private static boolean sameValues(Constituent a, Constituent b) {
+    return a != null
+        && Objects.equals(a.getAdjustDate(), b.getAdjustDate())
+        && Objects.equals(a.getSymbol(), b.getSymbol())
+        && Objects.equals(a.getAbbreviation(), b.getAbbreviation())
+        && Objects.equals(a.getAdjustDatePrice(), b.getAdjustDatePrice())
+        && Objects.equals(a.getCurrentPrice(), b.getCurrentPrice())
+        && Objects.equals(a.getAdjustDateFactor(), b.getAdjustDateFactor())
+        && Objects.equals(a.getCurrentFactor(), b.getCurrentFactor())
+        && Objects.equals(a.getStaticWeight(), b.getStaticWeight())
+        && Objects.equals(a.getDynamicWeight(), b.getDynamicWeight())
+        && Objects.equals(a.getPbpe(), b.getPbpe())
+        && Objects.equals(a.getMarketValue(), b.getMarketValue())
+        && Objects.equals(a.getEarningsYield(), b.getEarningsYield());
+  }
+
+  private static Set<String> symbols(List<Constituent> cons) {
+    return cons
+        .stream()
+        .map(Constituent::getSymbol)
+        .collect(Collectors.toSet());
+  }
+
+  private static Map<String, Constituent> bySymbol(List<Constituent> cons) {
+    Map<String, Constituent> map = new LinkedHashMap<>();
+    cons.forEach(c -> map.put(c.getSymbol(), c));
+    return map;
+  }
+}
@@ -17,6 +17,9 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * PromotionPact
  *
@@ -25,6 +28,8 @@ import javax.validation.constraints.NotEmpty;
  */
 @Entity
 @Table(name = "promotion_pact")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constants.CACHE_REGION_PROMOTION_PACT)
 public class PromotionPact {
   // =======================================================================
   // Fields
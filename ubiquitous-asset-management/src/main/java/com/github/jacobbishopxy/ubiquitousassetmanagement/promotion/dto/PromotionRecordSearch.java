@@ -119,7 +119,7 @@ public record PromotionRecordSearch(
             orders.add(earningsYieldSort.getOrder("earningsYield"));
         }
         if (performanceScoreSort != null) {
-            orders.add(performanceScoreSort.getOrder("performanceScoreSort"));
+            orders.add(performanceScoreSort.getOrder("performanceScore"));
         }
         if (createdAtSort != null) {
             orders.add(createdAtSort.getOrder("createdAt"));
@@ -4,15 +4,21 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionPact;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository.CachedReferenceQuery;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PromotionPactRepository extends JpaRepository<PromotionPact, String> {
 
+  @CachedReferenceQuery
   public Optional<PromotionPact> findByName(String name);
 
+  @CachedReferenceQuery
+  public List<PromotionPact> findAll();
+
   public void deleteByName(String name);
 }
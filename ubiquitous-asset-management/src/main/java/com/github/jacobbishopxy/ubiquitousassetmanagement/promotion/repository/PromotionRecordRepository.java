@@ -8,6 +8,9 @@ import java.util.List;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionRecord;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.*;
 
 public interface PromotionRecordRepository
@@ -18,8 +21,20 @@ public interface PromotionRecordRepository
   // @Query("delete promotion_record p where p.score = 0")
   // int deleteZeroScores();
 
+  // pages of records fetch their EAGER promoter and promotion pact by a join,
+  // instead of a select per distinct promoter/pact of the page
+  @Override
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
+  Page<PromotionRecord> findAll(Pageable pageable);
+
+  @Override
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
+  Page<PromotionRecord> findAll(Specification<PromotionRecord> spec, Pageable pageable);
+
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
   List<PromotionRecord> findByPromotionPactName(String promotionPactName);
 
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
   List<PromotionRecord> findByPromoterEmail(String promoterEmail);
 
   List<PromotionRecord> findByPromotionPactNameAndPromoterEmail(
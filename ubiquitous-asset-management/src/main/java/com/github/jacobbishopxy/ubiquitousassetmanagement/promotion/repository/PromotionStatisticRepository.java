@@ -9,14 +9,22 @@ import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionStatistic;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface PromotionStatisticRepository extends JpaRepository<PromotionStatistic, Integer> {
 
   Integer countByPromotionPactName(String promotionPactName);
 
+  // statistics fetch their EAGER promoter and promotion pact by a join
+  @Override
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
+  List<PromotionStatistic> findAll();
+
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
   List<PromotionStatistic> findByPromotionPactName(String promotionPactName);
 
+  @EntityGraph(attributePaths = { "promoter", "promotionPact" })
   List<PromotionStatistic> findByPromoterEmail(String promoterEmail);
 
   Optional<PromotionStatistic> findByPromotionPactNameAndPromoterEmail(String promotionPactName, String promoterEmail);
@@ -12,11 +12,13 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.repository.P
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * PromotionPactService
  *
- * PromotionPactService is used to manage promotion pacts.
+ * PromotionPactService is used to manage promotion pacts. Cached by the
+ * second-level cache, whose entries are updated once a mutation is committed.
  */
 @Service
 public class PromotionPactService {
@@ -32,10 +34,12 @@ public class PromotionPactService {
     return repo.findByName(name);
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public PromotionPact createPromotionPact(PromotionPact promotionPact) {
     return repo.save(promotionPact);
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public Optional<PromotionPact> updatePromotionPact(String name, PromotionPact promotionPact) {
     return repo.findByName(name).map(
         record -> {
@@ -45,6 +49,7 @@ public class PromotionPactService {
         });
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public void deletePromotionPact(String name) {
     repo.deleteByName(name);
   }
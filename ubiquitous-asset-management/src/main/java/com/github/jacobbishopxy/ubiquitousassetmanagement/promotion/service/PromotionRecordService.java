@@ -5,9 +5,13 @@
 package com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionPact;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionRecord;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.domain.PromotionStatistic;
@@ -16,8 +20,13 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.repository.P
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.repository.PromotionRecordRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.repository.PromotionStatisticRepository;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service.helper.PromotionCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service.helper.PromotionCalculationHelper.AffectPromotionStatisticType;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.promotion.service.specifications.PromotionRecordSpecification;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository.PromoterRepository;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service.AggregateLockService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -30,11 +39,15 @@ import org.springframework.transaction.annotation.Transactional;
  *
  * Business logic for PromotionRecord. Each time a create/update/delete
  * operation is performed, the corresponding PromotionStatistic will be updated
- * as well.
+ * as well, under the lock of its promotion pact and promoter.
+ *
+ * Mutations are timed as `promotion.record.mutation`, tagged by operation.
  */
 @Service
 public class PromotionRecordService {
 
+  public static final String MUTATION_TIMER = "promotion.record.mutation";
+
   @Autowired
   private PromoterRepository pRepo;
 
@@ -47,6 +60,26 @@ public class PromotionRecordService {
   @Autowired
   private PromotionPactRepository ppRepo;
 
+  @Autowired
+  private AggregateLockService aggregateLockService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private final Map<AffectPromotionStatisticType, Timer> mutationTimers = new EnumMap<>(
+      AffectPromotionStatisticType.class);
+
+  @PostConstruct
+  private void init() {
+    for (AffectPromotionStatisticType type : AffectPromotionStatisticType.values()) {
+      mutationTimers.put(type, Timer
+          .builder(MUTATION_TIMER)
+          .description("Time spent on mutating a promotion record and its promoter's statistic")
+          .tag("operation", type.name().toLowerCase())
+          .register(meterRegistry));
+    }
+  }
+
   public List<PromotionRecord> getPromotionRecords(int page, int size, PromotionRecordSearch searchDto) {
 
     if (searchDto == null) {
@@ -75,8 +108,15 @@ public class PromotionRecordService {
 
   @Transactional(rollbackFor = Exception.class)
   public PromotionRecord createPromotionRecord(PromotionRecord promotionRecord) {
+    return mutationTimers
+        .get(AffectPromotionStatisticType.CREATE)
+        .record(() -> doCreatePromotionRecord(promotionRecord));
+  }
+
+  private PromotionRecord doCreatePromotionRecord(PromotionRecord promotionRecord) {
     String promotionPactName = promotionRecord.getPromotionPact().getName();
     String promoterEmail = promotionRecord.getPromoter().getEmail();
+    aggregateLockService.lockPromotionStatistic(promotionPactName, promoterEmail);
 
     // 0. set promotionRecord's promotionPact since it is null by default
     PromotionPact promotionPact = this.ppRepo.findByName(promotionPactName)
@@ -95,7 +135,7 @@ public class PromotionRecordService {
 
     // 3. calculation
     promotionStatistic = PromotionCalculationHelper.affectPromotionStatistic(
-        PromotionCalculationHelper.AffectPromotionStatisticType.CREATE,
+        AffectPromotionStatisticType.CREATE,
         promotionRecord,
         promotionStatistic,
         relativePromotionRecord);
@@ -109,8 +149,15 @@ public class PromotionRecordService {
 
   @Transactional(rollbackFor = Exception.class)
   public Optional<PromotionRecord> updatePromotionRecord(int id, PromotionRecord promotionRecord) {
+    return mutationTimers
+        .get(AffectPromotionStatisticType.UPDATE)
+        .record(() -> doUpdatePromotionRecord(id, promotionRecord));
+  }
+
+  private Optional<PromotionRecord> doUpdatePromotionRecord(int id, PromotionRecord promotionRecord) {
     String promotionPactName = promotionRecord.getPromotionPact().getName();
     String promoterEmail = promotionRecord.getPromoter().getEmail();
+    aggregateLockService.lockPromotionStatistic(promotionPactName, promoterEmail);
 
     // 0. set promotionRecord's id & promotionPact since it is null by default
     PromotionPact promotionPact = this.ppRepo.findByName(promotionPactName)
@@ -130,7 +177,7 @@ public class PromotionRecordService {
 
     // 3. calculation
     promotionStatistic = PromotionCalculationHelper.affectPromotionStatistic(
-        PromotionCalculationHelper.AffectPromotionStatisticType.UPDATE,
+        AffectPromotionStatisticType.UPDATE,
         promotionRecord,
         promotionStatistic,
         relativePromotionRecord);
@@ -163,12 +210,19 @@ public class PromotionRecordService {
 
   @Transactional(rollbackFor = Exception.class)
   public void deletePromotionRecord(int id) {
+    mutationTimers
+        .get(AffectPromotionStatisticType.DELETE)
+        .record(() -> doDeletePromotionRecord(id));
+  }
+
+  private void doDeletePromotionRecord(int id) {
     PromotionRecord promotionRecord = prRepo.findById(id)
         .orElseThrow(() -> new IllegalArgumentException(
             String.format("PromotionRecord %d not found", id)));
 
     String promotionPactName = promotionRecord.getPromotionPact().getName();
     String promoterEmail = promotionRecord.getPromoter().getEmail();
+    aggregateLockService.lockPromotionStatistic(promotionPactName, promoterEmail);
 
     // 0. set promotionRecord's id & promotionPact since it is null by default
     PromotionPact promotionPact = this.ppRepo.findByName(promotionPactName)
@@ -188,7 +242,7 @@ public class PromotionRecordService {
 
     // 3. calculation
     promotionStatistic = PromotionCalculationHelper.affectPromotionStatistic(
-        PromotionCalculationHelper.AffectPromotionStatisticType.DELETE,
+        AffectPromotionStatisticType.DELETE,
         promotionRecord,
         promotionStatistic,
         relativePromotionRecord);
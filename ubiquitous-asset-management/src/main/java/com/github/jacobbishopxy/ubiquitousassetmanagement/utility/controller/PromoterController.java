@@ -35,4 +35,10 @@ public class PromoterController {
   List<Promoter> getPromoters() {
     return service.getPromoters();
   }
+
+  @DeleteMapping("/promoters/cache")
+  @Operation(summary = "Evict cached promoters, after they are changed by server-nodejs.")
+  void evictPromotersCache() {
+    service.evictCache();
+  }
 }
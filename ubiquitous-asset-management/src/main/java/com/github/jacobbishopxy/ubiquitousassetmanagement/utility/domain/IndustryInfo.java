@@ -4,11 +4,18 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.domain;
 
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 @Entity
 @Table(name = "industry_info")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constants.CACHE_REGION_INDUSTRY_INFO)
 public class IndustryInfo {
   @Id
   @Column(columnDefinition = "serial")
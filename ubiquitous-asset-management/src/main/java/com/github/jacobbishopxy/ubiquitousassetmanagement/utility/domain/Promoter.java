@@ -4,12 +4,17 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.domain;
 
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
 import io.swagger.v3.oas.annotations.media.Schema;
 
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 /**
  * Promoter
  *
@@ -18,6 +23,8 @@ import javax.validation.constraints.NotEmpty;
  */
 @Entity
 @Table(name = "author")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Constants.CACHE_REGION_PROMOTER)
 public class Promoter {
   // =======================================================================
   // Fields
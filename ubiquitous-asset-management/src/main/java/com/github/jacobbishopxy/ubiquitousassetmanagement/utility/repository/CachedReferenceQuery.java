@@ -0,0 +1,30 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.persistence.QueryHint;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
+
+import org.springframework.data.jpa.repository.QueryHints;
+
+/**
+ * CachedReferenceQuery
+ *
+ * Marks a repository query on reference entities as cacheable, its results are
+ * kept in the reference query region of the second-level cache, see
+ * `ReferenceCacheConfig`. Invalidated whenever a queried table is changed
+ * through Hibernate.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@QueryHints({
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHEABLE, value = "true"),
+    @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_CACHE_REGION, value = Constants.CACHE_REGION_REFERENCE_QUERIES) })
+public @interface CachedReferenceQuery {
+}
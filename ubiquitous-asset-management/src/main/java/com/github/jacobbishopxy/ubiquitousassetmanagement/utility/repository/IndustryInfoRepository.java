@@ -4,6 +4,7 @@
 
 package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository;
 
+import java.util.List;
 import java.util.Optional;
 
 import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.domain.IndustryInfo;
@@ -12,6 +13,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface IndustryInfoRepository extends JpaRepository<IndustryInfo, Integer> {
 
+  @CachedReferenceQuery
   public Optional<IndustryInfo> findByName(String name);
 
+  @CachedReferenceQuery
+  public List<IndustryInfo> findAll();
+
 }
@@ -14,12 +14,18 @@ import org.springframework.data.jpa.repository.Query;
 
 public interface PromoterRepository extends JpaRepository<Promoter, String> {
 
+  @CachedReferenceQuery
   @Query("select p.email from Promoter p where p.nickname = ?1")
   public Optional<String> findEmailByNickname(String nickname);
 
+  @CachedReferenceQuery
   @Query("select p.email from Promoter p where p.nickname in (:nicknames)")
   public List<String> findEmailsByNicknameIn(List<String> nicknames);
 
+  @CachedReferenceQuery
   public Optional<Promoter> findByNickname(String nickname);
 
+  @CachedReferenceQuery
+  public List<Promoter> findAll();
+
 }
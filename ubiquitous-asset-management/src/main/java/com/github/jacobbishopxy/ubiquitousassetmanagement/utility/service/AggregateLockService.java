@@ -0,0 +1,164 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * AggregateLockService
+ *
+ * Serializes the read-modify-write mutations of an aggregate (a portfolio pact,
+ * or the promotion statistic of a promotion pact and promoter), while unrelated
+ * aggregates proceed in parallel.
+ *
+ * A lock is bound to the current transaction and released once it completes:
+ *
+ * 1. in-JVM: a striped lock, so that concurrent requests of the same instance
+ * queue up without holding a connection each in the database lock.
+ *
+ * 2. cross-instance: a PostgreSQL transaction-level advisory lock
+ * (`pg_advisory_xact_lock`), keyed by the aggregate's namespace and the hash of
+ * its id. A hash collision only serializes two unrelated aggregates.
+ *
+ * Locks are reentrant. Several aggregates locked by one transaction should be
+ * locked at once (`lockPacts`), which takes them in a consistent order.
+ *
+ * Time spent waiting is published as `aggregate.lock.wait`, tagged by
+ * aggregate.
+ */
+@Service
+public class AggregateLockService {
+
+  public static final String WAIT_TIMER = "aggregate.lock.wait";
+
+  public enum Aggregate {
+    PORTFOLIO_PACT(1, "portfolio_pact"),
+    PROMOTION_STATISTIC(2, "promotion_statistic");
+
+    private final int namespace;
+    private final String tag;
+
+    Aggregate(int namespace, String tag) {
+      this.namespace = namespace;
+      this.tag = tag;
+    }
+  }
+
+  private record Key(Aggregate aggregate, int hash) {
+  }
+
+  private static final Comparator<Key> KEY_ORDER = Comparator
+      .comparing(Key::aggregate)
+      .thenComparingInt(Key::hash);
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${aggregate-lock.stripes:256}")
+  private int stripes;
+
+  // disabled when the database does not support advisory locks
+  @Value("${aggregate-lock.advisory:true}")
+  private boolean advisory;
+
+  private Striped<Lock> locks;
+
+  private final Map<Aggregate, Timer> waitTimers = new EnumMap<>(Aggregate.class);
+
+  @PostConstruct
+  private void init() {
+    locks = Striped.lock(stripes);
+
+    for (Aggregate aggregate : Aggregate.values()) {
+      waitTimers.put(aggregate, Timer
+          .builder(WAIT_TIMER)
+          .description("Time spent waiting for an aggregate lock, in-JVM and advisory")
+          .tag("aggregate", aggregate.tag)
+          .register(meterRegistry));
+    }
+  }
+
+  // =======================================================================
+  // Lock methods
+  //
+  // must be called within a read-write transaction
+  // =======================================================================
+
+  public void lockPact(Long pactId) {
+    lock(List.of(new Key(Aggregate.PORTFOLIO_PACT, Long.hashCode(pactId))));
+  }
+
+  public void lockPacts(Collection<Long> pactIds) {
+    lock(pactIds
+        .stream()
+        .map(id -> new Key(Aggregate.PORTFOLIO_PACT, Long.hashCode(id)))
+        .collect(Collectors.toList()));
+  }
+
+  public void lockPromotionStatistic(String promotionPactName, String promoterEmail) {
+    lock(List.of(new Key(Aggregate.PROMOTION_STATISTIC, Objects.hash(promotionPactName, promoterEmail))));
+  }
+
+  private void lock(List<Key> keys) {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      throw new IllegalStateException("Aggregate locks must be acquired within a transaction");
+    }
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    List<Key> sortedKeys = keys
+        .stream()
+        .distinct()
+        .sorted(KEY_ORDER)
+        .collect(Collectors.toList());
+
+    Timer.Sample sample = Timer.start();
+
+    // 0. in-JVM stripes, in stripe order, released after completion
+    List<Lock> stripeLocks = Lists.newArrayList(locks.bulkGet(sortedKeys));
+    stripeLocks.forEach(Lock::lock);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        Lists.reverse(stripeLocks).forEach(Lock::unlock);
+      }
+    });
+
+    // 1. advisory locks, in key order, released by the database at the end of the
+    // transaction
+    if (advisory) {
+      sortedKeys.forEach(k -> em
+          .createNativeQuery("SELECT 1 FROM pg_advisory_xact_lock(?1, ?2)")
+          .setParameter(1, k.aggregate().namespace)
+          .setParameter(2, k.hash())
+          .getSingleResult());
+    }
+
+    sample.stop(waitTimers.get(sortedKeys.get(0).aggregate()));
+  }
+}
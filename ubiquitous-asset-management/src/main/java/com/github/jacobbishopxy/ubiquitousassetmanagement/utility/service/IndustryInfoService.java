@@ -12,7 +12,14 @@ import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository.Ind
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+/**
+ * IndustryInfoService
+ *
+ * Industry infos are served from the second-level cache, see
+ * `ReferenceCacheConfig`.
+ */
 @Service
 public class IndustryInfoService {
 
@@ -31,10 +38,12 @@ public class IndustryInfoService {
     return repo.findByName(name);
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public IndustryInfo createIndustryInfo(IndustryInfo industryInfo) {
     return repo.save(industryInfo);
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public Optional<IndustryInfo> updateIndustryInfo(Integer id, IndustryInfo industryInfo) {
     return repo.findById(id).map(
         record -> {
@@ -44,6 +53,7 @@ public class IndustryInfoService {
         });
   }
 
+  @Transactional(rollbackFor = Exception.class)
   public void deleteIndustryInfo(Integer id) {
     repo.deleteById(id);
   }
@@ -7,16 +7,22 @@ package com.github.jacobbishopxy.ubiquitousassetmanagement.utility.service;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.EntityManagerFactory;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.Constants;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.domain.Promoter;
 import com.github.jacobbishopxy.ubiquitousassetmanagement.utility.repository.PromoterRepository;
 
+import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
  * PromoterService
  *
- * PromoterService is used to manage promoters.
+ * PromoterService is used to manage promoters. Promoters and their lookups are
+ * kept in the second-level cache. Since the table is written by another
+ * program, cached entries expire by TTL, or can be evicted on demand.
  */
 @Service
 public class PromoterService {
@@ -24,6 +30,9 @@ public class PromoterService {
   @Autowired
   private PromoterRepository repo;
 
+  @Autowired
+  private EntityManagerFactory emf;
+
   public List<Promoter> getPromoters() {
     return repo.findAll();
   }
@@ -40,4 +49,13 @@ public class PromoterService {
     return repo.findEmailsByNicknameIn(nicknames);
   }
 
+  // evicts cached promoters and the cached reference queries
+  public void evictCache() {
+    emf.getCache().evict(Promoter.class);
+    emf
+        .unwrap(SessionFactory.class)
+        .getCache()
+        .evictQueryRegion(Constants.CACHE_REGION_REFERENCE_QUERIES);
+  }
+
 }
@@ -0,0 +1,173 @@
+-- Baseline schema of the asset management service, as generated by Hibernate
+-- (`ddl-auto=update`) before migrations were introduced.
+--
+-- Existing databases are baselined at this version
+-- (`spring.flyway.baseline-on-migrate`), only new databases run it.
+
+-- =======================================================================
+-- utility
+-- =======================================================================
+
+CREATE TABLE author (
+  email VARCHAR(255) NOT NULL,
+  active BOOLEAN,
+  color VARCHAR(255),
+  description TEXT,
+  nickname VARCHAR(255) NOT NULL,
+  PRIMARY KEY (email)
+);
+
+CREATE TABLE industry_info (
+  id SERIAL NOT NULL,
+  description VARCHAR(255),
+  name VARCHAR(255) NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT unique_industry_info_name UNIQUE (name)
+);
+
+-- =======================================================================
+-- promotion
+-- =======================================================================
+
+CREATE TABLE promotion_pact (
+  name VARCHAR(255) NOT NULL,
+  description VARCHAR(255),
+  end_date TIMESTAMP NOT NULL,
+  start_date TIMESTAMP NOT NULL,
+  PRIMARY KEY (name)
+);
+
+CREATE TABLE promotion_record (
+  id SERIAL NOT NULL,
+  abbreviation VARCHAR(255),
+  close_price FLOAT4,
+  close_time TIMESTAMP,
+  close_time_adjust_factor FLOAT4,
+  created_at TIMESTAMP,
+  currency VARCHAR(255) NOT NULL,
+  direction VARCHAR(255) NOT NULL,
+  earnings_yield FLOAT4,
+  industry VARCHAR(255),
+  is_archived BOOLEAN,
+  open_price FLOAT4 NOT NULL,
+  open_time TIMESTAMP NOT NULL,
+  open_time_adjust_factor FLOAT4,
+  performance_score INT4,
+  symbol VARCHAR(255) NOT NULL,
+  updated_at TIMESTAMP,
+  promoter_email VARCHAR(255) REFERENCES author,
+  promotion_pact_name VARCHAR(255) REFERENCES promotion_pact,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE promotion_statistic (
+  id SERIAL NOT NULL,
+  base_score FLOAT4 NOT NULL,
+  performance_score FLOAT4 NOT NULL,
+  previous_promotion_count INT4 NOT NULL,
+  promotion_count INT4 NOT NULL,
+  promotion_failure_count INT4 NOT NULL,
+  promotion_success_count INT4 NOT NULL,
+  success_rate FLOAT4 NOT NULL,
+  total_score FLOAT4 NOT NULL,
+  promoter_email VARCHAR(255) REFERENCES author,
+  promotion_pact_name VARCHAR(255) REFERENCES promotion_pact,
+  PRIMARY KEY (id)
+);
+
+-- =======================================================================
+-- portfolio
+-- =======================================================================
+
+CREATE TABLE portfolio_pact (
+  id BIGSERIAL NOT NULL,
+  alias VARCHAR(255) NOT NULL,
+  description VARCHAR(255),
+  end_date DATE,
+  is_active BOOLEAN,
+  start_date DATE NOT NULL,
+  industry_info_id INT4 REFERENCES industry_info,
+  promoter_email VARCHAR(255) REFERENCES author,
+  PRIMARY KEY (id),
+  CONSTRAINT unique_promoter_email_start_date UNIQUE (promoter_email, start_date)
+);
+
+CREATE TABLE portfolio_accumulated_performance (
+  id BIGSERIAL NOT NULL,
+  adjust_count INT4 NOT NULL,
+  alpha FLOAT4,
+  benchmark_earnings_yield FLOAT4,
+  portfolio_earnings_yield FLOAT4,
+  portfolio_pact_id INT8 REFERENCES portfolio_pact,
+  PRIMARY KEY (id),
+  CONSTRAINT unique_pact_id UNIQUE (portfolio_pact_id)
+);
+
+CREATE TABLE portfolio_adjustment_record (
+  id BIGSERIAL NOT NULL,
+  adjust_date DATE,
+  adjust_version INT4,
+  is_adjusted BOOLEAN,
+  is_unsettled BOOLEAN,
+  portfolio_pact_id INT8 REFERENCES portfolio_pact,
+  PRIMARY KEY (id),
+  CONSTRAINT unique_pact_id_adj_date_version UNIQUE (portfolio_pact_id, adjust_date, adjust_version),
+  CONSTRAINT unique_pact_id_is_unsettled UNIQUE (portfolio_pact_id, is_unsettled)
+);
+
+CREATE TABLE portfolio_adjustment_info (
+  id BIGSERIAL NOT NULL,
+  abbreviation VARCHAR(255),
+  adjust_time TIME NOT NULL,
+  current_static_weight FLOAT4 NOT NULL,
+  description TEXT,
+  operation VARCHAR(255) NOT NULL,
+  previous_static_weight FLOAT4 NOT NULL,
+  static_weight_change FLOAT4 NOT NULL,
+  symbol VARCHAR(255) NOT NULL,
+  portfolio_adjustment_record_id INT8 REFERENCES portfolio_adjustment_record,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE portfolio_benchmark (
+  id BIGSERIAL NOT NULL,
+  adjust_date DATE NOT NULL,
+  benchmark_name VARCHAR(255) NOT NULL,
+  created_at TIMESTAMP,
+  dynamic_weight FLOAT4 NOT NULL,
+  percentage_change FLOAT4 NOT NULL,
+  static_weight FLOAT4 NOT NULL,
+  symbol VARCHAR(255) NOT NULL,
+  updated_at TIMESTAMP,
+  portfolio_adjustment_record_id INT8 REFERENCES portfolio_adjustment_record,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE portfolio_constituent (
+  id BIGSERIAL NOT NULL,
+  abbreviation VARCHAR(255),
+  adjust_date DATE NOT NULL,
+  adjust_date_factor FLOAT4 NOT NULL,
+  adjust_date_price FLOAT4 NOT NULL,
+  created_at TIMESTAMP,
+  current_factor FLOAT4 NOT NULL,
+  current_price FLOAT4 NOT NULL,
+  dynamic_weight FLOAT4 NOT NULL,
+  earnings_yield FLOAT4 NOT NULL,
+  market_value FLOAT4 NOT NULL,
+  pbpe FLOAT4 NOT NULL,
+  static_weight FLOAT4 NOT NULL,
+  symbol VARCHAR(255) NOT NULL,
+  updated_at TIMESTAMP,
+  portfolio_adjustment_record_id INT8 REFERENCES portfolio_adjustment_record,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE portfolio_performance (
+  id BIGSERIAL NOT NULL,
+  alpha FLOAT4,
+  benchmark_earnings_yield FLOAT4,
+  portfolio_earnings_yield FLOAT4,
+  portfolio_adjustment_record_id INT8 REFERENCES portfolio_adjustment_record,
+  PRIMARY KEY (id)
+);
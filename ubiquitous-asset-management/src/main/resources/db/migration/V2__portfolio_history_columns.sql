@@ -0,0 +1,19 @@
+-- Columns added to portfolio entities after the baseline:
+--
+-- 1. settled products of the accumulated performance, for incremental updates
+-- 2. prefix product indexes of settled performances, for time series/returns
+-- 3. delta snapshot base and depth of adjustment records
+--
+-- Idempotent, since databases managed by `ddl-auto=update` might have them.
+
+ALTER TABLE portfolio_accumulated_performance
+  ADD COLUMN IF NOT EXISTS settled_portfolio_product FLOAT8,
+  ADD COLUMN IF NOT EXISTS settled_benchmark_product FLOAT8;
+
+ALTER TABLE portfolio_performance
+  ADD COLUMN IF NOT EXISTS portfolio_product_index FLOAT8,
+  ADD COLUMN IF NOT EXISTS benchmark_product_index FLOAT8;
+
+ALTER TABLE portfolio_adjustment_record
+  ADD COLUMN IF NOT EXISTS snapshot_base_id INT8,
+  ADD COLUMN IF NOT EXISTS snapshot_depth INT4;
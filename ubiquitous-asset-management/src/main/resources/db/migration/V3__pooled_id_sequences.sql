@@ -0,0 +1,16 @@
+-- Pooled id allocation for portfolio entities.
+--
+-- Constituent, Benchmark, AdjustmentInfo, Performance and AdjustmentRecord ids
+-- are allocated by Hibernate in blocks of 50
+-- (`PortfolioConstants.ID_ALLOCATION_SIZE`) from the sequences of their former
+-- `serial` columns, which lets Hibernate batch their inserts. Existing ids are
+-- left untouched: the next value of each sequence starts a new block above them.
+--
+-- The column defaults (`nextval`) are kept for rows inserted outside of the
+-- application, each of them consumes a whole block.
+
+ALTER SEQUENCE portfolio_adjustment_record_id_seq INCREMENT BY 50;
+ALTER SEQUENCE portfolio_adjustment_info_id_seq INCREMENT BY 50;
+ALTER SEQUENCE portfolio_constituent_id_seq INCREMENT BY 50;
+ALTER SEQUENCE portfolio_benchmark_id_seq INCREMENT BY 50;
+ALTER SEQUENCE portfolio_performance_id_seq INCREMENT BY 50;
@@ -0,0 +1,57 @@
+-- Indexes backing the portfolio repositories' queries (see
+-- `PortfolioQueryPlanTests`). Unique constraints already provide:
+--
+-- 1. `unique_pact_id_adj_date_version` (portfolio_pact_id, adjust_date,
+-- adjust_version): latest adjust date/version of pacts
+-- (`findByPactIdAndLatestAdjustDate`, `findByPactIdsAndLatestAdjustDateVersion`)
+--
+-- 2. `unique_pact_id` (portfolio_pact_id): accumulated performance of pacts
+--
+-- Index names follow the entities' `@Index` where declared.
+
+-- =======================================================================
+-- portfolio_adjustment_record
+-- =======================================================================
+
+-- history of a pact in adjust date/version order, keyset pagination, ids of a
+-- pact (index only)
+CREATE INDEX IF NOT EXISTS idx_pact_id_adj_date_version_id
+  ON portfolio_adjustment_record (portfolio_pact_id, adjust_date, adjust_version, id);
+
+-- unsettled records of pacts: overviews, batch settle, market data ingestion
+CREATE INDEX IF NOT EXISTS idx_unsettled_pact_id
+  ON portfolio_adjustment_record (portfolio_pact_id) INCLUDE (id)
+  WHERE is_unsettled = true;
+
+-- delta snapshots based on a record
+CREATE INDEX IF NOT EXISTS idx_snapshot_base_id
+  ON portfolio_adjustment_record (snapshot_base_id);
+
+-- =======================================================================
+-- children of portfolio_adjustment_record
+-- =======================================================================
+
+-- find/delete/copy by adjustment record id(s), copies are ordered by id
+CREATE INDEX IF NOT EXISTS idx_constituent_ar_id
+  ON portfolio_constituent (portfolio_adjustment_record_id, id);
+
+-- unsettled records holding symbols (index only)
+CREATE INDEX IF NOT EXISTS idx_constituent_symbol_ar_id
+  ON portfolio_constituent (symbol, portfolio_adjustment_record_id);
+
+-- find/delete/copy by adjustment record id(s), total static weight (index only)
+CREATE INDEX IF NOT EXISTS idx_benchmark_ar_id
+  ON portfolio_benchmark (portfolio_adjustment_record_id, id) INCLUDE (static_weight);
+
+CREATE INDEX IF NOT EXISTS idx_performance_ar_id
+  ON portfolio_performance (portfolio_adjustment_record_id);
+
+CREATE INDEX IF NOT EXISTS idx_adjustment_info_ar_id
+  ON portfolio_adjustment_info (portfolio_adjustment_record_id);
+
+-- =======================================================================
+-- portfolio_pact
+-- =======================================================================
+
+CREATE INDEX IF NOT EXISTS idx_pact_alias
+  ON portfolio_pact (alias);
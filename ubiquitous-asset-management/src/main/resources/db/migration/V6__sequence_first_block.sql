@@ -0,0 +1,16 @@
+-- Database-side id blocks.
+--
+-- The copies made at settle (`copyByARId` of the constituent, benchmark and
+-- performance repositories) allocate their ids like Hibernate's pooled
+-- optimizer: a `nextval` per 50 rows, the returned value being the last id of
+-- the block. A sequence which has never been called returns 1 first, whose
+-- block would start below 1: each sequence is moved past its first block.
+-- Sequences already past it are left untouched.
+--
+-- The column defaults (`nextval`) still consume a whole block per row. They
+-- are only meant for rows inserted by hand, the application never relies on
+-- them.
+
+SELECT setval('portfolio_constituent_id_seq', GREATEST(last_value, 50)) FROM portfolio_constituent_id_seq;
+SELECT setval('portfolio_benchmark_id_seq', GREATEST(last_value, 50)) FROM portfolio_benchmark_id_seq;
+SELECT setval('portfolio_performance_id_seq', GREATEST(last_value, 50)) FROM portfolio_performance_id_seq;
@@ -0,0 +1,63 @@
+-- Optional: range partitioning of portfolio_constituent and portfolio_benchmark
+-- by adjust date, one partition per year plus a default one.
+--
+-- Enabled by adding `classpath:db/partitioning` to `spring.flyway.locations`.
+-- If enabled after later migrations have been applied, set
+-- `spring.flyway.out-of-order=true` for this run.
+--
+-- Lookups by adjustment record id are not pruned (every partition's index is
+-- probed), the benefit is on the storage side: old years can be detached,
+-- archived or moved to another tablespace without touching the live rows.
+--
+-- The primary key becomes (id, adjust_date), since a partitioned table's unique
+-- constraints must include the partition key. Ids stay unique by their
+-- sequence.
+
+CREATE OR REPLACE FUNCTION portfolio_partition_by_adjust_date(tbl TEXT) RETURNS VOID AS $$
+DECLARE
+  old_tbl TEXT := tbl || '_unpartitioned';
+  seq TEXT := tbl || '_id_seq';
+  from_year INT;
+  to_year INT;
+BEGIN
+  EXECUTE format('ALTER TABLE %I RENAME TO %I', tbl, old_tbl);
+  -- the id sequence is owned by the old table, and would be dropped with it
+  EXECUTE format('ALTER SEQUENCE %I OWNED BY NONE', seq);
+
+  EXECUTE format(
+    'CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (adjust_date)',
+    tbl, old_tbl);
+  EXECUTE format('ALTER TABLE %I ADD PRIMARY KEY (id, adjust_date)', tbl);
+  EXECUTE format(
+    'ALTER TABLE %I ADD FOREIGN KEY (portfolio_adjustment_record_id) REFERENCES portfolio_adjustment_record',
+    tbl);
+
+  EXECUTE format(
+    'SELECT COALESCE(EXTRACT(YEAR FROM MIN(adjust_date)), EXTRACT(YEAR FROM now())) FROM %I', old_tbl)
+    INTO from_year;
+  to_year := EXTRACT(YEAR FROM now())::INT + 1;
+  FOR y IN from_year..to_year LOOP
+    EXECUTE format(
+      'CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+      tbl || '_' || y, tbl, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+  END LOOP;
+  EXECUTE format('CREATE TABLE %I PARTITION OF %I DEFAULT', tbl || '_default', tbl);
+
+  EXECUTE format('INSERT INTO %I SELECT * FROM %I', tbl, old_tbl);
+  EXECUTE format('DROP TABLE %I', old_tbl);
+  EXECUTE format('ALTER SEQUENCE %I OWNED BY %I.id', seq, tbl);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT portfolio_partition_by_adjust_date('portfolio_constituent');
+SELECT portfolio_partition_by_adjust_date('portfolio_benchmark');
+
+DROP FUNCTION portfolio_partition_by_adjust_date(TEXT);
+
+-- indexes of `V4__portfolio_indexes.sql`, created on every partition
+CREATE INDEX idx_constituent_ar_id
+  ON portfolio_constituent (portfolio_adjustment_record_id, id);
+CREATE INDEX idx_constituent_symbol_ar_id
+  ON portfolio_constituent (symbol, portfolio_adjustment_record_id);
+CREATE INDEX idx_benchmark_ar_id
+  ON portfolio_benchmark (portfolio_adjustment_record_id, id) INCLUDE (static_weight);
@@ -0,0 +1,167 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AdjustmentRecordCursor;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AdjustmentRecordService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AdjustmentRecordService.KeysetPage;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * AdjustmentRecordKeysetTests
+ *
+ * Keyset pagination of adjustment records (see
+ * `AdjustmentRecordService.getARSortDescAfter`): the unsettled record comes
+ * first, then the settled ones by (adjustDate, adjustVersion, id) descending,
+ * without gaps nor duplicates whatever the page size.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DatabaseTest(schema = "adjustment_record_keyset_test", properties = "portfolio.cache.enabled=false")
+class AdjustmentRecordKeysetTests {
+
+  private static final String PORTFOLIO = "/" + Constants.API_VERSION + Constants.API_PORTFOLIO;
+
+  private static final long PACT_ID = 1L;
+
+  // ids are not in date order, so that they only break ties
+  private static final List<Long> ALL = List.of(15L, 11L, 14L, 12L, 13L, 10L);
+  private static final List<Long> ADJUSTED = List.of(15L, 12L, 10L);
+
+  @Autowired
+  private AdjustmentRecordService adjustmentRecordService;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // pact 1: 5 settled records, 3 of them on the same date, and an unsettled
+  // one; pact 2: a settled record which must never show up
+  @BeforeAll
+  void seed() {
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES
+          (1, 'pact_1', DATE '2020-01-01', true, 1, 'promoter@example.com'),
+          (2, 'pact_2', DATE '2020-01-02', true, 1, 'promoter@example.com')
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES
+          (10, 1, DATE '2020-01-01', 1, true, NULL),
+          (11, 1, DATE '2020-01-03', 1, false, NULL),
+          (12, 1, DATE '2020-01-02', 2, true, NULL),
+          (13, 1, DATE '2020-01-02', 1, false, NULL),
+          (14, 1, DATE '2020-01-02', 3, false, NULL),
+          (15, 1, NULL, NULL, false, true),
+          (20, 2, DATE '2020-01-02', 2, true, NULL)
+        """);
+  }
+
+  @Test
+  void unsettledFirstThenSettledWhateverThePageSize() {
+    for (int size = 1; size <= ALL.size() + 1; size++) {
+      assertEquals(ALL, walk(false, size), "page size " + size);
+    }
+  }
+
+  @Test
+  void adjustedOnlyKeepsTheUnsettledRecordFirst() {
+    // a single record page ends on the unsettled record, whose cursor switches
+    // to the settled records
+    KeysetPage first = adjustmentRecordService.getARSortDescAfter(PACT_ID, true, null, 1);
+    assertEquals(List.of(15L), ids(first.records()));
+    assertNotNull(first.continuationToken());
+    assertNull(AdjustmentRecordCursor.decode(first.continuationToken()).adjustDate());
+
+    for (int size = 1; size <= ADJUSTED.size() + 1; size++) {
+      assertEquals(ADJUSTED, walk(true, size), "page size " + size);
+    }
+  }
+
+  @Test
+  void cursorTiedOnDateAndVersionContinuesById() {
+    // (adjustDate, adjustVersion) is unique per pact, the id only breaks ties:
+    // a cursor on record 12's date and version resumes strictly below its id
+    String before = new AdjustmentRecordCursor(LocalDate.of(2020, 1, 2), 2, 100L).encode();
+    assertEquals(
+        List.of(12L, 13L, 10L),
+        ids(adjustmentRecordService.getARSortDescAfter(PACT_ID, false, before, 10).records()));
+
+    String at = new AdjustmentRecordCursor(LocalDate.of(2020, 1, 2), 2, 12L).encode();
+    assertEquals(
+        List.of(13L, 10L),
+        ids(adjustmentRecordService.getARSortDescAfter(PACT_ID, false, at, 10).records()));
+  }
+
+  @Test
+  void lastPageHasNoContinuationToken() throws Exception {
+    mockMvc
+        .perform(get(PORTFOLIO + "/adjustment_records?pact_id=1&size=" + ALL.size()))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(Constants.CONTINUATION_TOKEN_HEADER));
+    mockMvc
+        .perform(get(PORTFOLIO + "/adjustment_records?pact_id=1&size=" + (ALL.size() + 1)))
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(Constants.CONTINUATION_TOKEN_HEADER));
+  }
+
+  @Test
+  void malformedTokenIsRejected() throws Exception {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> adjustmentRecordService.getARSortDescAfter(PACT_ID, false, "not a token", 2));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> adjustmentRecordService.getARSortDescAfter(PACT_ID, false, "MjAyMC0wMS0wMnwy", 2));
+
+    mockMvc
+        .perform(get(PORTFOLIO + "/adjustment_records?pact_id=1&size=2&continuation_token=bm90fGF8dG9rZW4"))
+        .andExpect(status().isBadRequest());
+  }
+
+  // follows the continuation tokens until the last page
+  private List<Long> walk(boolean isAdjustedOnly, int size) {
+    List<Long> ids = new ArrayList<>();
+    String token = null;
+    do {
+      KeysetPage page = adjustmentRecordService.getARSortDescAfter(PACT_ID, isAdjustedOnly, token, size);
+      ids.addAll(ids(page.records()));
+      token = page.continuationToken();
+    } while (token != null);
+
+    return ids;
+  }
+
+  private static List<Long> ids(List<AdjustmentRecord> records) {
+    return records.stream().map(AdjustmentRecord::getId).collect(Collectors.toList());
+  }
+}
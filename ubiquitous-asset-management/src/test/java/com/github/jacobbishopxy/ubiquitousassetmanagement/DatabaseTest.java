@@ -0,0 +1,47 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AliasFor;
+
+/**
+ * DatabaseTest
+ *
+ * Starts the application on a dedicated schema of a local PostgreSQL, dropped
+ * first and migrated by the application's Flyway, see
+ * `DatabaseTestContextCustomizerFactory`. SQL logging and the periodic
+ * reconciliation are turned off.
+ *
+ * Only runs when `PORTFOLIO_PLAN_TEST_URL` (and optionally
+ * `PORTFOLIO_PLAN_TEST_USER`/`PORTFOLIO_PLAN_TEST_PASSWORD`) is set.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = DatabaseTestContextCustomizerFactory.URL_ENV, matches = ".+")
+public @interface DatabaseTest {
+
+  /**
+   * Schema of the test, unique among test classes.
+   */
+  String schema();
+
+  /**
+   * Additional properties, in the `key=value` form.
+   */
+  @AliasFor(annotation = SpringBootTest.class, attribute = "properties")
+  String[] properties() default {};
+
+  /**
+   * Schema of a read replica (`replica.url`), migrated alongside but never
+   * receiving the rows written through the application. None if empty.
+   */
+  String replicaSchema() default "";
+}
@@ -0,0 +1,93 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.context.ContextConfigurationAttributes;
+import org.springframework.test.context.ContextCustomizer;
+import org.springframework.test.context.ContextCustomizerFactory;
+import org.springframework.test.context.MergedContextConfiguration;
+
+/**
+ * DatabaseTestContextCustomizerFactory
+ *
+ * Prepares the schema of a `DatabaseTest` before its context is refreshed, and
+ * points the data source (and Flyway) to it. Registered in
+ * `META-INF/spring.factories`.
+ */
+class DatabaseTestContextCustomizerFactory implements ContextCustomizerFactory {
+
+  static final String URL_ENV = "PORTFOLIO_PLAN_TEST_URL";
+  static final String USER_ENV = "PORTFOLIO_PLAN_TEST_USER";
+  static final String PASSWORD_ENV = "PORTFOLIO_PLAN_TEST_PASSWORD";
+
+  @Override
+  public ContextCustomizer createContextCustomizer(
+      Class<?> testClass,
+      List<ContextConfigurationAttributes> configAttributes) {
+    DatabaseTest databaseTest = AnnotatedElementUtils.findMergedAnnotation(testClass, DatabaseTest.class);
+    if (databaseTest == null) {
+      return null;
+    }
+    return new DatabaseTestContextCustomizer(databaseTest.schema(), databaseTest.replicaSchema());
+  }
+
+  // a record, since customizers are part of the context cache key
+  private record DatabaseTestContextCustomizer(String schema, String replicaSchema) implements ContextCustomizer {
+
+    @Override
+    public void customizeContext(ConfigurableApplicationContext context, MergedContextConfiguration mergedConfig) {
+      String url = System.getenv(URL_ENV);
+      String user = System.getenv(USER_ENV);
+      String password = System.getenv(PASSWORD_ENV);
+      boolean hasReplica = !replicaSchema.isEmpty();
+
+      // fresh schemas, the replica one migrated here since the application only
+      // migrates the primary
+      try (Connection conn = DriverManager.getConnection(url, user, password);
+          Statement st = conn.createStatement()) {
+        st.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        if (hasReplica) {
+          st.execute("DROP SCHEMA IF EXISTS " + replicaSchema + " CASCADE");
+        }
+      } catch (SQLException e) {
+        throw new IllegalStateException("Cannot prepare schema " + schema, e);
+      }
+      if (hasReplica) {
+        Flyway
+            .configure()
+            .dataSource(url, user, password)
+            .schemas(replicaSchema)
+            .locations("classpath:db/migration")
+            .load()
+            .migrate();
+      }
+
+      String separator = url.contains("?") ? "&" : "?";
+      List<String> properties = new ArrayList<>(List.of(
+          "url=" + url + separator + "currentSchema=" + schema,
+          "spring.flyway.schemas=" + schema,
+          "spring.jpa.show-sql=false",
+          "portfolio.accumulated-performance.reconcile-cron=-"));
+      if (user != null) {
+        properties.add("username=" + user);
+      }
+      if (password != null) {
+        properties.add("password=" + password);
+      }
+      if (hasReplica) {
+        properties.add("replica.url=" + url + separator + "currentSchema=" + replicaSchema);
+      }
+
+      TestPropertyValues.of(properties).applyTo(context);
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentInfo;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.obj.AdjustmentOperation;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioAdjustmentHelper;
+
+import org.junit.jupiter.api.Test;
+
+class PortfolioAdjustmentHelperTests {
+
+  @Test
+  void diffMergesSymbolOrderedConstituents() {
+    List<Constituent> preCons = List.of(
+        constituent("D", 0.4f),
+        constituent("A", 0.3f),
+        constituent("B", 0.3f));
+    List<Constituent> curCons = List.of(
+        constituent("C", 0.2f),
+        constituent("B", 0.5f),
+        constituent("A", 0.3f));
+
+    List<AdjustmentInfo> ais = PortfolioAdjustmentHelper.diff(preCons, curCons);
+
+    // A is unchanged
+    assertEquals(List.of("B", "C", "D"), ais
+        .stream()
+        .map(AdjustmentInfo::getSymbol)
+        .collect(Collectors.toList()));
+    assertEquals(List.of(AdjustmentOperation.Increase, AdjustmentOperation.Join, AdjustmentOperation.Leave), ais
+        .stream()
+        .map(AdjustmentInfo::getOperation)
+        .collect(Collectors.toList()));
+    assertEquals(0.2f, ais.get(0).getStaticWeight(), 1e-6);
+    assertEquals(0.4f, ais.get(2).getPreviousStaticWeight(), 1e-6);
+  }
+
+  private static Constituent constituent(String symbol, Float staticWeight) {
+    Constituent c = new Constituent();
+    c.setSymbol(symbol);
+    c.setStaticWeight(staticWeight);
+    return c;
+  }
+}
@@ -0,0 +1,156 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioBatchService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioBatchSettleTests
+ *
+ * A batch settles its pacts a chunk per transaction, from sources read by
+ * grouped queries: each pact is settled against its own latest settled
+ * record, and a pact failing within a chunk does not keep the others from
+ * being settled.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@DatabaseTest(schema = "portfolio_batch_settle_test")
+class PortfolioBatchSettleTests {
+
+  private static final LocalDate SETTLE_DATE = LocalDate.of(2020, 1, 2);
+
+  @Autowired
+  private PortfolioBatchService portfolioBatchService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // pacts 1 to 3, each settled once on 2020-01-01 (record 1000 + 10 * pact) with
+  // S1/S2, and an unsettled record (1001 + 10 * pact): pact 1 unchanged, pact 2
+  // swapping S2 for S3, pact 3 overweight
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent, portfolio_benchmark,
+          portfolio_performance, portfolio_accumulated_performance, portfolio_adjustment_info,
+          author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        SELECT p, 'pact_' || p, DATE '2019-12-01' + p, true, 1, 'promoter@example.com'
+        FROM generate_series(1, 3) p
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        )
+        SELECT 1000 + 10 * p + v, p,
+          CASE WHEN v = 0 THEN DATE '2020-01-01' END,
+          CASE WHEN v = 0 THEN 1 END,
+          true,
+          CASE WHEN v = 1 THEN true END
+        FROM generate_series(1, 3) p, generate_series(0, 1) v
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        )
+        SELECT id, 0, 0, 0 FROM portfolio_adjustment_record
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT
+          100 * ar.id + s, ar.id, DATE '2020-01-01',
+          CASE WHEN ar.is_unsettled AND ar.portfolio_pact_id = 2 AND s = 2 THEN 'S3' ELSE 'S' || s END,
+          10, 10, 1, 1,
+          CASE WHEN ar.is_unsettled AND ar.portfolio_pact_id = 3 THEN 0.9 ELSE 0.5 END,
+          0.5, 1, 1, 0
+        FROM portfolio_adjustment_record ar, generate_series(1, 2) s
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_benchmark (
+          id, portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+          percentage_change, static_weight, dynamic_weight
+        )
+        SELECT 100 * id, id, DATE '2020-01-01', 'B', 'B', 0, 1, 1
+        FROM portfolio_adjustment_record
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        )
+        SELECT p, 1, 0, 0, 0 FROM generate_series(1, 3) p
+        """);
+  }
+
+  @Test
+  void aChunkIsSettledAgainstEachPactsLatestSettledRecord() {
+    List<SettlePortfolioResult> results = portfolioBatchService.batchSettle(List.of(2L, 1L), false, SETTLE_DATE);
+
+    assertTrue(results.get(0).isSuccess());
+    assertTrue(results.get(0).isAdjusted());
+    assertTrue(results.get(1).isSuccess());
+    assertFalse(results.get(1).isAdjusted());
+    // S2 swapped for S3 against pact 2's own settled record
+    assertEquals(List.of("S2", "S3"), jdbcTemplate.queryForList(
+        "SELECT symbol FROM portfolio_adjustment_info WHERE portfolio_adjustment_record_id = 1021 ORDER BY symbol",
+        String.class));
+  }
+
+  @Test
+  void aFailedPactDoesNotKeepItsChunkFromBeingSettled() {
+    List<SettlePortfolioResult> results = portfolioBatchService.batchSettle(List.of(1L, 2L, 3L, 4L), false, SETTLE_DATE);
+
+    assertEquals(List.of(1L, 2L, 3L, 4L), results.stream().map(SettlePortfolioResult::pactId).toList());
+
+    // settled against their own latest settled records
+    assertTrue(results.get(0).isSuccess());
+    assertFalse(results.get(0).isAdjusted());
+    assertEquals(1011L, results.get(0).settledAdjustmentRecordId());
+    assertTrue(results.get(1).isSuccess());
+    assertTrue(results.get(1).isAdjusted());
+    assertEquals(1021L, results.get(1).settledAdjustmentRecordId());
+
+    // rolled back alone
+    assertFalse(results.get(2).isSuccess());
+    assertTrue(results.get(2).error().contains("Total weight of constituents"));
+    assertEquals(Boolean.TRUE, jdbcTemplate.queryForObject(
+        "SELECT is_unsettled FROM portfolio_adjustment_record WHERE id = 1031", Boolean.class));
+
+    assertFalse(results.get(3).isSuccess());
+    assertEquals(List.of(2L, 2L, 1L), jdbcTemplate.queryForList("""
+        SELECT count(*) FROM portfolio_adjustment_record
+        WHERE is_unsettled IS NULL GROUP BY portfolio_pact_id ORDER BY portfolio_pact_id
+        """, Long.class));
+  }
+
+  @Test
+  void aPactSettledBeforeItsLatestDateFailsAlone() {
+    List<SettlePortfolioResult> results = portfolioBatchService
+        .batchSettle(List.of(1L, 2L), false, LocalDate.of(2019, 12, 31));
+
+    assertFalse(results.get(0).isSuccess());
+    assertTrue(results.get(0).error().contains("is before latest settled"));
+    assertFalse(results.get(1).isSuccess());
+  }
+}
@@ -0,0 +1,122 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Performance;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.AccumulatedPerformanceResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.ConstituentsResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioCalculationHelper.SettledProductResult;
+
+import org.junit.jupiter.api.Test;
+
+class PortfolioCalculationHelperTests {
+
+  @Test
+  void incrementalAccumulatedPerformanceEqualsFullChain() {
+    Random rnd = new Random(42);
+
+    List<Performance> settled = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      settled.add(new Performance(null, (rnd.nextFloat() - 0.5f) / 50, (rnd.nextFloat() - 0.5f) / 50));
+    }
+    // null yields are treated as 0
+    settled.add(new Performance());
+    Performance unsettled = new Performance(null, 0.015f, -0.004f);
+
+    List<Performance> all = new ArrayList<>(settled);
+    all.add(unsettled);
+
+    AccumulatedPerformanceResult full = PortfolioCalculationHelper.calculateAccumulatedPerformance(all);
+    SettledProductResult spr = PortfolioCalculationHelper.calculateSettledProduct(settled);
+    AccumulatedPerformanceResult incremental = PortfolioCalculationHelper
+        .calculateAccumulatedPerformance(spr, unsettled);
+
+    assertEquals(full.portfolioEarningsYield(), incremental.portfolioEarningsYield(), 1e-5);
+    assertEquals(full.benchmarkEarningsYield(), incremental.benchmarkEarningsYield(), 1e-5);
+    assertEquals(full.alpha(), incremental.alpha(), 1e-5);
+  }
+
+  @Test
+  void constituentsDynamicWeightsAreNormalized() {
+    List<Constituent> constituents = new ArrayList<>();
+    constituents.add(constituent(0.5f, 0.55f, 0.1f));
+    constituents.add(constituent(0.3f, 0.27f, -0.1f));
+    constituents.add(constituent(0.2f, 0.2f, null));
+
+    ConstituentsResult res = PortfolioCalculationHelper
+        .modifyConstituentsAndCalculatePortfolioEarningsYield(constituents);
+
+    // 0.5 * 0.1 + 0.3 * -0.1 + 0.2 * 0
+    assertEquals(0.02f, res.earningsYield(), 1e-6);
+    assertEquals(0.55f / 1.02f, constituents.get(0).getDynamicWeight(), 1e-6);
+    assertEquals(0.27f / 1.02f, constituents.get(1).getDynamicWeight(), 1e-6);
+    assertEquals(0.2f / 1.02f, constituents.get(2).getDynamicWeight(), 1e-6);
+    assertEquals(1f, constituents
+        .stream()
+        .map(Constituent::getDynamicWeight)
+        .reduce(0f, Float::sum), 1e-6);
+  }
+
+  @Test
+  void prefixProductIndexMatchesSettledProduct() {
+    Random rnd = new Random(7);
+
+    List<Performance> ordered = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      ordered.add(performance((long) i, false, (rnd.nextFloat() - 0.5f) / 50, (rnd.nextFloat() - 0.5f) / 50));
+    }
+    Performance unsettled = performance(50L, true, 0.01f, 0.02f);
+    ordered.add(unsettled);
+
+    PortfolioCalculationHelper.indexSettledPerformances(ordered, List.of(50L));
+
+    for (int i = 1; i <= 50; i++) {
+      SettledProductResult spr = PortfolioCalculationHelper.calculateSettledProduct(ordered.subList(0, i));
+      assertEquals(spr.portfolioProduct(), ordered.get(i - 1).getPortfolioProductIndex(), 1e-12);
+      assertEquals(spr.benchmarkProduct(), ordered.get(i - 1).getBenchmarkProductIndex(), 1e-12);
+    }
+    assertNull(unsettled.getPortfolioProductIndex());
+    assertNull(unsettled.getBenchmarkProductIndex());
+  }
+
+  // the performance of a mutated unsettled record holds an id-only adjustment
+  // record, whose flag is unknown
+  @Test
+  void unsettledPerformanceIsNotIndexedWhateverItsFlag() {
+    Performance settled = performance(1L, false, 0.01f, 0.02f);
+    Performance unsettled = new Performance(new AdjustmentRecord(2L), 0.5f, 0.5f);
+    unsettled.setPortfolioProductIndex(1.5d);
+    unsettled.setBenchmarkProductIndex(1.5d);
+
+    PortfolioCalculationHelper.indexSettledPerformances(List.of(settled, unsettled), List.of(2L));
+
+    assertEquals(1.01d, settled.getPortfolioProductIndex(), 1e-6);
+    assertEquals(1.02d, settled.getBenchmarkProductIndex(), 1e-6);
+    assertNull(unsettled.getPortfolioProductIndex());
+    assertNull(unsettled.getBenchmarkProductIndex());
+  }
+
+  private static Performance performance(Long adjustmentRecordId, boolean isUnsettled, Float portfolioEarningsYield,
+      Float benchmarkEarningsYield) {
+    AdjustmentRecord ar = new AdjustmentRecord(null, null, null, isUnsettled ? true : null, false);
+    ar.setId(adjustmentRecordId);
+    return new Performance(ar, portfolioEarningsYield, benchmarkEarningsYield);
+  }
+
+  private static Constituent constituent(Float staticWeight, Float dynamicWeight, Float earningsYield) {
+    Constituent c = new Constituent();
+    c.setStaticWeight(staticWeight);
+    c.setDynamicWeight(dynamicWeight);
+    c.setEarningsYield(earningsYield);
+    return c;
+  }
+
+}
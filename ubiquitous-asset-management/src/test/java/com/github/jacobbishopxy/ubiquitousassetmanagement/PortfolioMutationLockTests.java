@@ -0,0 +1,151 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.BenchmarkUpdate;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentInput;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentUpdate;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.BenchmarkService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioMutationLockTests
+ *
+ * Concurrent mutations of a pact's unsettled record: each one locks the pact
+ * before it reads or writes anything, so that they neither deadlock (a
+ * mutation renormalizing rows another one has written) nor recalculate from
+ * stale reads.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@DatabaseTest(schema = "portfolio_mutation_lock_test")
+class PortfolioMutationLockTests {
+
+  private static final long UNSETTLED_AR_ID = 2L;
+  private static final List<Long> CONSTITUENT_IDS = List.of(1000L, 1001L, 1002L, 1003L);
+  private static final long BENCHMARK_ID = 1000L;
+
+  private static final int ROUNDS = 10;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private BenchmarkService benchmarkService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact with a settled record and an unsettled one of 4 constituents and a
+  // benchmark
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent, portfolio_benchmark,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (1, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES
+          (1, 1, DATE '2020-01-01', 1, true, NULL),
+          (2, 1, NULL, NULL, false, true)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        ) VALUES (1, 0.1, 0, 0.1), (2, 0, 0, 0)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT 999 + s, 2, DATE '2020-01-01', 'S' || s, 10, 10, 1, 1, 0.25, 0.25, 1, 1, 0
+        FROM generate_series(1, 4) s
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_benchmark (
+          id, portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+          percentage_change, static_weight, dynamic_weight
+        ) VALUES (1000, 2, DATE '2020-01-01', 'B', 'B', 0, 1, 1)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        ) VALUES (1, 1, 0.1, 0, 0.1)
+        """);
+  }
+
+  @Test
+  void concurrentMutationsOfAPactNeitherDeadlockNorLoseUpdates() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(CONSTITUENT_IDS.size() + 1);
+    try {
+      // each constituent updated by its own thread, which renormalizes the others,
+      // alongside by-id modifications of the benchmark
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < CONSTITUENT_IDS.size(); i++) {
+        long id = CONSTITUENT_IDS.get(i);
+        String symbol = "S" + (i + 1);
+        futures.add(executor.submit(() -> {
+          for (int round = 1; round <= ROUNDS; round++) {
+            constituentService.updateConstituent(id, ConstituentInput.intoConstituent(new ConstituentInput(
+                UNSETTLED_AR_ID, LocalDate.of(2020, 1, 1), symbol, null, 10f, 10f + round, 1f, 1f, 0.25f, 1f, 1f)));
+          }
+        }));
+      }
+      futures.add(executor.submit(() -> {
+        for (int round = 1; round <= ROUNDS; round++) {
+          benchmarkService.modifyBenchmark(BENCHMARK_ID, new BenchmarkUpdate((float) round / 100));
+          constituentService.modifyConstituent(CONSTITUENT_IDS.get(0), null, new ConstituentUpdate(null, null, 2f, null));
+        }
+      }));
+
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // the last committed mutation has recalculated from every other one's rows:
+    // recalculating again changes nothing
+    double pey = unsettledEarningsYield();
+    constituentService.recalculate(UNSETTLED_AR_ID);
+    assertEquals(pey, unsettledEarningsYield(), 1e-6);
+    assertEquals(1d, jdbcTemplate.queryForObject(
+        "SELECT sum(dynamic_weight) FROM portfolio_constituent WHERE portfolio_adjustment_record_id = ?",
+        Double.class,
+        UNSETTLED_AR_ID), 1e-5);
+  }
+
+  private double unsettledEarningsYield() {
+    return jdbcTemplate.queryForObject(
+        "SELECT portfolio_earnings_yield FROM portfolio_performance WHERE portfolio_adjustment_record_id = ?",
+        Double.class,
+        UNSETTLED_AR_ID);
+  }
+}
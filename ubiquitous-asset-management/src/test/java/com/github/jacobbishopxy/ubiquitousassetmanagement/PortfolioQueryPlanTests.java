@@ -0,0 +1,171 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+/**
+ * PortfolioQueryPlanTests
+ *
+ * Migrates a dedicated schema of a local PostgreSQL, and checks that the
+ * repositories' queries are planned on the indexes of
+ * `V4__portfolio_indexes.sql`.
+ *
+ * Only runs when `PORTFOLIO_PLAN_TEST_URL` (and optionally
+ * `PORTFOLIO_PLAN_TEST_USER`/`PORTFOLIO_PLAN_TEST_PASSWORD`) is set.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "PORTFOLIO_PLAN_TEST_URL", matches = ".+")
+class PortfolioQueryPlanTests {
+
+  private static final String SCHEMA = "portfolio_plan_test";
+
+  private Connection conn;
+
+  @BeforeAll
+  void setup() throws SQLException {
+    String url = System.getenv("PORTFOLIO_PLAN_TEST_URL");
+    String user = System.getenv("PORTFOLIO_PLAN_TEST_USER");
+    String password = System.getenv("PORTFOLIO_PLAN_TEST_PASSWORD");
+
+    Flyway flyway = Flyway
+        .configure()
+        .dataSource(url, user, password)
+        .schemas(SCHEMA)
+        .cleanDisabled(false)
+        .load();
+    flyway.clean();
+    flyway.migrate();
+
+    conn = DriverManager.getConnection(url, user, password);
+    try (Statement st = conn.createStatement()) {
+      st.execute("SET search_path TO " + SCHEMA);
+
+      // 1000 pacts, each with 19 settled records and an unsettled one, each
+      // record with 20 constituents and 2 benchmarks
+      st.execute("""
+          INSERT INTO portfolio_pact (id, alias, start_date)
+          SELECT i, 'pact_' || i, DATE '2020-01-01'
+          FROM generate_series(1, 1000) i
+          """);
+      st.execute("""
+          INSERT INTO portfolio_adjustment_record (
+            id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+          )
+          SELECT
+            (p - 1) * 20 + v, p,
+            CASE WHEN v < 20 THEN DATE '2020-01-01' + v END,
+            CASE WHEN v < 20 THEN 1 END,
+            v % 2 = 0,
+            CASE WHEN v = 20 THEN true END
+          FROM generate_series(1, 1000) p, generate_series(1, 20) v
+          """);
+      st.execute("""
+          INSERT INTO portfolio_constituent (
+            portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+            current_price, adjust_date_factor, current_factor, static_weight,
+            dynamic_weight, pbpe, market_value, earnings_yield
+          )
+          SELECT ar, DATE '2020-01-01', 'S' || ((ar * 7 + s) % 5000), 1, 1, 1, 1, 0.05, 0.05, 1, 1, 0
+          FROM generate_series(1, 20000) ar, generate_series(1, 20) s
+          """);
+      st.execute("""
+          INSERT INTO portfolio_benchmark (
+            portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+            percentage_change, static_weight, dynamic_weight
+          )
+          SELECT ar, DATE '2020-01-01', 'B' || b, 'B' || b, 0, 0.5, 0.5
+          FROM generate_series(1, 20000) ar, generate_series(1, 2) b
+          """);
+      st.execute("ANALYZE");
+      // the tables are small enough for sequential scans to be competitive
+      st.execute("SET enable_seqscan = off");
+    }
+  }
+
+  @AfterAll
+  void teardown() throws SQLException {
+    if (conn != null) {
+      conn.close();
+    }
+  }
+
+  @Test
+  void adjustmentRecordQueriesUseIndexes() throws SQLException {
+    // `findSettledByPactIdDescSort`
+    assertIndex("idx_pact_id_adj_date_version_id", """
+        SELECT * FROM portfolio_adjustment_record
+        WHERE portfolio_pact_id = 42 AND adjust_date IS NOT NULL
+        ORDER BY adjust_date DESC, adjust_version DESC, id DESC
+        LIMIT 10
+        """);
+    // `findByPactIdDescSortAfter`
+    assertIndex("idx_pact_id_adj_date_version_id", """
+        SELECT * FROM portfolio_adjustment_record
+        WHERE portfolio_pact_id = 42
+        AND (
+          adjust_date < DATE '2020-01-10'
+          OR (adjust_date = DATE '2020-01-10' AND adjust_version < 1)
+          OR (adjust_date = DATE '2020-01-10' AND adjust_version = 1 AND id < 830)
+        )
+        ORDER BY adjust_date DESC, adjust_version DESC, id DESC
+        LIMIT 10
+        """);
+    // `findUnsettledByPactIds`
+    assertIndex("idx_unsettled_pact_id", """
+        SELECT * FROM portfolio_adjustment_record
+        WHERE portfolio_pact_id IN (1, 2, 3) AND is_unsettled = true
+        """);
+  }
+
+  @Test
+  void constituentAndBenchmarkQueriesUseIndexes() throws SQLException {
+    // `findByAdjustmentRecordId`
+    assertIndex("idx_constituent_ar_id", """
+        SELECT * FROM portfolio_constituent
+        WHERE portfolio_adjustment_record_id = 840
+        ORDER BY id
+        """);
+    // `findUnsettledARIdsBySymbols`
+    assertIndex("idx_constituent_symbol_ar_id", """
+        SELECT DISTINCT c.portfolio_adjustment_record_id
+        FROM portfolio_constituent c
+        JOIN portfolio_adjustment_record ar ON ar.id = c.portfolio_adjustment_record_id
+        WHERE c.symbol IN ('S1', 'S2') AND ar.is_unsettled = true
+        """);
+    // total static weight of benchmarks
+    assertIndex("idx_benchmark_ar_id", """
+        SELECT SUM(static_weight) FROM portfolio_benchmark
+        WHERE portfolio_adjustment_record_id = 840
+        """);
+  }
+
+  private void assertIndex(String index, String sql) throws SQLException {
+    String plan = explain(sql);
+    assertTrue(
+        plan.contains("\"Index Name\": \"" + index + "\""),
+        String.format("expected %s in the plan of:%n%s%n%s", index, sql, plan));
+  }
+
+  private String explain(String sql) throws SQLException {
+    try (Statement st = conn.createStatement();
+        ResultSet rs = st.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+      StringBuilder sb = new StringBuilder();
+      while (rs.next()) {
+        sb.append(rs.getString(1));
+      }
+      return sb.toString();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.AccumulatedPerformanceDrift;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.RecalculateService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioRecalculationTests
+ *
+ * Accumulated performance after mutations of the unsettled record, on a pact
+ * whose settled product is not known yet (e.g. right after the migration which
+ * introduced it): the first mutation falls back to the full recalculation,
+ * which must not fold the unsettled performance into the settled product, and
+ * the following ones apply the unsettled performance once. A reconciliation
+ * reports and overwrites the drifted stored values.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@DatabaseTest(schema = "portfolio_recalculation_test")
+class PortfolioRecalculationTests {
+
+  private static final long PACT_ID = 1L;
+  private static final long UNSETTLED_AR_ID = 3L;
+
+  // settled performances: 0.1 and 0.2
+  private static final double SETTLED_PRODUCT = 1.1d * 1.2d;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private RecalculateService recalculateService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact with 2 settled records and an unsettled one, whose accumulated
+  // performance has no settled product
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (?, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """, PACT_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES
+          (1, ?, DATE '2020-01-01', 1, true, NULL),
+          (2, ?, DATE '2020-01-02', 1, true, NULL),
+          (?, ?, NULL, NULL, true, true)
+        """, PACT_ID, PACT_ID, UNSETTLED_AR_ID, PACT_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        ) VALUES (1, 0.1, 0, 0.1), (2, 0.2, 0, 0.2), (?, 0.05, 0, 0.05)
+        """, UNSETTLED_AR_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_constituent (
+          portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT ?, DATE '2020-01-02', 'S' || s, 10, 10.5, 1, 1, 0.5, 0.5, 1, 1, 0.05
+        FROM generate_series(1, 2) s
+        """, UNSETTLED_AR_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        ) VALUES (?, 2, 0, 0, 0)
+        """, PACT_ID);
+  }
+
+  @Test
+  void firstIncrementalUpdateDoesNotFoldTheUnsettledPerformance() {
+    // falls back to the full recalculation
+    constituentService.recalculate(UNSETTLED_AR_ID);
+
+    assertEquals(SETTLED_PRODUCT, queryDouble("settled_portfolio_product"), 1e-6);
+    assertAccumulatedPerformance();
+
+    // incremental
+    constituentService.recalculate(UNSETTLED_AR_ID);
+
+    assertEquals(SETTLED_PRODUCT, queryDouble("settled_portfolio_product"), 1e-6);
+    assertAccumulatedPerformance();
+  }
+
+  @Test
+  void reconciliationOverwritesDriftedValues() {
+    List<AccumulatedPerformanceDrift> drifts = recalculateService.reconcileAccumulatedPerformances();
+
+    assertEquals(1, drifts.size());
+    assertEquals(PACT_ID, drifts.get(0).pactId());
+    assertEquals(SETTLED_PRODUCT, queryDouble("settled_portfolio_product"), 1e-6);
+    assertAccumulatedPerformance();
+
+    // nothing drifts anymore
+    assertEquals(List.of(), recalculateService.reconcileAccumulatedPerformances());
+  }
+
+  private void assertAccumulatedPerformance() {
+    double unsettledPey = jdbcTemplate.queryForObject(
+        "SELECT portfolio_earnings_yield FROM portfolio_performance WHERE portfolio_adjustment_record_id = ?",
+        Double.class,
+        UNSETTLED_AR_ID);
+
+    assertEquals(
+        SETTLED_PRODUCT * (1 + unsettledPey) - 1,
+        queryDouble("portfolio_earnings_yield"),
+        1e-5);
+  }
+
+  private double queryDouble(String column) {
+    return jdbcTemplate.queryForObject(
+        "SELECT " + column + " FROM portfolio_accumulated_performance WHERE portfolio_pact_id = ?",
+        Double.class,
+        PACT_ID);
+  }
+}
@@ -0,0 +1,82 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.event.PortfolioChangedEvent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioReplicaRoutingTests
+ *
+ * A portfolio detail refilled right after an invalidation is read from the
+ * primary, including its parts fetched on the detail executor.
+ *
+ * Runs as a `DatabaseTest`, with a "replica" on another schema which never
+ * receives the seeded rows.
+ */
+@DatabaseTest(
+    schema = "portfolio_replica_routing_test",
+    replicaSchema = "portfolio_replica_routing_test_replica",
+    properties = {
+        "portfolio.detail.concurrent=true",
+        "portfolio.cache.replica-lag=60000" })
+class PortfolioReplicaRoutingTests {
+
+  private static final long PACT_ID = 1L;
+
+  @Autowired
+  private PortfolioService portfolioService;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact with an unsettled record of 4 constituents, on the primary only
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent, portfolio_benchmark,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (1, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES (1, 1, NULL, NULL, false, true)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT 999 + s, 1, DATE '2020-01-01', 'S' || s, 10, 10, 1, 1, 0.25, 0.25, 1, 1, 0
+        FROM generate_series(1, 4) s
+        """);
+  }
+
+  @Test
+  void detailRefilledAfterAChangeIsReadFromThePrimary() {
+    eventPublisher.publishEvent(new PortfolioChangedEvent(PACT_ID, null));
+
+    PortfolioDetail detail = portfolioService.getUnsettledPortfolioDetail(PACT_ID);
+
+    assertEquals(4, detail.constituents().size());
+  }
+}
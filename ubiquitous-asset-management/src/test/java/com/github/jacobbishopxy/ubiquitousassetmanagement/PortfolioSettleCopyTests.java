@@ -0,0 +1,193 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.PortfolioConstants;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentInput;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.PortfolioDetail;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioService;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioSettleCopyTests
+ *
+ * Database-side copies made at settle: ids are allocated a block per
+ * `PortfolioConstants.ID_ALLOCATION_SIZE` rows, not a block per row, and do not
+ * collide with the ids Hibernate allocates afterwards. The sequence migration
+ * does not clash with the optional partitioning one.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@DatabaseTest(schema = PortfolioSettleCopyTests.SCHEMA)
+class PortfolioSettleCopyTests {
+
+  static final String SCHEMA = "portfolio_settle_copy_test";
+
+  private static final long PACT_ID = 1L;
+  private static final long UNSETTLED_AR_ID = 1000000L;
+
+  private static final int CONSTITUENTS = 120;
+  private static final int BENCHMARKS = 3;
+
+  @Autowired
+  private PortfolioService portfolioService;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact never settled, whose unsettled record holds 120 constituents and 3
+  // benchmarks. Seeded ids are far above the sequences
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent, portfolio_benchmark,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (?, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """, PACT_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES (?, ?, NULL, NULL, true, true)
+        """, UNSETTLED_AR_ID, PACT_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_performance (
+          id, portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        ) VALUES (1000000, ?, 0, 0, 0)
+        """, UNSETTLED_AR_ID);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT 1000000 + s, ?, DATE '2020-01-01', 'S' || s, 10, 10, 1, 1, 1.0 / ?, 1.0 / ?, 1, 1, 0
+        FROM generate_series(1, ?) s
+        """, UNSETTLED_AR_ID, CONSTITUENTS, CONSTITUENTS, CONSTITUENTS);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_benchmark (
+          id, portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+          percentage_change, static_weight, dynamic_weight
+        )
+        SELECT 1000000 + s, ?, DATE '2020-01-01', 'B' || s, 'B' || s, 0, 0.3, 0.3
+        FROM generate_series(1, ?) s
+        """, UNSETTLED_AR_ID, BENCHMARKS);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        ) VALUES (?, 0, 0, 0, 0)
+        """, PACT_ID);
+  }
+
+  @Test
+  void copiesAllocateABlockPerAllocationSizeRows() {
+    int block = PortfolioConstants.ID_ALLOCATION_SIZE;
+    long constituentSeq = lastValue("portfolio_constituent_id_seq");
+    long benchmarkSeq = lastValue("portfolio_benchmark_id_seq");
+    long performanceSeq = lastValue("portfolio_performance_id_seq");
+
+    PortfolioDetail detail = portfolioService.settle(PACT_ID, LocalDate.of(2020, 1, 2));
+    Long newArId = detail.adjustmentRecord().getId();
+
+    // 3 blocks for 120 constituents, a block for the benchmarks and another one
+    // for the performance
+    assertEquals(constituentSeq + 3 * block, lastValue("portfolio_constituent_id_seq"));
+    assertEquals(benchmarkSeq + block, lastValue("portfolio_benchmark_id_seq"));
+    assertEquals(performanceSeq + block, lastValue("portfolio_performance_id_seq"));
+
+    assertCopiedIds("portfolio_constituent", newArId, CONSTITUENTS);
+    assertCopiedIds("portfolio_benchmark", newArId, BENCHMARKS);
+    assertCopiedIds("portfolio_performance", newArId, 1);
+
+    // ids allocated by Hibernate afterwards do not collide with the copies
+    List<Long> copiedIds = ids("portfolio_constituent", newArId);
+    Long createdId = constituentService
+        .createConstituent(ConstituentInput.intoConstituent(new ConstituentInput(
+            newArId, LocalDate.of(2020, 1, 2), "NEW", null, 10f, 10f, 1f, 1f, 0f, 1f, 1f)))
+        .getId();
+    assertFalse(copiedIds.contains(createdId));
+    assertEquals(CONSTITUENTS + 1, ids("portfolio_constituent", newArId).size());
+  }
+
+  @Test
+  void migrationsResolveWithPartitioning() throws SQLException {
+    String url = System.getenv("PORTFOLIO_PLAN_TEST_URL");
+    String user = System.getenv("PORTFOLIO_PLAN_TEST_USER");
+    String password = System.getenv("PORTFOLIO_PLAN_TEST_PASSWORD");
+    String schema = SCHEMA + "_partitioned";
+
+    try (Connection conn = DriverManager.getConnection(url, user, password);
+        Statement st = conn.createStatement()) {
+      st.execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+    }
+
+    Flyway
+        .configure()
+        .dataSource(url, user, password)
+        .schemas(schema)
+        .locations("classpath:db/migration", "classpath:db/partitioning")
+        .load()
+        .migrate();
+
+    assertEquals(
+        "p",
+        jdbcTemplate.queryForObject(
+            "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace"
+                + " WHERE n.nspname = ? AND c.relname = 'portfolio_constituent'",
+            String.class,
+            schema));
+    assertEquals(
+        (long) PortfolioConstants.ID_ALLOCATION_SIZE,
+        jdbcTemplate.queryForObject("SELECT last_value FROM " + schema + ".portfolio_constituent_id_seq", Long.class));
+  }
+
+  // ids of a copy are contiguous, starting from 1 at least
+  private void assertCopiedIds(String table, Long adjustmentRecordId, int count) {
+    Map<String, Object> range = jdbcTemplate.queryForMap(
+        "SELECT count(*) AS n, min(id) AS lo, max(id) AS hi FROM " + table + " WHERE portfolio_adjustment_record_id = ?",
+        adjustmentRecordId);
+    long lo = ((Number) range.get("lo")).longValue();
+    long hi = ((Number) range.get("hi")).longValue();
+
+    assertEquals(count, ((Number) range.get("n")).intValue());
+    assertEquals(count, hi - lo + 1);
+    assertTrue(lo >= 1);
+  }
+
+  private List<Long> ids(String table, Long adjustmentRecordId) {
+    return jdbcTemplate.queryForList(
+        "SELECT id FROM " + table + " WHERE portfolio_adjustment_record_id = ?",
+        Long.class,
+        adjustmentRecordId);
+  }
+
+  private long lastValue(String sequence) {
+    return jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+  }
+}
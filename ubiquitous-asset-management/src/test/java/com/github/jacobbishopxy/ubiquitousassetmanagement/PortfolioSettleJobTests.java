@@ -0,0 +1,283 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettleJobStatus.Status;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.portfolioActions.SettlePortfolioResult;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.AutoSettleScheduler;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioBatchService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.PortfolioSettleJobService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * PortfolioSettleJobTests
+ *
+ * Settlement jobs (see `PortfolioSettleJobService`): deduplication by pact and
+ * date, rejection of a conflicting date or of a full queue, and retention of
+ * finished jobs; and end of day settlements alongside manual jobs, and their
+ * catch-up (see `AutoSettleScheduler`). Batch settlements are stubbed, each job
+ * holding its worker until released.
+ *
+ * Runs as a `DatabaseTest`, with a single worker, a single queued job and a
+ * retention of 2 seconds.
+ */
+@AutoConfigureMockMvc
+@DatabaseTest(
+    schema = "portfolio_settle_job_test",
+    properties = {
+        "portfolio.settle-job.workers=1",
+        "portfolio.settle-job.queue-capacity=1",
+        "portfolio.settle-job.retention=" + PortfolioSettleJobTests.RETENTION_SECONDS })
+class PortfolioSettleJobTests {
+
+  private static final String PORTFOLIO = "/" + Constants.API_VERSION + Constants.API_PORTFOLIO;
+
+  static final long RETENTION_SECONDS = 2;
+
+  private static final LocalDate DATE = LocalDate.of(2020, 1, 2);
+  private static final LocalDate OTHER_DATE = LocalDate.of(2020, 1, 3);
+
+  @Autowired
+  private PortfolioSettleJobService portfolioSettleJobService;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AutoSettleScheduler autoSettleScheduler;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Value("${portfolio.auto-settle.zone}")
+  private String zone;
+
+  @MockBean
+  private PortfolioBatchService portfolioBatchService;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private final List<String> submittedJobIds = new ArrayList<>();
+
+  // every batch settlement waits for the test to release it, then succeeds;
+  // 2 active pacts never settled, for the end of day settlements
+  @BeforeEach
+  void stub() {
+    when(portfolioBatchService.batchSettle(anyList(), anyBoolean(), any())).thenAnswer(inv -> {
+      release.await(10, TimeUnit.SECONDS);
+      List<Long> pactIds = inv.getArgument(0);
+      return pactIds
+          .stream()
+          .map(id -> new SettlePortfolioResult(id, true, null, null, false, null))
+          .toList();
+    });
+
+    jdbcTemplate.execute("TRUNCATE portfolio_pact, author, industry_info CASCADE");
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES
+          (1, 'pact_1', DATE '2020-01-01', true, 1, 'promoter@example.com'),
+          (2, 'pact_2', DATE '2019-12-31', true, 1, 'promoter@example.com')
+        """);
+  }
+
+  // no job is left to the next test
+  @AfterEach
+  void drain() throws Exception {
+    release.countDown();
+    for (String jobId : submittedJobIds) {
+      Optional<CompletableFuture<SettleJobStatus>> done = portfolioSettleJobService.whenFinished(jobId);
+      if (done.isPresent()) {
+        done.get().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  @Test
+  void sameDateSubmissionIsDeduplicated() throws Exception {
+    SettleJobStatus first = submit(List.of(1L, 2L), DATE);
+    awaitRunning(first);
+
+    // the same pacts: the active job
+    assertEquals(first.jobId(), submit(List.of(2L, 1L), DATE).jobId());
+
+    // some more pacts: a job of the others, reporting the duplicated ones
+    SettleJobStatus second = submit(List.of(2L, 3L), DATE);
+    assertNotEquals(first.jobId(), second.jobId());
+    assertEquals(List.of(3L), second.pactIds());
+    assertEquals(Map.of(2L, first.jobId()), second.duplicatedPactJobIds());
+  }
+
+  @Test
+  void anotherDateIsRejected() throws Exception {
+    SettleJobStatus first = submit(List.of(1L, 2L), DATE);
+    awaitRunning(first);
+
+    assertThrows(IllegalStateException.class, () -> submit(List.of(1L, 2L), OTHER_DATE));
+    assertThrows(IllegalStateException.class, () -> submit(List.of(2L, 3L), OTHER_DATE));
+    mockMvc
+        .perform(post(PORTFOLIO + "/portfolio_action/settle_job")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"pactIds\": [1], \"settlementDate\": \"2020-01-03\"}"))
+        .andExpect(status().isConflict());
+
+    // nothing has been enqueued, the job of the other date is unchanged
+    assertEquals(List.of(1L, 2L), portfolioSettleJobService.getJob(first.jobId()).get().pactIds());
+    assertEquals(DATE, portfolioSettleJobService.getJob(first.jobId()).get().settlementDate());
+
+    // other pacts at another date are settled by a new job
+    assertEquals(OTHER_DATE, submit(List.of(3L), OTHER_DATE).settlementDate());
+  }
+
+  @Test
+  void fullQueueIsRejected() throws Exception {
+    // one job running, one queued
+    awaitRunning(submit(List.of(1L), DATE));
+    submit(List.of(2L), DATE);
+
+    assertThrows(TaskRejectedException.class, () -> submit(List.of(3L), DATE));
+    mockMvc
+        .perform(post(PORTFOLIO + "/portfolio_action/settle_job")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"pactIds\": [3], \"settlementDate\": \"2020-01-02\"}"))
+        .andExpect(status().isServiceUnavailable());
+
+    // the rejected pact is not held by a job which does not exist
+    release.countDown();
+    drain();
+    assertEquals(List.of(3L), submit(List.of(3L), DATE).pactIds());
+  }
+
+  @Test
+  void finishedJobsAreKeptForTheRetention() throws Exception {
+    SettleJobStatus active = submit(List.of(1L), DATE);
+
+    // an active job outlives the retention
+    Thread.sleep(TimeUnit.SECONDS.toMillis(RETENTION_SECONDS) + 500);
+    assertEquals(Status.RUNNING, portfolioSettleJobService.getJob(active.jobId()).get().status());
+
+    release.countDown();
+    SettleJobStatus finished = portfolioSettleJobService
+        .whenFinished(active.jobId())
+        .get()
+        .get(10, TimeUnit.SECONDS);
+    assertEquals(Status.SUCCEEDED, finished.status());
+    assertTrue(portfolioSettleJobService.getJob(active.jobId()).isPresent());
+
+    // a finished job is dropped after the retention
+    Thread.sleep(TimeUnit.SECONDS.toMillis(RETENTION_SECONDS) + 500);
+    assertTrue(portfolioSettleJobService.getJob(active.jobId()).isEmpty());
+  }
+
+  @Test
+  void autoSettleOnlyAccountsForItsOwnPacts() throws Exception {
+    SettleJobStatus manual = submit(List.of(1L, 2L), DATE);
+    double settled = pacts("settled");
+    double skipped = pacts("skipped");
+
+    // both pacts are being settled by the manual job: the run's own job has
+    // nothing to settle
+    SettleJobStatus run = autoSettleScheduler.settle(DATE).get(10, TimeUnit.SECONDS);
+    assertNotEquals(manual.jobId(), run.jobId());
+    assertEquals(List.of(), run.pactIds());
+    assertEquals(Map.of(1L, manual.jobId(), 2L, manual.jobId()), run.duplicatedPactJobIds());
+
+    release.countDown();
+    drain();
+    assertEquals(settled, pacts("settled"));
+    assertEquals(skipped + 2, pacts("skipped"));
+  }
+
+  @Test
+  void autoSettleOfAnotherDateIsRejected() throws Exception {
+    submit(List.of(1L), OTHER_DATE);
+    double failed = pacts("failed");
+
+    assertNull(autoSettleScheduler.settle(DATE).get(10, TimeUnit.SECONDS));
+    assertEquals(failed + 2, pacts("failed"));
+  }
+
+  @Test
+  void catchUpOnlySettlesTheLatestMissedDate() throws Exception {
+    // fired daily at midnight: the last 3 days and today have been missed
+    ReflectionTestUtils.setField(autoSettleScheduler, "catchUp", true);
+    ReflectionTestUtils.setField(autoSettleScheduler, "cron", "0 0 0 * * *");
+    ReflectionTestUtils.setField(autoSettleScheduler, "catchUpDays", 3);
+    try {
+      autoSettleScheduler.catchUpOnStartup();
+    } finally {
+      ReflectionTestUtils.setField(autoSettleScheduler, "catchUp", false);
+      ReflectionTestUtils.setField(autoSettleScheduler, "cron", "-");
+    }
+    release.countDown();
+
+    LocalDate today = LocalDate.now(ZoneId.of(zone));
+    verify(portfolioBatchService, timeout(10000)).batchSettle(eq(List.of(1L, 2L)), anyBoolean(), eq(today));
+    verify(portfolioBatchService, never()).batchSettle(anyList(), anyBoolean(), argThat(d -> d.isBefore(today)));
+  }
+
+  // the worker has taken the job out of the queue
+  private void awaitRunning(SettleJobStatus job) throws InterruptedException {
+    for (int i = 0; i < 100 && portfolioSettleJobService.getJob(job.jobId()).get().status() == Status.QUEUED; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(Status.RUNNING, portfolioSettleJobService.getJob(job.jobId()).get().status());
+  }
+
+  private double pacts(String outcome) {
+    return meterRegistry.get(AutoSettleScheduler.PACTS_COUNTER).tag("outcome", outcome).counter().count();
+  }
+
+  private SettleJobStatus submit(List<Long> pactIds, LocalDate settleDate) {
+    SettleJobStatus job = portfolioSettleJobService.submit(pactIds, false, settleDate);
+    submittedJobIds.add(job.jobId());
+    return job;
+  }
+}
@@ -0,0 +1,183 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentInput;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentUpdate;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * PortfolioSnapshotDeltaTests
+ *
+ * By-id mutations of a delta snapshot's inherited constituents, which are
+ * returned with their parent's ids: the delta is stored in full and mutated,
+ * its parent is left unchanged.
+ *
+ * Runs as a `DatabaseTest`.
+ */
+@DatabaseTest(schema = "portfolio_snapshot_delta_test")
+class PortfolioSnapshotDeltaTests {
+
+  private static final long PARENT_AR_ID = 1L;
+  private static final long DELTA_AR_ID = 2L;
+
+  // symbol A of the parent, inherited by the delta
+  private static final long INHERITED_ID = 1000L;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact with a full settled snapshot (A, B), a delta against it which only
+  // stores its changed B, and an unsettled record
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (1, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled,
+          snapshot_base_id, snapshot_depth
+        ) VALUES
+          (1, 1, DATE '2020-01-01', 1, true, NULL, NULL, NULL),
+          (2, 1, DATE '2020-01-02', 1, false, NULL, 1, 1),
+          (3, 1, NULL, NULL, false, true, NULL, NULL)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        ) VALUES (1, 0, 0, 0), (2, 0, 0, 0), (3, 0, 0, 0)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        ) VALUES
+          (1000, 1, DATE '2020-01-01', 'A', 10, 10, 1, 1, 0.5, 0.5, 1, 1, 0),
+          (1001, 1, DATE '2020-01-01', 'B', 20, 20, 1, 1, 0.5, 0.5, 1, 1, 0),
+          (1002, 2, DATE '2020-01-01', 'B', 20, 21, 1, 1, 0.5, 0.5, 1, 1, 0.05),
+          (1003, 3, DATE '2020-01-01', 'A', 10, 10, 1, 1, 0.5, 0.5, 1, 1, 0),
+          (1004, 3, DATE '2020-01-01', 'B', 20, 21, 1, 1, 0.5, 0.5, 1, 1, 0.05)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        ) VALUES (1, 2, 0, 0, 0)
+        """);
+  }
+
+  @Test
+  void updatingAnInheritedConstituentLeavesTheParentUnchanged() {
+    Map<String, Object> parentBefore = parentRow();
+    assertEquals(INHERITED_ID, inheritedA().getId());
+
+    Constituent updated = constituentService
+        .updateConstituent(INHERITED_ID, ConstituentInput.intoConstituent(new ConstituentInput(
+            DELTA_AR_ID, LocalDate.of(2020, 1, 1), "A", null, 10f, 11f, 1f, 1f, 0.5f, 1f, 1f)))
+        .get();
+
+    assertNotEquals(INHERITED_ID, updated.getId());
+    assertEquals(DELTA_AR_ID, updated.getAdjRecordId());
+    assertEquals(11f, updated.getCurrentPrice());
+    assertEquals(11f, inheritedA().getCurrentPrice());
+    assertDeltaStoredInFull(2);
+    assertEquals(parentBefore, parentRow());
+  }
+
+  @Test
+  void modifyingAnInheritedConstituentLeavesTheParentUnchanged() {
+    Map<String, Object> parentBefore = parentRow();
+
+    Constituent modified = constituentService
+        .modifyConstituent(INHERITED_ID, DELTA_AR_ID, new ConstituentUpdate(null, 12f, null, null))
+        .get();
+
+    assertNotEquals(INHERITED_ID, modified.getId());
+    assertEquals(12f, inheritedA().getCurrentPrice());
+    assertDeltaStoredInFull(2);
+    assertEquals(parentBefore, parentRow());
+  }
+
+  @Test
+  void deletingAnInheritedConstituentLeavesTheParentUnchanged() {
+    Map<String, Object> parentBefore = parentRow();
+
+    constituentService.deleteConstituent(INHERITED_ID, DELTA_AR_ID);
+
+    List<Constituent> cons = constituentService.getConstituentsByAdjustmentRecordId(DELTA_AR_ID);
+    assertEquals(List.of("B"), cons.stream().map(Constituent::getSymbol).toList());
+    assertDeltaStoredInFull(1);
+    assertEquals(parentBefore, parentRow());
+    assertEquals(2, count(PARENT_AR_ID));
+  }
+
+  @Test
+  void constituentReadFromItsOwnRecordIsMutatedInPlace() {
+    constituentService.modifyConstituent(INHERITED_ID, PARENT_AR_ID, new ConstituentUpdate(null, 13f, null, null));
+
+    assertEquals(13f, ((Number) parentRow().get("current_price")).floatValue());
+    // the delta no longer inherits the parent's new price
+    assertEquals(10f, inheritedA().getCurrentPrice());
+    assertDeltaStoredInFull(2);
+  }
+
+  private Constituent inheritedA() {
+    return constituentService
+        .getConstituentsByAdjustmentRecordId(DELTA_AR_ID)
+        .stream()
+        .filter(c -> c.getSymbol().equals("A"))
+        .findFirst()
+        .get();
+  }
+
+  private void assertDeltaStoredInFull(int count) {
+    assertNull(jdbcTemplate.queryForObject(
+        "SELECT snapshot_base_id FROM portfolio_adjustment_record WHERE id = ?", Long.class, DELTA_AR_ID));
+    assertEquals(count, count(DELTA_AR_ID));
+    assertTrue(jdbcTemplate
+        .queryForList("SELECT id FROM portfolio_constituent WHERE portfolio_adjustment_record_id = ?",
+            Long.class, DELTA_AR_ID)
+        .stream()
+        .noneMatch(id -> id == INHERITED_ID));
+  }
+
+  private Map<String, Object> parentRow() {
+    return jdbcTemplate.queryForMap(
+        "SELECT portfolio_adjustment_record_id, symbol, current_price, pbpe FROM portfolio_constituent WHERE id = ?",
+        INHERITED_ID);
+  }
+
+  private int count(long adjustmentRecordId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM portfolio_constituent WHERE portfolio_adjustment_record_id = ?",
+        Integer.class,
+        adjustmentRecordId);
+  }
+}
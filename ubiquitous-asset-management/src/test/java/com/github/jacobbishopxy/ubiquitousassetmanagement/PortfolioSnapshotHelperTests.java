@@ -0,0 +1,66 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.AdjustmentRecord;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.domain.Constituent;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.helper.PortfolioSnapshotHelper;
+
+import org.junit.jupiter.api.Test;
+
+class PortfolioSnapshotHelperTests {
+
+  @Test
+  void rebuiltSnapshotEqualsFullSnapshot() {
+    AdjustmentRecord parentAr = new AdjustmentRecord(1L);
+    AdjustmentRecord ar = new AdjustmentRecord(2L);
+
+    List<Constituent> parentCons = List.of(
+        constituent(parentAr, 10L, "A", 10f),
+        constituent(parentAr, 11L, "B", 20f),
+        constituent(parentAr, 12L, "C", 30f));
+    List<Constituent> cons = List.of(
+        constituent(ar, 20L, "A", 10f),
+        constituent(ar, 21L, "B", 21f),
+        constituent(ar, 22L, "C", 30f),
+        constituent(ar, 23L, "D", 40f));
+
+    assertTrue(PortfolioSnapshotHelper.isDeltaEncodable(parentCons, cons));
+
+    List<Constituent> delta = PortfolioSnapshotHelper.changed(parentCons, cons);
+    assertEquals(List.of("B", "D"), symbols(delta));
+
+    List<Constituent> rebuilt = PortfolioSnapshotHelper.rebuild(ar, parentCons, delta);
+    assertEquals(symbols(cons), symbols(rebuilt));
+    for (int i = 0; i < cons.size(); i++) {
+      assertEquals(cons.get(i).getCurrentPrice(), rebuilt.get(i).getCurrentPrice());
+      assertEquals(ar, rebuilt.get(i).getAdjustmentRecord());
+    }
+    // inherited constituents carry their parent's ids
+    assertEquals(List.of(10L, 21L, 12L, 23L), rebuilt
+        .stream()
+        .map(Constituent::getId)
+        .collect(Collectors.toList()));
+
+    // dropping a symbol cannot be encoded
+    assertFalse(PortfolioSnapshotHelper.isDeltaEncodable(cons, parentCons));
+  }
+
+  private static Constituent constituent(AdjustmentRecord ar, Long id, String symbol, Float currentPrice) {
+    Constituent c = new Constituent(ar, null, symbol, symbol, 1f, currentPrice, 1f, 1f, 0.25f, 0.25f, 1f, 1f, 0f);
+    c.setId(id);
+    return c;
+  }
+
+  private static List<String> symbols(List<Constituent> cons) {
+    return cons
+        .stream()
+        .map(Constituent::getSymbol)
+        .collect(Collectors.toList());
+  }
+}
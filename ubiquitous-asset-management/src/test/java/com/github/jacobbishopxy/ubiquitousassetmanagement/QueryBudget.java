@@ -0,0 +1,47 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.RequestMetricsConfig;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.RequestQueryCounter.RequestQueries;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * QueryBudget
+ *
+ * MockMvc expectations on the SQL statements issued by a request, as counted
+ * by `RequestMetricsConfig`'s filter:
+ *
+ * `mockMvc.perform(get(...)).andExpect(QueryBudget.atMost(3))`
+ *
+ * A failure lists the statement shapes repeated by the request, which usually
+ * points at the association loaded row by row.
+ */
+public final class QueryBudget {
+
+  private QueryBudget() {
+  }
+
+  public static ResultMatcher atMost(int budget) {
+    return result -> {
+      RequestQueries queries = queries(result);
+      assertTrue(
+          queries.count() <= budget,
+          String.format("%s exceeds its budget of %d: %s", uri(result), budget, queries.describe()));
+    };
+  }
+
+  public static RequestQueries queries(MvcResult result) {
+    RequestQueries queries = (RequestQueries) result.getRequest().getAttribute(RequestMetricsConfig.QUERIES_ATTRIBUTE);
+    assertNotNull(queries, "statements are not counted, is the filter of `RequestMetricsConfig` registered?");
+    return queries;
+  }
+
+  private static String uri(MvcResult result) {
+    String query = result.getRequest().getQueryString();
+    return result.getRequest().getRequestURI() + (query == null ? "" : "?" + query);
+  }
+}
@@ -0,0 +1,212 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * QueryBudgetTests
+ *
+ * N+1 guard: the statements issued by the main read endpoints stay within a
+ * budget, whatever the number of rows they return (see `QueryBudget`). The
+ * EAGER `@ManyToOne` chains (constituent to adjustment record, pact to
+ * promoter/industry, promotion record to promotion pact/promoter) must be
+ * fetched by the queries, not row by row.
+ *
+ * Runs as a `DatabaseTest`, with the portfolio cache disabled.
+ */
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DatabaseTest(schema = "query_budget_test", properties = "portfolio.cache.enabled=false")
+class QueryBudgetTests {
+
+  private static final String PORTFOLIO = "/" + Constants.API_VERSION + Constants.API_PORTFOLIO;
+  private static final String PROMOTION = "/" + Constants.API_VERSION + Constants.API_PROMOTION;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeAll
+  void seed() {
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active)
+        SELECT 'promoter_' || i || '@example.com', 'promoter_' || i, true
+        FROM generate_series(1, 20) i
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO industry_info (id, name)
+        SELECT i, 'industry_' || i
+        FROM generate_series(1, 10) i
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO promotion_pact (name, start_date, end_date)
+        SELECT
+          'promotion_pact_' || i,
+          TIMESTAMP '2025-01-01' + (i - 1) * INTERVAL '90 days',
+          TIMESTAMP '2025-01-01' + i * INTERVAL '90 days' - INTERVAL '1 second'
+        FROM generate_series(1, 4) i
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO promotion_record (
+          id, symbol, currency, direction, open_time, open_price,
+          close_time, close_price, earnings_yield, performance_score, is_archived,
+          promoter_email, promotion_pact_name
+        )
+        SELECT
+          i, 'S' || i, 'CNY', 'BUY',
+          TIMESTAMP '2025-01-01' + (i % 4) * INTERVAL '90 days',
+          10, TIMESTAMP '2025-02-01' + (i % 4) * INTERVAL '90 days', 11, 0.1, 10, true,
+          'promoter_' || (i % 20 + 1) || '@example.com',
+          'promotion_pact_' || (i % 4 + 1)
+        FROM generate_series(1, 200) i
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO promotion_statistic (
+          base_score, performance_score, previous_promotion_count, promotion_count,
+          promotion_failure_count, promotion_success_count, success_rate, total_score,
+          promoter_email, promotion_pact_name
+        )
+        SELECT 10, 10, 0, 10, 0, 10, 1, 20, 'promoter_' || p || '@example.com', 'promotion_pact_' || pp
+        FROM generate_series(1, 20) p, generate_series(1, 4) pp
+        """);
+    seedPacts(1, 5);
+  }
+
+  // pacts `from`..`to`, each with 2 settled records and an unsettled one, and
+  // 10 constituents and 2 benchmarks per record
+  private void seedPacts(int from, int to) {
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_pact (
+          id, alias, start_date, is_active, industry_info_id, promoter_email
+        )
+        SELECT
+          i, 'pact_' || i, DATE '2020-01-01' + i, true,
+          i % 10 + 1, 'promoter_' || (i % 20 + 1) || '@example.com'
+        FROM generate_series(?, ?) i
+        """, from, to);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        )
+        SELECT
+          p * 3 + v, p,
+          CASE WHEN v < 2 THEN DATE '2020-01-01' + v END,
+          CASE WHEN v < 2 THEN 1 END,
+          true,
+          CASE WHEN v = 2 THEN true END
+        FROM generate_series(?, ?) p, generate_series(0, 2) v
+        """, from, to);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_constituent (
+          portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        )
+        SELECT ar.id, DATE '2020-01-01', 'S' || s, 10, 11, 1, 1, 0.1, 0.1, 1, 1, 0.1
+        FROM portfolio_adjustment_record ar, generate_series(1, 10) s
+        WHERE ar.portfolio_pact_id BETWEEN ? AND ?
+        """, from, to);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_benchmark (
+          portfolio_adjustment_record_id, adjust_date, benchmark_name, symbol,
+          percentage_change, static_weight, dynamic_weight
+        )
+        SELECT ar.id, DATE '2020-01-01', 'B' || b, 'B' || b, 0.01, 0.5, 0.5
+        FROM portfolio_adjustment_record ar, generate_series(1, 2) b
+        WHERE ar.portfolio_pact_id BETWEEN ? AND ?
+        """, from, to);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        )
+        SELECT ar.id, 0.1, 0.01, 0.09
+        FROM portfolio_adjustment_record ar
+        WHERE ar.portfolio_pact_id BETWEEN ? AND ?
+        """, from, to);
+    jdbcTemplate.update("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        )
+        SELECT p, 2, 0.2, 0.02, 0.18
+        FROM generate_series(?, ?) p
+        """, from, to);
+  }
+
+  @Test
+  void portfolioOverviewsAreIndependentOfPactCount() throws Exception {
+    String uri = PORTFOLIO + "/portfolio_overviews?is_activate=true";
+
+    int before = QueryBudget.queries(mockMvc
+        .perform(get(uri))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(3))
+        .andReturn()).count();
+
+    seedPacts(6, 50);
+
+    int after = QueryBudget.queries(mockMvc
+        .perform(get(uri))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(3))
+        .andReturn()).count();
+
+    assertEquals(before, after, "statements of " + uri + " grow with the number of pacts");
+  }
+
+  @Test
+  void portfolioReadsStayWithinBudget() throws Exception {
+    mockMvc
+        .perform(get(PORTFOLIO + "/portfolio_overviews/search?is_active=true&page=0&size=20"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(3));
+    mockMvc
+        .perform(get(PORTFOLIO + "/portfolio_detail/unsettled?pact_id=3"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(6));
+    mockMvc
+        .perform(get(PORTFOLIO + "/portfolio_detail/latest_settled?pact_id=3"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(6));
+    mockMvc
+        .perform(get(PORTFOLIO + "/portfolio_adjustment_records?pact_id=3"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(1));
+  }
+
+  @Test
+  void promotionReadsStayWithinBudget() throws Exception {
+    mockMvc
+        .perform(get(PROMOTION + "/record?page=0&size=50&open_time_sort=desc"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(2));
+    mockMvc
+        .perform(get(PROMOTION + "/record?page=0&size=50&promoters=promoter_1&score_sort=desc"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(3));
+    mockMvc
+        .perform(get(PROMOTION + "/statistic"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(1));
+    mockMvc
+        .perform(get(PROMOTION + "/statistic?promotion_pact_name=promotion_pact_1"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(1));
+    mockMvc
+        .perform(get(PROMOTION + "/pact"))
+        .andExpect(status().isOk())
+        .andExpect(QueryBudget.atMost(1));
+  }
+}
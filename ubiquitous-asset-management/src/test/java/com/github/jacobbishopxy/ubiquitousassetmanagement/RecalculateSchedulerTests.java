@@ -0,0 +1,149 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.time.LocalDate;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.dto.ConstituentInput;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.ConstituentService;
+import com.github.jacobbishopxy.ubiquitousassetmanagement.portfolio.service.RecalculateScheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * RecalculateSchedulerTests
+ *
+ * Write-behind recalculation: a record stays dirty until its recalculation is
+ * committed, e.g. a flush rolled back along with the transaction it has joined
+ * is flushed again.
+ *
+ * Runs as a `DatabaseTest`, with background flushing out of the way.
+ */
+@DatabaseTest(
+    schema = "recalculate_scheduler_test",
+    properties = {
+        "portfolio.recalculation.write-behind=true",
+        "portfolio.recalculation.coalesce-window=3600000",
+        "portfolio.recalculation.flush-interval=3600000" })
+class RecalculateSchedulerTests {
+
+  private static final long UNSETTLED_AR_ID = 2L;
+  private static final long CONSTITUENT_ID = 1000L;
+
+  @Autowired
+  private ConstituentService constituentService;
+
+  @Autowired
+  private RecalculateScheduler recalculateScheduler;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  // a pact with a settled record and an unsettled one of 2 constituents
+  @BeforeEach
+  void seed() {
+    jdbcTemplate.execute("""
+        TRUNCATE portfolio_pact, portfolio_adjustment_record, portfolio_constituent,
+          portfolio_performance, portfolio_accumulated_performance, author, industry_info CASCADE
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO author (email, nickname, active) VALUES ('promoter@example.com', 'promoter', true)
+        """);
+    jdbcTemplate.execute("INSERT INTO industry_info (id, name) VALUES (1, 'industry')");
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_pact (id, alias, start_date, is_active, industry_info_id, promoter_email)
+        VALUES (1, 'pact', DATE '2020-01-01', true, 1, 'promoter@example.com')
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_adjustment_record (
+          id, portfolio_pact_id, adjust_date, adjust_version, is_adjusted, is_unsettled
+        ) VALUES
+          (1, 1, DATE '2020-01-01', 1, true, NULL),
+          (2, 1, NULL, NULL, false, true)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_performance (
+          portfolio_adjustment_record_id, portfolio_earnings_yield, benchmark_earnings_yield, alpha
+        ) VALUES (1, 0.1, 0, 0.1), (2, 0, 0, 0)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_constituent (
+          id, portfolio_adjustment_record_id, adjust_date, symbol, adjust_date_price,
+          current_price, adjust_date_factor, current_factor, static_weight,
+          dynamic_weight, pbpe, market_value, earnings_yield
+        ) VALUES
+          (1000, 2, DATE '2020-01-01', 'A', 10, 10, 1, 1, 0.5, 0.5, 1, 1, 0),
+          (1001, 2, DATE '2020-01-01', 'B', 10, 10, 1, 1, 0.5, 0.5, 1, 1, 0)
+        """);
+    jdbcTemplate.execute("""
+        INSERT INTO portfolio_accumulated_performance (
+          portfolio_pact_id, adjust_count, portfolio_earnings_yield,
+          benchmark_earnings_yield, alpha
+        ) VALUES (1, 1, 0.1, 0, 0.1)
+        """);
+  }
+
+  @Test
+  void rolledBackFlushKeepsTheRecordDirty() {
+    // deferred: the performance is not recalculated yet
+    constituentService.updateConstituent(
+        CONSTITUENT_ID,
+        ConstituentInput.intoConstituent(new ConstituentInput(
+            UNSETTLED_AR_ID, LocalDate.of(2020, 1, 1), "A", null, 10f, 12f, 1f, 1f, 0.5f, 1f, 1f)));
+    assertEquals(1, pending());
+    assertEquals(0d, unsettledEarningsYield());
+
+    // flushed within a transaction which is rolled back
+    transactionTemplate.executeWithoutResult(status -> {
+      recalculateScheduler.flush(UNSETTLED_AR_ID);
+      status.setRollbackOnly();
+    });
+    assertEquals(1, pending());
+    assertEquals(0d, unsettledEarningsYield());
+
+    // flushed again
+    recalculateScheduler.flush(UNSETTLED_AR_ID);
+    assertEquals(0, pending());
+    assertNotEquals(0d, unsettledEarningsYield());
+  }
+
+  @Test
+  void deletedRecordIsNoLongerDirty() {
+    constituentService.updateConstituent(
+        CONSTITUENT_ID,
+        ConstituentInput.intoConstituent(new ConstituentInput(
+            UNSETTLED_AR_ID, LocalDate.of(2020, 1, 1), "A", null, 10f, 12f, 1f, 1f, 0.5f, 1f, 1f)));
+    assertEquals(1, pending());
+
+    jdbcTemplate.update("DELETE FROM portfolio_constituent WHERE portfolio_adjustment_record_id = ?", UNSETTLED_AR_ID);
+    jdbcTemplate.update("DELETE FROM portfolio_performance WHERE portfolio_adjustment_record_id = ?", UNSETTLED_AR_ID);
+    jdbcTemplate.update("DELETE FROM portfolio_adjustment_record WHERE id = ?", UNSETTLED_AR_ID);
+
+    recalculateScheduler.flush(UNSETTLED_AR_ID);
+    assertEquals(0, pending());
+  }
+
+  private int pending() {
+    return (int) meterRegistry.get("portfolio.recalculation.pending").gauge().value();
+  }
+
+  private double unsettledEarningsYield() {
+    return jdbcTemplate.queryForObject(
+        "SELECT portfolio_earnings_yield FROM portfolio_performance WHERE portfolio_adjustment_record_id = ?",
+        Double.class,
+        UNSETTLED_AR_ID);
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.jacobbishopxy.ubiquitousassetmanagement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.cache.CacheManager;
+
+import com.github.jacobbishopxy.ubiquitousassetmanagement.config.ReferenceCacheConfig;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * ReferenceCacheConfigTests
+ *
+ * Each context gets its own reference cache manager: closing one (e.g. a test
+ * context shut down) leaves the others' regions open.
+ */
+class ReferenceCacheConfigTests {
+
+  @Test
+  void cacheManagersAreNotShared() {
+    ReferenceCacheConfig config = new ReferenceCacheConfig();
+    CacheManager first = config.referenceCacheManager(10, 60);
+    CacheManager second = config.referenceCacheManager(10, 60);
+
+    try {
+      assertNotSame(first, second);
+
+      first.close();
+
+      assertTrue(first.isClosed());
+      assertFalse(second.isClosed());
+      assertNotNull(second.getCache(Constants.CACHE_REGION_PROMOTER));
+    } finally {
+      first.close();
+      second.close();
+    }
+  }
+}
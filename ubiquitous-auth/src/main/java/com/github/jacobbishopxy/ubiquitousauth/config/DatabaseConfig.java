@@ -6,13 +6,14 @@ package com.github.jacobbishopxy.ubiquitousauth.config;
 
 import javax.sql.DataSource;
 
+import com.zaxxer.hikari.HikariDataSource;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 @Configuration
 @EnableJpaRepositories
@@ -22,11 +23,14 @@ public class DatabaseConfig {
   @Autowired
   private Environment env;
 
+  // pooled, so that connections are reused and the pool's gauges are published
+  // under `hikaricp.connections`
   @Bean
   public DataSource dataSource() {
-    final DriverManagerDataSource dataSource = new DriverManagerDataSource();
+    final HikariDataSource dataSource = new HikariDataSource();
+    dataSource.setPoolName("auth");
     dataSource.setDriverClassName(env.getProperty("driverClassName"));
-    dataSource.setUrl(env.getProperty("url"));
+    dataSource.setJdbcUrl(env.getProperty("url"));
     dataSource.setUsername(env.getProperty("username"));
     dataSource.setPassword(env.getProperty("password"));
     return dataSource;
@@ -0,0 +1,81 @@
+package com.github.jacobbishopxy.ubiquitousauth.config;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * RequestMetricsConfig
+ *
+ * Per-request metrics complementing the latency of `http.server.requests`:
+ * the number of SQL statements of each request (see `RequestQueryCounter`) is
+ * published as the distribution `http.server.requests.queries`, tagged by
+ * method and uri (the handler's pattern).
+ *
+ * The filter runs ahead of Spring Security's, so that the user lookups of the
+ * CAS authentication are counted as well.
+ */
+@Configuration
+public class RequestMetricsConfig {
+
+  public static final String QUERIES_SUMMARY = "http.server.requests.queries";
+
+  private static final String UNKNOWN_URI = "UNKNOWN";
+
+  @Bean
+  public HibernatePropertiesCustomizer requestQueryCountCustomizer() {
+    StatementInspector inspector = sql -> {
+      RequestQueryCounter.increment();
+      return sql;
+    };
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+  }
+
+  @Bean
+  public FilterRegistrationBean<OncePerRequestFilter> requestQueryCountFilter(MeterRegistry meterRegistry) {
+    OncePerRequestFilter filter = new OncePerRequestFilter() {
+      @Override
+      protected void doFilterInternal(
+          HttpServletRequest request,
+          HttpServletResponse response,
+          FilterChain filterChain) throws ServletException, IOException {
+        RequestQueryCounter.start();
+        try {
+          filterChain.doFilter(request, response);
+        } finally {
+          int count = RequestQueryCounter.stop();
+
+          Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+          DistributionSummary
+              .builder(QUERIES_SUMMARY)
+              .description("SQL statements executed by a request")
+              .baseUnit("statements")
+              .tag("method", request.getMethod())
+              .tag("uri", pattern == null ? UNKNOWN_URI : pattern.toString())
+              .register(meterRegistry)
+              .record(count);
+        }
+      }
+    };
+
+    FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(filter);
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+    return registration;
+  }
+}
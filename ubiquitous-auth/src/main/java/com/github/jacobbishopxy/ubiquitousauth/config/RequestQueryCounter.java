@@ -0,0 +1,35 @@
+package com.github.jacobbishopxy.ubiquitousauth.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RequestQueryCounter
+ *
+ * Counts the SQL statements prepared by Hibernate on behalf of the current
+ * request thread. Statements executed outside of a request (startup data
+ * loading) are not counted.
+ */
+public final class RequestQueryCounter {
+
+  private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+  private RequestQueryCounter() {
+  }
+
+  static void start() {
+    COUNT.set(new AtomicInteger());
+  }
+
+  static int stop() {
+    AtomicInteger count = COUNT.get();
+    COUNT.remove();
+    return count == null ? 0 : count.get();
+  }
+
+  static void increment() {
+    AtomicInteger count = COUNT.get();
+    if (count != null) {
+      count.incrementAndGet();
+    }
+  }
+}
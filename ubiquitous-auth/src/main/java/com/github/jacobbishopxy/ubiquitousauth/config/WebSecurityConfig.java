@@ -8,6 +8,7 @@ import com.github.jacobbishopxy.ubiquitousauth.Constants;
 
 import org.jasig.cas.client.session.SingleSignOutFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.security.cas.web.CasAuthenticationFilter;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -44,6 +45,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         .antMatchers(casConfig.getBaseLoginPath(), casConfig.getBaseLogoutPath()).permitAll()
         .antMatchers(Constants.API_VERSION + Constants.API_INFORMATION).permitAll()
         .antMatchers(Constants.API_VERSION + Constants.API_REGISTRATION).hasRole("admin")
+        // actuator endpoints are served on the management port only
+        .requestMatchers(EndpointRequest.toAnyEndpoint()).permitAll()
         .anyRequest().authenticated()
         .and()
         .httpBasic().authenticationEntryPoint(authenticationEntryPoint)
@@ -3,6 +3,11 @@ package com.github.jacobbishopxy.ubiquitousauth.service;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -10,10 +15,29 @@ import org.springframework.stereotype.Service;
 @Service
 public class ValidationService {
 
+  public static final String VALIDATE_TIMER = "auth.ticket.validate";
+
   @Autowired
   AuthUtils util;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Timer validateTimer;
+
+  @PostConstruct
+  private void init() {
+    validateTimer = Timer
+        .builder(VALIDATE_TIMER)
+        .description("Validation of a ticket by the CAS server")
+        .register(meterRegistry);
+  }
+
   public String validate(String ticketValue) throws Exception {
+    return validateTimer.recordCallable(() -> doValidate(ticketValue));
+  }
+
+  private String doValidate(String ticketValue) throws Exception {
     Map<String, Object> params = new HashMap<String, Object>();
     params.put("ticketValue", ticketValue);
     params.put("ticketName", "SIAMTGT");
@@ -11,6 +11,11 @@ import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsCommandListener;
+import io.micrometer.core.instrument.binder.mongodb.MongoMetricsConnectionPoolListener;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
@@ -28,6 +33,9 @@ import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 @PropertySource(value = "classpath:persistence.yml", factory = YamlPropertySourceFactory.class)
 public class DbConfig {
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   private List<Conn> cons;
 
   public static class Conn {
@@ -100,8 +108,14 @@ public class DbConfig {
     ConnectionString str = new ConnectionString(
         String.format("mongodb://%s:%s@%s:%s/%s?authSource=%s", conn.getUsername(),
             conn.getPassword(), conn.getHost(), conn.getPort(), conn.getDatabase(), conn.getAuth()));
+    // commands (`mongodb.driver.commands`) and pools (`mongodb.driver.pool.*`)
+    // metrics, and commands counted per request
     MongoClientSettings settings = MongoClientSettings.builder()
         .applyConnectionString(str)
+        .addCommandListener(new MongoMetricsCommandListener(meterRegistry))
+        .addCommandListener(RequestMetricsConfig.COMMAND_COUNTER)
+        .applyToConnectionPoolSettings(
+            builder -> builder.addConnectionPoolListener(new MongoMetricsConnectionPoolListener(meterRegistry)))
         .build();
 
     return MongoClients.create(settings);
@@ -0,0 +1,71 @@
+package com.github.jacobbishopxy.ubiquitousresourcecentre.config;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * RequestMetricsConfig
+ *
+ * Per-request metrics complementing the latency of `http.server.requests`:
+ * the number of MongoDB commands of each request (see `RequestQueryCounter`)
+ * is published as the distribution `http.server.requests.queries`, tagged by
+ * method and uri (the handler's pattern).
+ */
+@Configuration
+public class RequestMetricsConfig {
+
+  public static final String QUERIES_SUMMARY = "http.server.requests.queries";
+
+  private static final String UNKNOWN_URI = "UNKNOWN";
+
+  // the synchronous driver notifies listeners on the thread sending the command
+  static final CommandListener COMMAND_COUNTER = new CommandListener() {
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+      RequestQueryCounter.increment();
+    }
+  };
+
+  @Bean
+  public OncePerRequestFilter requestQueryCountFilter(MeterRegistry meterRegistry) {
+    return new OncePerRequestFilter() {
+      @Override
+      protected void doFilterInternal(
+          HttpServletRequest request,
+          HttpServletResponse response,
+          FilterChain filterChain) throws ServletException, IOException {
+        RequestQueryCounter.start();
+        try {
+          filterChain.doFilter(request, response);
+        } finally {
+          int count = RequestQueryCounter.stop();
+
+          Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+          DistributionSummary
+              .builder(QUERIES_SUMMARY)
+              .description("MongoDB commands sent by a request")
+              .baseUnit("commands")
+              .tag("method", request.getMethod())
+              .tag("uri", pattern == null ? UNKNOWN_URI : pattern.toString())
+              .register(meterRegistry)
+              .record(count);
+        }
+      }
+    };
+  }
+}
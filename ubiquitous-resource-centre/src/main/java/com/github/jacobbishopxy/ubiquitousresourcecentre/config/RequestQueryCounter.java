@@ -0,0 +1,35 @@
+package com.github.jacobbishopxy.ubiquitousresourcecentre.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * RequestQueryCounter
+ *
+ * Counts the MongoDB commands sent on behalf of the current request thread:
+ * a GridFS download, for instance, is a `find` on the files collection, then
+ * a `find` and `getMore`s on the chunks collection.
+ */
+public final class RequestQueryCounter {
+
+  private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+
+  private RequestQueryCounter() {
+  }
+
+  static void start() {
+    COUNT.set(new AtomicInteger());
+  }
+
+  static int stop() {
+    AtomicInteger count = COUNT.get();
+    COUNT.remove();
+    return count == null ? 0 : count.get();
+  }
+
+  static void increment() {
+    AtomicInteger count = COUNT.get();
+    if (count != null) {
+      count.incrementAndGet();
+    }
+  }
+}
@@ -9,6 +9,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import javax.annotation.PostConstruct;
+
 import com.github.jacobbishopxy.ubiquitousresourcecentre.config.DbConnections;
 import com.github.jacobbishopxy.ubiquitousresourcecentre.domain.SimpleFile;
 import com.mongodb.BasicDBObject;
@@ -16,6 +18,9 @@ import com.mongodb.DBObject;
 import com.mongodb.client.gridfs.GridFSFindIterable;
 import com.mongodb.client.gridfs.model.GridFSFile;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
@@ -28,9 +33,24 @@ import org.springframework.web.multipart.MultipartFile;
 @Service
 public class FileService {
 
+  public static final String DOWNLOAD_TIMER = "file.download";
+
   @Autowired
   DbConnections conns;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  private Timer downloadTimer;
+
+  @PostConstruct
+  private void init() {
+    downloadTimer = Timer
+        .builder(DOWNLOAD_TIMER)
+        .description("Download of a file, read in full from GridFS")
+        .register(meterRegistry);
+  }
+
   // =======================================================================
   // Query methods
   // =======================================================================
@@ -109,6 +129,15 @@ public class FileService {
   }
 
   public SimpleFile downloadFile(String key, String id) throws IOException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return doDownloadFile(key, id);
+    } finally {
+      sample.stop(downloadTimer);
+    }
+  }
+
+  private SimpleFile doDownloadFile(String key, String id) throws IOException {
     GridFsTemplate template = conns.getGridFsTemplate(key);
 
     GridFSFile file = template.findOne(new Query(Criteria.where("_id").is(id)));